@@ -0,0 +1,6 @@
+#!/bin/sh
+# Regression gate: replays all traces and compares their per-frame work with the committed
+# baseline bench/replay.properties. Exits with status 1 if any count regressed.
+# After an intended change of the counts, save a new baseline:
+#   bench/run.sh Replay --save bench/replay.properties
+exec "$(dirname "$0")/run.sh" Replay --compare bench/replay.properties "$@"
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Compiles the library against shadow Android classes and runs benchmarks on desktop JVM.
+# Arguments are passed to SlideShowBenchmarks, e.g.:
+#   bench/run.sh --save bench/baseline.properties
+#   bench/run.sh --compare bench/baseline.properties
+#   bench/run.sh --compare local.properties --gate-time
+# If the first argument is a class name, that class is run instead:
+#   bench/run.sh SlideListStress 10
+#   bench/run.sh Replay --compare bench/replay.properties
+set -e
+MAIN=SlideShowBenchmarks
+case "$1" in
+	[A-Z]*) MAIN=$1; shift ;;
+esac
+cd "$(dirname "$0")/.."
+rm -rf bench/out
+mkdir -p bench/out
+# warnings fail the build, so that shadow classes and benchmarks stay clean
+javac -Xlint:all -Werror -encoding UTF-8 -d bench/out \
+	$(find bench/shadow src/ru/salauyou/slideshowswipe bench/src -name '*.java')
+# escape analysis is disabled, since ART does not eliminate allocations the way HotSpot does
+exec java -XX:-DoEscapeAnalysis -cp bench/out ru.salauyou.slideshowswipe.$MAIN "$@"
@@ -0,0 +1,8 @@
+package android.annotation;
+
+/**
+ * Shadow of {@code android.annotation.TargetApi}
+ */
+public @interface TargetApi {
+	int value();
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+/**
+ * Shadow of {@code android.content.Context}
+ */
+public class Context {
+
+	public Resources getResources(){
+		return new Resources();
+	}
+
+	public String getPackageName(){
+		return "ru.salauyou.slideshowswipe";
+	}
+
+	public PackageManager getPackageManager(){
+		return new PackageManager();
+	}
+}
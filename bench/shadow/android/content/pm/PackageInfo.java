@@ -0,0 +1,11 @@
+package android.content.pm;
+
+/**
+ * Shadow of {@code android.content.pm.PackageInfo}
+ */
+public class PackageInfo {
+
+	public String packageName;
+	public int versionCode;
+	public long firstInstallTime, lastUpdateTime;
+}
@@ -0,0 +1,13 @@
+package android.content.res;
+
+import java.io.InputStream;
+
+/**
+ * Shadow of {@code android.content.res.Resources}, which has no resources
+ */
+public class Resources {
+
+	public InputStream openRawResource(int id){
+		throw new UnsupportedOperationException("No resources in benchmark");
+	}
+}
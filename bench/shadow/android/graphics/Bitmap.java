@@ -0,0 +1,105 @@
+package android.graphics;
+
+import java.nio.Buffer;
+
+/**
+ * Shadow of {@code android.graphics.Bitmap}, which has dimensions but no pixels,
+ * and counts created bitmaps
+ */
+public final class Bitmap {
+
+	public enum Config { ALPHA_8, RGB_565, ARGB_4444, ARGB_8888 }
+
+	private static int created;
+
+	private int width, height;
+	private Config config;
+	private final int allocation;
+	private final boolean mutable;
+	private boolean recycled;
+	private int generation;
+
+	private Bitmap(int width, int height, Config config, boolean mutable){
+		this.width = width;
+		this.height = height;
+		this.config = config;
+		this.mutable = mutable;
+		this.allocation = width * height * bytesPerPixel(config);
+		synchronized (Bitmap.class){
+			created++;
+		}
+	}
+
+	/**
+	 * Returns number of bitmaps created so far, by any thread
+	 */
+	public static synchronized int createdCount(){
+		return created;
+	}
+
+	public static Bitmap createBitmap(int width, int height, Config config){
+		return new Bitmap(width, height, config, true);
+	}
+
+	public int getWidth(){
+		return width;
+	}
+
+	public int getHeight(){
+		return height;
+	}
+
+	public Config getConfig(){
+		return config;
+	}
+
+	public int getRowBytes(){
+		return width * bytesPerPixel(config);
+	}
+
+	public int getByteCount(){
+		return width * height * bytesPerPixel(config);
+	}
+
+	public int getAllocationByteCount(){
+		return allocation;
+	}
+
+	public int getGenerationId(){
+		return generation;
+	}
+
+	public boolean isMutable(){
+		return mutable;
+	}
+
+	public boolean isRecycled(){
+		return recycled;
+	}
+
+	public void recycle(){
+		recycled = true;
+	}
+
+	public void reconfigure(int width, int height, Config config){
+		if (width * height * bytesPerPixel(config) > allocation)
+			throw new IllegalArgumentException("Bitmap is too small");
+		this.width = width;
+		this.height = height;
+		this.config = config;
+		generation++;
+	}
+
+	public void copyPixelsFromBuffer(Buffer src){
+		generation++;
+		src.position(src.position() + getByteCount());
+	}
+
+	public void copyPixelsToBuffer(Buffer dst){
+		dst.position(dst.position() + getByteCount());
+	}
+
+	static private int bytesPerPixel(Config c){
+		return c == Config.ALPHA_8 ? 1 : (c == Config.ARGB_8888 ? 4 : 2);
+	}
+}
@@ -0,0 +1,71 @@
+package android.graphics;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.os.Build;
+
+/**
+ * Shadow of {@code android.graphics.BitmapFactory}, which decodes images of a test format: 
+ * width and height as two big-endian ints, see {@code encode()}. Other data is not an image. 
+ * Like the real decoder, it reuses {@code inBitmap}, throwing {@code IllegalArgumentException} 
+ * if the bitmap is too small, or before KitKat, if its dimensions differ or image is sampled. Benchmarks provide bitmaps by overriding decoding methods of containers
+ */
+public class BitmapFactory {
+
+	/** If decoder rejects every {@code inBitmap}, as the real one does for some formats */
+	public static volatile boolean rejectInBitmap;
+
+	public static class Options {
+		public boolean inJustDecodeBounds, inMutable, inScaled = true, inDither;
+		public int inSampleSize, inDensity, inTargetDensity, outWidth, outHeight;
+		public Bitmap inBitmap;
+		public Bitmap.Config inPreferredConfig;
+		public String outMimeType;
+	}
+
+	public static Bitmap decodeStream(InputStream in, Rect padding, Options opts){
+		if (opts == null)
+			opts = new Options();
+		int w, h;
+		try {
+			DataInputStream d = new DataInputStream(in);
+			w = d.readInt();
+			h = d.readInt();
+		} catch (IOException e) {
+			return null;
+		}
+		if (w <= 0 || h <= 0)
+			return null;
+		opts.outWidth = w;
+		opts.outHeight = h;
+		if (opts.inJustDecodeBounds)
+			return null;
+		int s = Math.max(1, opts.inSampleSize);
+		w = (w + s - 1) / s;
+		h = (h + s - 1) / s;
+		Bitmap.Config config = opts.inPreferredConfig != null ? opts.inPreferredConfig : Bitmap.Config.ARGB_8888;
+		Bitmap b = opts.inBitmap;
+		if (b != null){
+			if (rejectInBitmap || (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT 
+					&& (s > 1 || b.getWidth() != w || b.getHeight() != h || b.getConfig() != config)))
+				throw new IllegalArgumentException("Problem decoding into existing bitmap");
+			b.reconfigure(w, h, config);
+			return b;
+		}
+		return Bitmap.createBitmap(w, h, config);
+	}
+
+	public static Bitmap decodeStream(InputStream in){
+		return decodeStream(in, null, null);
+	}
+
+	/**
+	 * Returns data of an image of the given dimensions in the test format
+	 */
+	public static byte[] encode(int width, int height){
+		return new byte[]{ (byte) (width >>> 24), (byte) (width >>> 16), (byte) (width >>> 8), (byte) width,
+				(byte) (height >>> 24), (byte) (height >>> 16), (byte) (height >>> 8), (byte) height };
+	}
+}
@@ -0,0 +1,29 @@
+package android.graphics;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Shadow of {@code android.graphics.BitmapRegionDecoder}, which cannot decode images
+ */
+public final class BitmapRegionDecoder {
+
+	public static BitmapRegionDecoder newInstance(InputStream in, boolean isShareable) throws IOException {
+		throw new IOException("Image format is not supported");
+	}
+
+	public Bitmap decodeRegion(Rect rect, BitmapFactory.Options options){
+		return null;
+	}
+
+	public int getWidth(){
+		return 0;
+	}
+
+	public int getHeight(){
+		return 0;
+	}
+
+	public void recycle(){
+	}
+}
@@ -0,0 +1,95 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.Canvas}, which counts drawing operations
+ * and the area of drawn bitmaps instead of drawing
+ */
+public class Canvas {
+
+	/** Number of {@code drawBitmap()} calls */
+	public int bitmapDraws;
+
+	/** Number of other drawing calls */
+	public int otherDraws;
+
+	/** Total area of destination rects of drawn bitmaps, in px */
+	public long bitmapPixels;
+
+	/** The latest drawn bitmap and its destination rect */
+	public Bitmap lastBitmap;
+	public final Rect lastDst = new Rect();
+
+	/** Number of {@code drawRenderNode()} calls, also counted as other drawing calls */
+	public int nodeDraws;
+
+	/** If the canvas reports itself hardware accelerated */
+	public boolean hardwareAccelerated;
+
+	private int saveCount = 1;
+
+	public void drawBitmap(Bitmap b, Rect src, Rect dst, Paint p){
+		bitmapDraws++;
+		bitmapPixels += (long) dst.width() * dst.height();
+		lastBitmap = b;
+		lastDst.set(dst);
+	}
+
+	public void drawRenderNode(RenderNode node){
+		nodeDraws++;
+		otherDraws++;
+	}
+
+	public void drawRect(Rect r, Paint p){
+		otherDraws++;
+	}
+
+	public void drawRect(float l, float t, float r, float b, Paint p){
+		otherDraws++;
+	}
+
+	public int save(){
+		return saveCount++;
+	}
+
+	public void restore(){
+		saveCount--;
+	}
+
+	public void restoreToCount(int count){
+		saveCount = count;
+	}
+
+	public boolean clipRect(Rect r){
+		return true;
+	}
+
+	public boolean clipRect(int l, int t, int r, int b){
+		return true;
+	}
+
+	public void translate(float dx, float dy){
+	}
+
+	public void scale(float sx, float sy){
+	}
+
+	public void scale(float sx, float sy, float px, float py){
+	}
+
+	public boolean isHardwareAccelerated(){
+		return hardwareAccelerated;
+	}
+
+	/**
+	 * Resets counters
+	 */
+	public void reset(){
+		bitmapDraws = 0;
+		otherDraws = 0;
+		bitmapPixels = 0;
+		nodeDraws = 0;
+		lastBitmap = null;
+		lastDst.setEmpty();
+		saveCount = 1;
+	}
+}
@@ -0,0 +1,14 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.Color}
+ */
+public class Color {
+
+	public static final int BLACK = 0xFF000000;
+	public static final int TRANSPARENT = 0;
+
+	public static int alpha(int color){
+		return color >>> 24;
+	}
+}
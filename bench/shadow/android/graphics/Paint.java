@@ -0,0 +1,43 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.Paint}
+ */
+public class Paint {
+
+	public static final int FILTER_BITMAP_FLAG = 2;
+
+	private int flags;
+	private int color = 0xFF000000;
+
+	public Paint(){
+	}
+
+	public Paint(int flags){
+		this.flags = flags;
+	}
+
+	public void setAlpha(int a){
+		color = (color & 0x00FFFFFF) | ((a & 0xFF) << 24);
+	}
+
+	public int getAlpha(){
+		return color >>> 24;
+	}
+
+	public void setColor(int color){
+		this.color = color;
+	}
+
+	public int getColor(){
+		return color;
+	}
+
+	public void setFilterBitmap(boolean filter){
+		flags = filter ? flags | FILTER_BITMAP_FLAG : flags & ~FILTER_BITMAP_FLAG;
+	}
+
+	public boolean isFilterBitmap(){
+		return (flags & FILTER_BITMAP_FLAG) != 0;
+	}
+}
@@ -0,0 +1,7 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.RecordingCanvas}
+ */
+public class RecordingCanvas extends Canvas {
+}
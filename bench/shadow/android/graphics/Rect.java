@@ -0,0 +1,117 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.Rect}
+ */
+public final class Rect {
+
+	public int left, top, right, bottom;
+
+	public Rect(){
+	}
+
+	public Rect(int left, int top, int right, int bottom){
+		set(left, top, right, bottom);
+	}
+
+	public Rect(Rect r){
+		set(r);
+	}
+
+	public int width(){
+		return right - left;
+	}
+
+	public int height(){
+		return bottom - top;
+	}
+
+	public boolean isEmpty(){
+		return left >= right || top >= bottom;
+	}
+
+	public void set(int left, int top, int right, int bottom){
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	public void set(Rect r){
+		set(r.left, r.top, r.right, r.bottom);
+	}
+
+	public void setEmpty(){
+		set(0, 0, 0, 0);
+	}
+
+	public void offset(int dx, int dy){
+		left += dx;
+		right += dx;
+		top += dy;
+		bottom += dy;
+	}
+
+	public void union(int l, int t, int r, int b){
+		if (l >= r || t >= b)
+			return;
+		if (isEmpty()){
+			set(l, t, r, b);
+		} else {
+			left = Math.min(left, l);
+			top = Math.min(top, t);
+			right = Math.max(right, r);
+			bottom = Math.max(bottom, b);
+		}
+	}
+
+	public void union(Rect r){
+		union(r.left, r.top, r.right, r.bottom);
+	}
+
+	public boolean intersect(int l, int t, int r, int b){
+		if (left < r && l < right && top < b && t < bottom){
+			left = Math.max(left, l);
+			top = Math.max(top, t);
+			right = Math.min(right, r);
+			bottom = Math.min(bottom, b);
+			return true;
+		}
+		return false;
+	}
+
+	public boolean intersect(Rect r){
+		return intersect(r.left, r.top, r.right, r.bottom);
+	}
+
+	public boolean contains(Rect r){
+		return left < right && top < bottom
+				&& left <= r.left && top <= r.top && right >= r.right && bottom >= r.bottom;
+	}
+
+	public boolean intersects(int l, int t, int r, int b){
+		return left < r && l < right && top < b && t < bottom;
+	}
+
+	public static boolean intersects(Rect a, Rect b){
+		return a.intersects(b.left, b.top, b.right, b.bottom);
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if (!(o instanceof Rect))
+			return false;
+		Rect r = (Rect) o;
+		return left == r.left && top == r.top && right == r.right && bottom == r.bottom;
+	}
+
+	@Override
+	public int hashCode(){
+		return ((left * 31 + top) * 31 + right) * 31 + bottom;
+	}
+
+	@Override
+	public String toString(){
+		return "Rect(" + left + ", " + top + " - " + right + ", " + bottom + ")";
+	}
+}
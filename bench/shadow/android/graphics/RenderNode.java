@@ -0,0 +1,44 @@
+package android.graphics;
+
+/**
+ * Shadow of {@code android.graphics.RenderNode}, which counts recordings of display lists
+ */
+public final class RenderNode {
+
+	/** Number of {@code beginRecording()} calls of all nodes */
+	public static int recordings;
+
+	public RenderNode(String name){
+	}
+
+	public boolean setPosition(int left, int top, int right, int bottom){
+		return true;
+	}
+
+	public RecordingCanvas beginRecording(){
+		recordings++;
+		return new RecordingCanvas();
+	}
+
+	public void endRecording(){
+	}
+
+	public boolean setAlpha(float alpha){
+		return true;
+	}
+
+	public boolean setTranslationX(float x){
+		return true;
+	}
+
+	public boolean setClipToBounds(boolean clip){
+		return true;
+	}
+
+	public boolean setUseCompositingLayer(boolean force, Paint paint){
+		return true;
+	}
+
+	public void discardDisplayList(){
+	}
+}
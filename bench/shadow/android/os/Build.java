@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * Shadow of {@code android.os.Build}. Reports Ice Cream Sandwich by default, so that 
+ * the view does not use {@code Choreographer}. Benchmarks and tests may set another version
+ */
+public class Build {
+
+	public static class VERSION {
+		public static final int SDK_INT_DEFAULT = 14;
+		public static int SDK_INT = SDK_INT_DEFAULT;
+	}
+
+	public static class VERSION_CODES {
+		public static final int HONEYCOMB = 11;
+		public static final int ICE_CREAM_SANDWICH = 14;
+		public static final int JELLY_BEAN = 16;
+		public static final int JELLY_BEAN_MR1 = 17;
+		public static final int JELLY_BEAN_MR2 = 18;
+		public static final int KITKAT = 19;
+		public static final int Q = 29;
+	}
+}
@@ -0,0 +1,32 @@
+package android.os;
+
+/**
+ * Shadow of {@code android.os.Handler}, posting to the main looper
+ */
+public class Handler {
+
+	public Handler(){
+	}
+
+	public Handler(Looper looper){
+	}
+
+	public boolean post(Runnable r){
+		Looper.getMainLooper().post(r, SystemClock.uptimeMillis());
+		return true;
+	}
+
+	public boolean postDelayed(Runnable r, long delay){
+		Looper.getMainLooper().post(r, SystemClock.uptimeMillis() + delay);
+		return true;
+	}
+
+	public boolean postAtTime(Runnable r, long time){
+		Looper.getMainLooper().post(r, time);
+		return true;
+	}
+
+	public void removeCallbacks(Runnable r){
+		Looper.getMainLooper().remove(r);
+	}
+}
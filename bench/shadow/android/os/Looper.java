@@ -0,0 +1,82 @@
+package android.os;
+
+import java.util.PriorityQueue;
+
+/**
+ * Shadow of {@code android.os.Looper}. There is a single main looper, whose queue
+ * is executed by the benchmark on the calling thread
+ */
+public final class Looper {
+
+	static private final Looper main = new Looper();
+
+	private final PriorityQueue<Task> queue = new PriorityQueue<Task>();
+	private long seq = 0;
+
+	public static Looper getMainLooper(){
+		return main;
+	}
+
+	public static Looper myLooper(){
+		return main;
+	}
+
+	synchronized void post(Runnable r, long time){
+		queue.add(new Task(r, time, seq++));
+	}
+
+	synchronized void remove(Runnable r){
+		java.util.Iterator<Task> it = queue.iterator();
+		while (it.hasNext()){
+			if (it.next().runnable == r)
+				it.remove();
+		}
+	}
+
+	/**
+	 * Runs all tasks of the main queue due by current {@code SystemClock.uptimeMillis()}
+	 *
+	 * @return	number of tasks run
+	 */
+	public static int runDue(){
+		int n = 0;
+		while (true){
+			Task t;
+			synchronized (main){
+				t = main.queue.peek();
+				if (t == null || t.time > SystemClock.uptimeMillis())
+					return n;
+				main.queue.poll();
+			}
+			t.runnable.run();
+			n++;
+		}
+	}
+
+	/**
+	 * Removes all pending tasks of the main queue
+	 */
+	public static void clear(){
+		synchronized (main){
+			main.queue.clear();
+		}
+	}
+
+	static private class Task implements Comparable<Task> {
+		final Runnable runnable;
+		final long time, seq;
+
+		Task(Runnable runnable, long time, long seq){
+			this.runnable = runnable;
+			this.time = time;
+			this.seq = seq;
+		}
+
+		@Override
+		public int compareTo(Task o){
+			if (time != o.time)
+				return time < o.time ? -1 : 1;
+			return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,9 @@
+package android.os;
+
+/**
+ * Shadow of {@code android.os.Message}
+ */
+public final class Message {
+	public int what, arg1, arg2;
+	public Object obj;
+}
@@ -0,0 +1,62 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shadow of {@code android.os.Parcel}, which keeps written values in memory
+ * and reads them back in the same order
+ */
+public final class Parcel {
+
+	private final List<Object> values = new ArrayList<Object>();
+	private int position;
+
+	private Parcel(){
+	}
+
+	public static Parcel obtain(){
+		return new Parcel();
+	}
+
+	public void recycle(){
+		values.clear();
+		position = 0;
+	}
+
+	public void setDataPosition(int pos){
+		position = pos;
+	}
+
+	public void writeString(String s){
+		values.add(s);
+	}
+
+	public String readString(){
+		return (String) values.get(position++);
+	}
+
+	public void writeInt(int i){
+		values.add(i);
+	}
+
+	public int readInt(){
+		return (Integer) values.get(position++);
+	}
+
+	public void writeLong(long l){
+		values.add(l);
+	}
+
+	public long readLong(){
+		return (Long) values.get(position++);
+	}
+
+	public void writeFloat(float f){
+		values.add(f);
+	}
+
+	public float readFloat(){
+		return (Float) values.get(position++);
+	}
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Shadow of {@code android.os.Parcelable}
+ */
+public interface Parcelable {
+
+	int describeContents();
+
+	void writeToParcel(Parcel dest, int flags);
+
+	public interface Creator<T> {
+
+		T createFromParcel(Parcel source);
+
+		T[] newArray(int size);
+	}
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * Shadow of {@code android.os.SystemClock}. Time is controlled by the benchmark
+ */
+public final class SystemClock {
+
+	static private long uptime = 0;
+
+	public static long uptimeMillis(){
+		return uptime;
+	}
+
+	/**
+	 * Sets uptime returned by {@code uptimeMillis()}
+	 */
+	public static void setUptimeMillis(long time){
+		uptime = time;
+	}
+}
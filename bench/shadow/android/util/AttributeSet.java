@@ -0,0 +1,7 @@
+package android.util;
+
+/**
+ * Shadow of {@code android.util.AttributeSet}
+ */
+public interface AttributeSet {
+}
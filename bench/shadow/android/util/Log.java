@@ -0,0 +1,21 @@
+package android.util;
+
+/**
+ * Shadow of {@code android.util.Log}, which prints warnings to stderr
+ */
+public final class Log {
+
+	public static int d(String tag, String msg){
+		return 0;
+	}
+
+	public static int w(String tag, String msg){
+		System.err.println(tag + ": " + msg);
+		return 0;
+	}
+
+	public static int w(String tag, String msg, Throwable t){
+		System.err.println(tag + ": " + msg + " " + t);
+		return 0;
+	}
+}
@@ -0,0 +1,41 @@
+package android.view;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Shadow of {@code android.view.AbsSavedState}. Super state is not written to parcel
+ */
+public abstract class AbsSavedState implements Parcelable {
+
+	public static final AbsSavedState EMPTY_STATE = new AbsSavedState(){};
+
+	private final Parcelable superState;
+
+	private AbsSavedState(){
+		superState = null;
+	}
+
+	protected AbsSavedState(Parcelable superState){
+		if (superState == null)
+			throw new IllegalArgumentException("superState must not be null");
+		this.superState = superState != EMPTY_STATE ? superState : null;
+	}
+
+	protected AbsSavedState(Parcel source){
+		superState = EMPTY_STATE;
+	}
+
+	public final Parcelable getSuperState(){
+		return superState;
+	}
+
+	@Override
+	public int describeContents(){
+		return 0;
+	}
+
+	@Override
+	public void writeToParcel(Parcel dest, int flags){
+	}
+}
@@ -0,0 +1,68 @@
+package android.view;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Shadow of {@code android.view.Choreographer}. Frame callbacks are posted to the main looper
+ * at the next vsync, which comes {@code FRAME_INTERVAL} ms of uptime after the callback was posted.
+ * Vsync time passed to callbacks is the uptime the callback was due in ns, since on Android 
+ * vsync time and uptime are measured by the same monotonic clock. It does not depend 
+ * on when the looper runs the callback
+ */
+public final class Choreographer {
+
+	public interface FrameCallback {
+		void doFrame(long frameTimeNanos);
+	}
+
+	public static final long FRAME_INTERVAL = 16;
+
+	static private final Choreographer instance = new Choreographer();
+
+	private final Handler handler = new Handler();
+	private final Map<FrameCallback, Runnable> posted = new HashMap<FrameCallback, Runnable>();
+	private long frames;
+
+	public static Choreographer getInstance(){
+		return instance;
+	}
+
+	public void postFrameCallback(final FrameCallback c){
+		final long due = SystemClock.uptimeMillis() + FRAME_INTERVAL;
+		Runnable r = new Runnable(){
+			@Override
+			public void run(){
+				posted.remove(c);
+				frames++;
+				c.doFrame(vsyncTime(due));
+			}
+		};
+		removeFrameCallback(c);
+		posted.put(c, r);
+		handler.postAtTime(r, due);
+	}
+
+	public void removeFrameCallback(FrameCallback c){
+		Runnable r = posted.remove(c);
+		if (r != null)
+			handler.removeCallbacks(r);
+	}
+
+	/**
+	 * Returns number of frame callbacks run
+	 */
+	public long getFrameCount(){
+		return frames;
+	}
+
+	/**
+	 * Returns vsync time of the given uptime
+	 */
+	public static long vsyncTime(long uptimeMillis){
+		return uptimeMillis * 1000000L;
+	}
+}
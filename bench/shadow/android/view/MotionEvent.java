@@ -0,0 +1,96 @@
+package android.view;
+
+/**
+ * Shadow of {@code android.view.MotionEvent} with a single pointer
+ */
+public final class MotionEvent {
+
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MOVE = 2;
+	public static final int ACTION_CANCEL = 3;
+
+	private int action;
+	private long eventTime;
+	private float x, y;
+	private final float[] historicalX = new float[64];
+	private final long[] historicalTime = new long[64];
+	private int historySize;
+
+	public static MotionEvent obtain(long downTime, long eventTime, int action, float x, float y, int metaState){
+		MotionEvent e = new MotionEvent();
+		e.set(eventTime, action, x, y);
+		return e;
+	}
+
+	/**
+	 * Reinitializes event, so that replay does not allocate per event
+	 */
+	public MotionEvent set(long eventTime, int action, float x, float y){
+		this.eventTime = eventTime;
+		this.action = action;
+		this.x = x;
+		this.y = y;
+		historySize = 0;
+		return this;
+	}
+
+	/**
+	 * Moves the current sample to history and sets a new one
+	 */
+	public void addBatch(long eventTime, float x, float y, float pressure, float size, int metaState){
+		historicalX[historySize] = this.x;
+		historicalTime[historySize] = this.eventTime;
+		historySize++;
+		this.eventTime = eventTime;
+		this.x = x;
+		this.y = y;
+	}
+
+	public int getAction(){
+		return action;
+	}
+
+	public int getActionMasked(){
+		return action;
+	}
+
+	public long getEventTime(){
+		return eventTime;
+	}
+
+	public float getX(){
+		return x;
+	}
+
+	public float getY(){
+		return y;
+	}
+
+	public float getRawX(){
+		return x;
+	}
+
+	public float getRawY(){
+		return y;
+	}
+
+	public int getHistorySize(){
+		return historySize;
+	}
+
+	public float getHistoricalX(int pos){
+		if (pos >= historySize)
+			throw new IndexOutOfBoundsException();
+		return historicalX[pos];
+	}
+
+	public long getHistoricalEventTime(int pos){
+		if (pos >= historySize)
+			throw new IndexOutOfBoundsException();
+		return historicalTime[pos];
+	}
+
+	public void recycle(){
+	}
+}
@@ -0,0 +1,142 @@
+package android.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+
+/**
+ * Shadow of {@code android.view.View}, which counts invalidations
+ */
+public class View {
+
+	public static final int LAYER_TYPE_NONE = 0;
+	public static final int LAYER_TYPE_SOFTWARE = 1;
+	public static final int LAYER_TYPE_HARDWARE = 2;
+
+	public static class BaseSavedState extends AbsSavedState {
+
+		public BaseSavedState(Parcelable superState){
+			super(superState);
+		}
+
+		public BaseSavedState(Parcel source){
+			super(source);
+		}
+	}
+
+	/** Number of {@code invalidate()} calls */
+	public int invalidations;
+
+	/** Union of invalidated areas since the latest {@code resetInvalidations()} */
+	public final Rect dirty = new Rect();
+
+	private final Handler handler = new Handler();
+	private int width, height;
+	private int layerType = LAYER_TYPE_NONE;
+
+	public View(Context context){
+	}
+
+	public View(Context context, AttributeSet attrs){
+	}
+
+	public View(Context context, AttributeSet attrs, int defStyleAttr){
+	}
+
+	public boolean onTouchEvent(MotionEvent e){
+		return false;
+	}
+
+	protected void onSizeChanged(int w, int h, int oldw, int oldh){
+	}
+
+	protected void onAttachedToWindow(){
+	}
+
+	protected void onDetachedFromWindow(){
+	}
+
+	protected void onDraw(Canvas c){
+	}
+
+	protected Parcelable onSaveInstanceState(){
+		return AbsSavedState.EMPTY_STATE;
+	}
+
+	protected void onRestoreInstanceState(Parcelable state){
+	}
+
+	public void invalidate(){
+		invalidations++;
+		dirty.set(0, 0, width, height);
+	}
+
+	public void invalidate(Rect r){
+		invalidations++;
+		dirty.union(r);
+	}
+
+	public void invalidate(int l, int t, int r, int b){
+		invalidations++;
+		dirty.union(l, t, r, b);
+	}
+
+	/**
+	 * Resets counter and area of invalidations
+	 */
+	public void resetInvalidations(){
+		invalidations = 0;
+		dirty.setEmpty();
+	}
+
+	/**
+	 * Lays out the view with the given size
+	 */
+	public void layout(int w, int h){
+		int ow = width, oh = height;
+		width = w;
+		height = h;
+		onSizeChanged(w, h, ow, oh);
+	}
+
+	public int getWidth(){
+		return width;
+	}
+
+	public int getHeight(){
+		return height;
+	}
+
+	public Context getContext(){
+		return null;
+	}
+
+	public boolean post(Runnable r){
+		return handler.post(r);
+	}
+
+	public boolean postDelayed(Runnable r, long delay){
+		return handler.postDelayed(r, delay);
+	}
+
+	public boolean removeCallbacks(Runnable r){
+		handler.removeCallbacks(r);
+		return true;
+	}
+
+	public void setLayerType(int type, android.graphics.Paint paint){
+		layerType = type;
+	}
+
+	public int getLayerType(){
+		return layerType;
+	}
+
+	public boolean isHardwareAccelerated(){
+		return false;
+	}
+}
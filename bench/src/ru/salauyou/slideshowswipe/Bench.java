@@ -0,0 +1,309 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+
+/**
+ * Minimal benchmark harness. Every benchmark is warmed up and then measured in several
+ * iterations, each lasting at least {@code ITERATION_TIME} ms. Results are reported as
+ * ns/op (the best iteration) and bytes allocated per op by the benchmark thread.
+ * Benchmarks may be run in several forked JVMs, reporting the median of the forks.
+ *
+ * Results can be saved as a baseline and compared against it: a benchmark regresses
+ * if it allocates more than {@code ALLOC_TOLERANCE} bytes/op above the baseline, which
+ * does not depend on the machine. Times are noisy, so by default a benchmark which became 
+ * slower by more than {@code TIME_TOLERANCE} is reported without failing the comparison. 
+ * If times are gated, it regresses. Times are compared only if the baseline was saved 
+ * on the same machine
+ */
+final class Bench {
+
+	/**
+	 * Operation to benchmark
+	 */
+	interface Op {
+
+		/**
+		 * Runs the operation once
+		 *
+		 * @param i		sequence number of the call
+		 */
+		void run(int i);
+	}
+
+
+
+	static final long WARMUP_TIME = 500;
+	static final long ITERATION_TIME = 200;
+	static final int ITERATIONS = 5;
+	static final int FORKS = 3;
+	static final double TIME_TOLERANCE = 0.5;
+	static final double ALLOC_TOLERANCE = 8;
+
+
+
+	/**
+	 * Result of a single benchmark
+	 */
+	static final class Result {
+
+		final String name;
+		final double nsPerOp;
+		final double bytesPerOp; // negative if allocation cannot be measured
+
+		Result(String name, double nsPerOp, double bytesPerOp){
+			this.name = name;
+			this.nsPerOp = nsPerOp;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		@Override
+		public String toString(){
+			return String.format(Locale.US, "%-28s %12.1f ns/op %12s B/op", name, nsPerOp,
+					bytesPerOp < 0 ? "n/a" : String.format(Locale.US, "%.1f", bytesPerOp));
+		}
+	}
+
+
+
+	/**
+	 * Creates harness running only benchmarks whose names start with the filter
+	 *
+	 * @param filter	prefix of benchmark names, or {@code null} to run all
+	 * @param gateTime	if slower benchmarks are regressions
+	 */
+	Bench(String filter, boolean gateTime){
+		this.filter = filter;
+		this.gateTime = gateTime;
+	}
+
+
+
+	/**
+	 * Runs the main class in the given number of JVMs one after another, with the same
+	 * JVM options and filter, and takes the median of their results, so that a fork 
+	 * which was compiled or scheduled unluckily does not decide the result. 
+	 * The main class must accept {@code --forks 0 --filter prefix --save file}
+	 */
+	void fork(Class<?> main, int forks) throws IOException, InterruptedException {
+		List<Properties> runs = new ArrayList<Properties>();
+		for (int k = 0; k < forks; k++){
+			File file = File.createTempFile("bench", ".properties");
+			try {
+				List<String> cmd = new ArrayList<String>();
+				cmd.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+				cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+				cmd.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), main.getName(), 
+						"--forks", "0", "--save", file.getPath()));
+				if (filter != null)
+					cmd.addAll(Arrays.asList("--filter", filter));
+				System.out.println("# fork " + (k + 1) + " of " + forks);
+				int status = new ProcessBuilder(cmd).inheritIO().start().waitFor();
+				if (status != 0)
+					throw new IOException("Fork exited with status " + status);
+				runs.add(load(file.getPath()));
+			} finally {
+				file.delete();
+			}
+		}
+
+		List<String> names = new ArrayList<String>();
+		for (String key : runs.get(0).stringPropertyNames())
+			if (key.endsWith(".ns"))
+				names.add(key.substring(0, key.length() - 3));
+		Collections.sort(names);
+		System.out.println("# median of " + forks + " forks");
+		for (String name : names){
+			Result r = new Result(name, median(runs, name + ".ns"), median(runs, name + ".bytes"));
+			results.add(r);
+			System.out.println(r);
+		}
+	}
+
+
+
+	/**
+	 * Measures the operation and prints the result
+	 */
+	void run(String name, Op op){
+		if (filter != null && !name.startsWith(filter))
+			return;
+		int seq = 0;
+		long n = 1;
+
+		// warm up and calibrate number of ops per iteration
+		long end = System.nanoTime() + WARMUP_TIME * 1000000L;
+		while (System.nanoTime() < end){
+			long t = System.nanoTime();
+			for (long j = 0; j < n; j++)
+				op.run(seq++);
+			t = System.nanoTime() - t;
+			if (t < ITERATION_TIME * 1000000L / 4)
+				n *= 2;
+		}
+
+		double best = Double.MAX_VALUE;
+		long ops = 0, bytes = 0;
+		for (int k = 0; k < ITERATIONS; k++){
+			long a = allocatedBytes();
+			long t = System.nanoTime();
+			for (long j = 0; j < n; j++)
+				op.run(seq++);
+			t = System.nanoTime() - t;
+			bytes += allocatedBytes() - a;
+			ops += n;
+			best = Math.min(best, (double) t / n);
+		}
+
+		Result r = new Result(name, best, allocationSupported() ? (double) bytes / ops : -1);
+		results.add(r);
+		System.out.println(r);
+	}
+
+
+
+	/**
+	 * Saves results as a baseline
+	 */
+	void save(String file) throws IOException {
+		Properties p = new Properties();
+		p.setProperty(MACHINE, machine());
+		for (Result r : results){
+			p.setProperty(r.name + ".ns", String.format(Locale.US, "%.1f", r.nsPerOp));
+			p.setProperty(r.name + ".bytes", String.format(Locale.US, "%.1f", r.bytesPerOp));
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			p.store(out, "SlideShowSwipe benchmark baseline");
+		} finally {
+			out.close();
+		}
+	}
+
+
+
+	/**
+	 * Compares results with a baseline and prints regressions
+	 *
+	 * @return	number of regressed benchmarks
+	 */
+	int compare(String file) throws IOException {
+		Properties p = load(file);
+		boolean times = machine().equals(p.getProperty(MACHINE));
+		if (!times)
+			System.out.println("Baseline was saved on " + p.getProperty(MACHINE) + ", comparing allocations only");
+		int regressions = 0;
+		for (Result r : results){
+			String ns = p.getProperty(r.name + ".ns");
+			String bytes = p.getProperty(r.name + ".bytes");
+			if (ns == null)
+				continue;
+			double nsBase = Double.parseDouble(ns);
+			double bytesBase = Double.parseDouble(bytes);
+			if (times && r.nsPerOp > nsBase * (1 + TIME_TOLERANCE)){
+				System.out.println(String.format(Locale.US, "%s %s: %.1f ns/op, baseline %.1f",
+						gateTime ? "REGRESSION" : "SLOWER (not gated)", r.name, r.nsPerOp, nsBase));
+				if (gateTime)
+					regressions++;
+			}
+			if (bytesBase >= 0 && r.bytesPerOp > bytesBase + ALLOC_TOLERANCE){
+				System.out.println(String.format(Locale.US, "REGRESSION %s: %.1f B/op, baseline %.1f",
+						r.name, r.bytesPerOp, bytesBase));
+				regressions++;
+			}
+		}
+		return regressions;
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private String MACHINE = "machine";
+
+	final private String filter;
+	final private boolean gateTime;
+	final private List<Result> results = new ArrayList<Result>();
+
+
+
+	static Properties load(String file) throws IOException {
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			p.load(in);
+		} finally {
+			in.close();
+		}
+		return p;
+	}
+
+
+
+	/**
+	 * Returns median of the value over runs which have it
+	 */
+	static double median(List<Properties> runs, String key){
+		double[] v = new double[runs.size()];
+		int n = 0;
+		for (Properties p : runs){
+			String s = p.getProperty(key);
+			if (s != null)
+				v[n++] = Double.parseDouble(s);
+		}
+		Arrays.sort(v, 0, n);
+		return n % 2 == 1 ? v[n / 2] : (v[n / 2 - 1] + v[n / 2]) / 2;
+	}
+
+
+
+	/**
+	 * Returns number of bytes allocated by the current thread, if supported by JVM
+	 */
+	static long allocatedBytes(){
+		ThreadMXBean b = ManagementFactory.getThreadMXBean();
+		if (b instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) b).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+
+
+
+	/**
+	 * Returns description of the machine and JVM, which times depend on
+	 */
+	static String machine(){
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			host = "unknown host";
+		}
+		return host + ", " + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", " 
+				+ Runtime.getRuntime().availableProcessors() + " cpus, " 
+				+ System.getProperty("java.vm.name") + " " + System.getProperty("java.version");
+	}
+
+
+
+	static private boolean allocationSupported(){
+		ThreadMXBean b = ManagementFactory.getThreadMXBean();
+		return b instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) b).isThreadAllocatedMemorySupported();
+	}
+
+}
@@ -0,0 +1,375 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.view.MotionEvent;
+
+
+/**
+ * Replays traces of touch events and slideshow commands against {@code SlideShowSwipe}
+ * frame by frame with a fake clock, and counts work of every frame: drawing calls,
+ * invalidations, calls to the bitmap container and bytes allocated. Counts do not depend
+ * on speed of the machine, so they are compared with a baseline exactly, except of
+ * allocations, which are allowed {@code Bench.ALLOC_TOLERANCE} bytes per frame above it.
+ *
+ * Trace is a text file with a command per line, times are in ms from start of the trace:
+ * <pre>
+ * # comment
+ * down 0 540 960              touch down at x, y
+ * move 16 520 960             touch move
+ * up 120 300 960              touch up
+ * slideshow 200 1500 500      start slideshow with period and transition in ms
+ * pause 5000                  pause slideshow
+ * end 8000                    time the replay stops at
+ * </pre>
+ *
+ * Usage: {@code Replay [--save file] [--compare file] [trace...]}. By default, all
+ * {@code *.trace} files of {@code bench/traces} are replayed. With {@code --compare},
+ * exits with status 1 if any trace regressed
+ */
+public final class Replay {
+
+	static final String TRACES = "bench/traces";
+	static final int WARMUP = 3;
+
+
+
+	public static void main(String[] args) throws IOException {
+		String save = null, compare = null;
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("--save"))
+				save = args[++i];
+			else if (args[i].equals("--compare"))
+				compare = args[++i];
+			else if (args[i].startsWith("--"))
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			else
+				files.add(new File(args[i]));
+		}
+		if (files.isEmpty()){
+			File[] a = new File(TRACES).listFiles();
+			if (a != null){
+				Arrays.sort(a);
+				for (File f : a){
+					if (f.getName().endsWith(".trace"))
+						files.add(f);
+				}
+			}
+		}
+
+		List<Report> reports = new ArrayList<Report>();
+		for (File f : files){
+			List<Event> trace = read(f);
+			String name = f.getName().replaceFirst("\\.trace$", "");
+			for (int i = 0; i < WARMUP; i++)
+				replay(name, trace);
+			Report r = replay(name, trace);
+			reports.add(r);
+			System.out.println(r);
+		}
+
+		if (save != null)
+			save(reports, save);
+		if (compare != null && compare(reports, compare) > 0)
+			System.exit(1);
+		System.exit(0);
+	}
+
+
+
+	/**
+	 * Command of a trace
+	 */
+	static final class Event {
+
+		final String command;
+		final long time;
+		final float[] args;
+
+		Event(String command, long time, float[] args){
+			this.command = command;
+			this.time = time;
+			this.args = args;
+		}
+	}
+
+
+
+	/**
+	 * Work counted during replay of a trace
+	 */
+	static final class Report {
+
+		final String name;
+		int frames, drawnFrames;
+		long bitmapDraws, otherDraws, invalidations, containerCalls, bytes;
+		long maxBitmapDraws, maxBytes; // per frame
+		final long[] nanos; // time of every frame
+
+		Report(String name, int frames){
+			this.name = name;
+			this.nanos = new long[frames];
+		}
+
+		/**
+		 * Returns time of frame at the given percentile
+		 */
+		long percentile(double p){
+			long[] a = Arrays.copyOf(nanos, frames);
+			Arrays.sort(a);
+			return a.length == 0 ? 0 : a[Math.min(a.length - 1, (int) (p * a.length))];
+		}
+
+		/**
+		 * Returns counters compared with baseline
+		 */
+		long[] counters(){
+			return new long[]{ drawnFrames, bitmapDraws, otherDraws, invalidations, containerCalls, maxBitmapDraws };
+		}
+
+		@Override
+		public String toString(){
+			return String.format(Locale.US, "%-16s %5d frames %5d drawn %6d bitmaps %5d other %5d invalidations"
+					+ " %5d container %8.1f B/frame (max %d) %8d ns p99",
+					name, frames, drawnFrames, bitmapDraws, otherDraws, invalidations, containerCalls,
+					(double) bytes / frames, maxBytes, percentile(0.99));
+		}
+	}
+
+	static final String[] COUNTERS = { "drawn", "bitmaps", "other", "invalidations", "container", "maxBitmaps" };
+
+
+
+	/**
+	 * Container which counts calls
+	 */
+	static final class CountingContainer implements SlideShowSwipe.BitmapContainer {
+
+		final SlideShowSwipe.BitmapContainer container;
+		int calls;
+
+		CountingContainer(SlideShowSwipe.BitmapContainer container){
+			this.container = container;
+		}
+
+		@Override
+		public Bitmap getBitmapNext() {
+			calls++;
+			return container.getBitmapNext();
+		}
+
+		@Override
+		public Bitmap getBitmapPrevious() {
+			calls++;
+			return container.getBitmapPrevious();
+		}
+
+		@Override
+		public Bitmap getBitmapCurrent() {
+			calls++;
+			return container.getBitmapCurrent();
+		}
+
+		@Override
+		public void undoGetBitmap() {
+			calls++;
+			container.undoGetBitmap();
+		}
+	}
+
+
+
+	/**
+	 * Replays trace against a new view
+	 */
+	static Report replay(String name, List<Event> trace){
+		SlideShowBenchmarks.FakeClock clock = new SlideShowBenchmarks.FakeClock();
+		CountingContainer container = new CountingContainer(
+				new SlideShowBenchmarks.ArrayContainer(SlideShowBenchmarks.bitmaps()));
+		SlideShowSwipe v = SlideShowBenchmarks.view(container, clock, true);
+		MotionEvent e = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+		Canvas c = new Canvas();
+		long start = clock.millis();
+		long end = trace.isEmpty() ? 0 : trace.get(trace.size() - 1).time;
+		Report r = new Report(name, (int) (end / SlideShowBenchmarks.FRAME) + 1);
+		long overhead = allocationOverhead();
+		int next = 0;
+		container.calls = 0;
+		v.resetInvalidations();
+
+		for (long t = 0; t <= end; t += SlideShowBenchmarks.FRAME){
+			long a = Bench.allocatedBytes();
+			long ns = System.nanoTime();
+
+			// events which came since the previous frame
+			for (; next < trace.size() && trace.get(next).time <= t; next++){
+				Event ev = trace.get(next);
+				if (ev.command.equals("down"))
+					v.onTouchEvent(e.set(start + ev.time, MotionEvent.ACTION_DOWN, ev.args[0], ev.args[1]));
+				else if (ev.command.equals("move")){
+					// moves which came during the same frame are batched into one event, as on device
+					e.set(start + ev.time, MotionEvent.ACTION_MOVE, ev.args[0], ev.args[1]);
+					for (Event b; next + 1 < trace.size() && (b = trace.get(next + 1)).time <= t
+							&& b.command.equals("move"); next++)
+						e.addBatch(start + b.time, b.args[0], b.args[1], 1, 1, 0);
+					v.onTouchEvent(e);
+				}
+				else if (ev.command.equals("up"))
+					v.onTouchEvent(e.set(start + ev.time, MotionEvent.ACTION_UP, ev.args[0], ev.args[1]));
+				else if (ev.command.equals("slideshow")){
+					v.setSlideShowPeriod((long) ev.args[0]);
+					v.setSlideShowTransition((long) ev.args[1]);
+					v.startSlideShow();
+				} else if (ev.command.equals("pause"))
+					v.pauseSlideShow();
+			}
+
+			// timers and scheduled frames, then drawing if anything was invalidated
+			Looper.runDue();
+			int invalidations = v.invalidations;
+			if (invalidations > 0){
+				c.reset();
+				v.onDraw(c);
+				v.resetInvalidations();
+				r.drawnFrames++;
+				r.bitmapDraws += c.bitmapDraws;
+				r.otherDraws += c.otherDraws;
+				r.maxBitmapDraws = Math.max(r.maxBitmapDraws, c.bitmapDraws);
+			}
+
+			r.nanos[r.frames] = System.nanoTime() - ns;
+			long bytes = Math.max(0, Bench.allocatedBytes() - a - overhead);
+			r.bytes += bytes;
+			r.maxBytes = Math.max(r.maxBytes, bytes);
+			r.invalidations += invalidations;
+			r.frames++;
+			clock.advance(SlideShowBenchmarks.FRAME);
+		}
+		r.containerCalls = container.calls;
+		SlideShowBenchmarks.dispose(v);
+		return r;
+	}
+
+
+
+	/**
+	 * Returns number of bytes allocated by measuring allocations itself
+	 */
+	static long allocationOverhead(){
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 16; i++){
+			long a = Bench.allocatedBytes();
+			min = Math.min(min, Bench.allocatedBytes() - a);
+		}
+		return min;
+	}
+
+
+
+	/**
+	 * Reads trace file
+	 *
+	 * @throws IOException	if file cannot be read or has invalid command
+	 */
+	static List<Event> read(File f) throws IOException {
+		List<Event> events = new ArrayList<Event>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+		try {
+			String line;
+			int n = 0;
+			while ((line = in.readLine()) != null){
+				n++;
+				int h = line.indexOf('#');
+				String[] s = (h >= 0 ? line.substring(0, h) : line).trim().split("\\s+");
+				if (s[0].isEmpty())
+					continue;
+				try {
+					float[] args = new float[s.length - 2];
+					for (int i = 0; i < args.length; i++)
+						args[i] = Float.parseFloat(s[i + 2]);
+					int expected = s[0].equals("pause") || s[0].equals("end") ? 0 : 2;
+					if (args.length != expected || !"down move up slideshow pause end".contains(s[0]))
+						throw new IOException(f + ":" + n + ": invalid command: " + line);
+					events.add(new Event(s[0], Long.parseLong(s[1]), args));
+				} catch (RuntimeException e) {
+					throw new IOException(f + ":" + n + ": invalid command: " + line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return events;
+	}
+
+
+
+	/**
+	 * Saves reports as a baseline
+	 */
+	static void save(List<Report> reports, String file) throws IOException {
+		Properties p = new Properties();
+		for (Report r : reports){
+			long[] c = r.counters();
+			for (int i = 0; i < c.length; i++)
+				p.setProperty(r.name + "." + COUNTERS[i], Long.toString(c[i]));
+			p.setProperty(r.name + ".bytes", Long.toString(r.bytes));
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			p.store(out, "SlideShowSwipe replay baseline");
+		} finally {
+			out.close();
+		}
+	}
+
+
+
+	/**
+	 * Compares reports with a baseline and prints regressions
+	 *
+	 * @return	number of regressed values
+	 */
+	static int compare(List<Report> reports, String file) throws IOException {
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			p.load(in);
+		} finally {
+			in.close();
+		}
+		int regressions = 0;
+		for (Report r : reports){
+			long[] c = r.counters();
+			for (int i = 0; i < c.length; i++){
+				String base = p.getProperty(r.name + "." + COUNTERS[i]);
+				if (base != null && c[i] > Long.parseLong(base)){
+					System.out.println("REGRESSION " + r.name + ": " + COUNTERS[i] + " " + c[i] + ", baseline " + base);
+					regressions++;
+				}
+			}
+			String base = p.getProperty(r.name + ".bytes");
+			if (base != null && r.bytes > Long.parseLong(base) + Bench.ALLOC_TOLERANCE * r.frames){
+				System.out.println("REGRESSION " + r.name + ": bytes " + r.bytes + ", baseline " + base);
+				regressions++;
+			}
+		}
+		return regressions;
+	}
+
+}
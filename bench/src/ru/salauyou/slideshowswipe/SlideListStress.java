@@ -0,0 +1,410 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.graphics.Bitmap;
+import android.os.Looper;
+
+
+/**
+ * Stress test of {@link SlideList} and {@link PrefetchingBitmapContainer}: background threads
+ * insert, remove and move slides at high rate, one by one and in batches, while the main thread
+ * navigates them the way the view does. Checks that navigation stays consistent and never stalls,
+ * and that a batch is applied to the view at once.
+ *
+ * Usage: {@code SlideListStress [seconds]}. Exits with status 1 if a check failed
+ * or a navigation call took longer than {@code STALL} ms
+ */
+public final class SlideListStress {
+
+	static final int WRITERS = 3;
+	static final int SIZE = 200;
+	static final long STALL = 50;
+
+
+
+	public static void main(String[] args) throws Exception {
+		long duration = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+		boolean ok = stressList(duration);
+		ok &= stressContainer(duration);
+		ok &= checkBatch();
+		System.exit(ok ? 0 : 1);
+	}
+
+
+
+	/**
+	 * Navigates list by a cursor while it is modified
+	 */
+	static boolean stressList(long duration) throws InterruptedException {
+		final SlideList<Integer> list = new SlideList<Integer>();
+		final AtomicInteger ids = new AtomicInteger();
+		for (int i = 0; i < SIZE / 2; i++)
+			list.add(ids.getAndIncrement());
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicLong writes = new AtomicLong();
+		Thread[] writers = new Thread[WRITERS];
+		for (int w = 0; w < WRITERS; w++){
+			final Random rnd = new Random(w);
+			writers[w] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					while (!stop.get()){
+						modify(list, ids, rnd);
+						writes.incrementAndGet();
+					}
+				}
+			});
+			writers[w].start();
+		}
+
+		SlideList.Cursor<Integer> cursor = list.cursor();
+		Histogram latency = new Histogram();
+		Random rnd = new Random(42);
+		long reads = 0, errors = 0;
+		long end = System.currentTimeMillis() + duration;
+		while (System.currentTimeMillis() < end){
+			SlideList.Snapshot<Integer> before = list.snapshot();
+			long t = System.nanoTime();
+			Integer e;
+			switch (rnd.nextInt(4)){
+			case 0:
+				e = cursor.next();
+				break;
+			case 1:
+				e = cursor.previous();
+				break;
+			case 2:
+				cursor.undo();
+				e = cursor.get();
+				break;
+			default:
+				e = cursor.current();
+			}
+			latency.record(System.nanoTime() - t);
+			SlideList.Snapshot<Integer> after = list.snapshot();
+			reads++;
+
+			// returned element must have been inserted
+			if (e != null && e >= ids.get())
+				errors += report("unknown element " + e);
+			if (before == after && e == null && after.size() > 0)
+				errors += report("null element of non-empty list");
+			// without modification, previous() returns back after next()
+			if (before == after && e != null){
+				Integer n = cursor.next(), p = cursor.previous();
+				if (list.snapshot() == after && n != null && !e.equals(p))
+					errors += report("next/previous mismatch " + e + " " + p);
+			}
+			// element present before and after the check is not lost by the cursor
+			Integer c = cursor.current();
+			SlideList.Snapshot<Integer> last = list.snapshot();
+			if (e != null && after.indexOf(e) >= 0 && last.indexOf(e) >= 0 && !e.equals(c))
+				errors += report("cursor moved from present element " + e + " to " + c);
+		}
+		stop.set(true);
+		for (Thread w : writers)
+			w.join();
+
+		System.out.println("list: " + reads + " navigations, " + writes.get() + " modifications, " 
+				+ errors + " errors");
+		System.out.println("  latency ns: " + latency);
+		return errors == 0 && latency.max() < STALL * 1000000L;
+	}
+
+
+
+	/**
+	 * Navigates container the way the view does, while slides are modified
+	 */
+	static boolean stressContainer(long duration) throws InterruptedException {
+		final PrefetchingBitmapContainer container = new PrefetchingBitmapContainer(){
+			@Override
+			protected Bitmap decode(BitmapSource source, int width, int height){
+				return Bitmap.createBitmap(width / 8, height / 8, Bitmap.Config.ARGB_8888);
+			}
+		};
+		final AtomicInteger ids = new AtomicInteger();
+		for (int i = 0; i < SIZE / 2; i++)
+			container.add(new Source(ids.getAndIncrement()));
+		container.setTargetSize(1080, 1920);
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicLong writes = new AtomicLong();
+		Thread[] writers = new Thread[WRITERS];
+		for (int w = 0; w < WRITERS; w++){
+			final Random rnd = new Random(w);
+			writers[w] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					while (!stop.get()){
+						SlideList.Snapshot<BitmapSource> s = container.getSources();
+						int n = s.size(), op = rnd.nextInt(4);
+						try {
+							if (op == 3)
+								modifyBatch(container, ids, rnd);
+							else if (op == 0 && n < SIZE)
+								container.add(rnd.nextInt(n + 1), new Source(ids.getAndIncrement()));
+							else if (op == 1 && n > 0)
+								container.remove(s.get(rnd.nextInt(n)));
+							else if (n > 1)
+								container.move(rnd.nextInt(n), rnd.nextInt(n));
+						} catch (IndexOutOfBoundsException e) {
+							// list was changed by other writer
+						}
+						writes.incrementAndGet();
+						Thread.yield();
+					}
+				}
+			});
+			writers[w].start();
+		}
+
+		Histogram latency = new Histogram();
+		Random rnd = new Random(42);
+		long reads = 0, loaded = 0;
+		Object keyPrec = null;
+		long end = System.currentTimeMillis() + duration;
+		while (System.currentTimeMillis() < end){
+			long t = System.nanoTime();
+			Bitmap b;
+			switch (rnd.nextInt(4)){
+			case 0:
+				b = container.getBitmapNext();
+				break;
+			case 1:
+				b = container.getBitmapPrevious();
+				break;
+			case 2:
+				container.undoGetBitmap();
+				b = null;
+				break;
+			default:
+				b = container.getBitmapCurrent();
+			}
+			Object key = container.getKeyCurrent();
+			container.onVisibleSlidesChange(key, null, keyPrec);
+			keyPrec = key;
+			Looper.runDue();
+			latency.record(System.nanoTime() - t);
+			reads++;
+			if (b != null)
+				loaded++;
+		}
+		stop.set(true);
+		for (Thread w : writers)
+			w.join();
+		container.shutdown();
+		Looper.clear();
+
+		System.out.println("container: " + reads + " navigations (" + loaded + " decoded), " 
+				+ writes.get() + " modifications");
+		System.out.println("  latency ns: " + latency);
+		System.out.println("  decodes: " + container.getScheduler());
+		return latency.max() < STALL * 1000000L;
+	}
+
+
+
+	/**
+	 * Checks that a batch of modifications of container makes the view
+	 * request the current bitmap once and redraw once. Decoding is held during the check,
+	 * so that delivery of a decoded slide does not redraw the view once more
+	 */
+	static boolean checkBatch() throws InterruptedException {
+		final AtomicInteger currents = new AtomicInteger();
+		final Decoding decoding = new Decoding();
+		PrefetchingBitmapContainer container = new PrefetchingBitmapContainer(){
+			@Override
+			protected Bitmap decode(BitmapSource source, int width, int height){
+				if (!decoding.enter())
+					return null;
+				try {
+					return Bitmap.createBitmap(width / 8, height / 8, Bitmap.Config.ARGB_8888);
+				} finally {
+					decoding.exit();
+				}
+			}
+
+			@Override
+			public Bitmap getBitmapCurrent(){
+				currents.incrementAndGet();
+				return super.getBitmapCurrent();
+			}
+		};
+		for (int i = 0; i < 10; i++)
+			container.add(new Source(i));
+		container.setTargetSize(SlideShowBenchmarks.WIDTH, SlideShowBenchmarks.HEIGHT);
+		while (container.getBitmapCurrent() == null){
+			Looper.runDue();
+			Thread.sleep(1);
+		}
+		Looper.runDue(); // posted updates of container, which are coalesced, must not be cleared with the queue
+		SlideShowSwipe v = SlideShowBenchmarks.view(container, new SlideShowBenchmarks.FakeClock(), true);
+		Object removed = container.getKeyCurrent();
+		decoding.hold();
+		Thread.sleep(STALL); // let decoded slides be posted
+		Looper.runDue();
+		currents.set(0);
+		v.resetInvalidations();
+
+		SlideList.Editor<BitmapSource> e = container.edit();
+		e.remove(removed);
+		for (int i = 0; i < 20; i++)
+			e.add(i % e.size(), new Source(100 + i));
+		e.move(0, e.size() - 1);
+		e.commit();
+		Looper.runDue();
+
+		int errors = 0;
+		if (currents.get() != 1)
+			errors += report("batch: current bitmap requested " + currents.get() + " times");
+		if (v.invalidations != 1)
+			errors += report("batch: view invalidated " + v.invalidations + " times");
+		if (removed.equals(container.getKeyCurrent()))
+			errors += report("batch: removed slide is current");
+		decoding.release();
+		SlideShowBenchmarks.dispose(v);
+		container.shutdown();
+
+		System.out.println("batch: " + errors + " errors");
+		return errors == 0;
+	}
+
+
+
+	/**
+	 * Gate of decoding threads, which can hold decodes not started yet 
+	 * and wait for decodes in progress to finish
+	 */
+	static final class Decoding {
+
+		private int running;
+		private boolean held;
+
+		/**
+		 * Waits while decoding is held
+		 *
+		 * @return	if decoding may start, or {@code false} if the thread was interrupted
+		 */
+		synchronized boolean enter(){
+			try {
+				while (held)
+					wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			running++;
+			return true;
+		}
+
+		synchronized void exit(){
+			running--;
+			notifyAll();
+		}
+
+		/**
+		 * Holds decodes not started yet and waits for decodes in progress
+		 */
+		synchronized void hold() throws InterruptedException {
+			held = true;
+			while (running > 0)
+				wait();
+		}
+
+		synchronized void release(){
+			held = false;
+			notifyAll();
+		}
+	}
+
+
+
+	/**
+	 * Inserts, removes or moves a random element, keeping the list size around {@code SIZE / 2}
+	 */
+	static void modify(SlideList<Integer> list, AtomicInteger ids, Random rnd){
+		int n = list.size();
+		try {
+			switch (rnd.nextInt(3)){
+			case 0:
+				if (n < SIZE)
+					list.add(rnd.nextInt(n + 1), ids.getAndIncrement());
+				break;
+			case 1:
+				if (n > 0)
+					list.remove(rnd.nextInt(n));
+				break;
+			default:
+				if (n > 1)
+					list.move(rnd.nextInt(n), rnd.nextInt(n));
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// list was changed by other writer
+		}
+	}
+
+
+
+	/**
+	 * Inserts and removes several slides of container in one batch
+	 */
+	static void modifyBatch(PrefetchingBitmapContainer container, AtomicInteger ids, Random rnd){
+		SlideList.Editor<BitmapSource> e = container.edit();
+		for (int i = rnd.nextInt(8); i >= 0; i--){
+			int n = e.size();
+			if (n < SIZE && (n == 0 || rnd.nextBoolean()))
+				e.add(rnd.nextInt(n + 1), new Source(ids.getAndIncrement()));
+			else
+				e.remove(rnd.nextInt(n));
+		}
+		e.commit();
+	}
+
+
+
+	static int report(String error){
+		System.out.println("ERROR: " + error);
+		return 1;
+	}
+
+
+
+	/**
+	 * Source without image data, since decoding is replaced
+	 */
+	static final class Source implements BitmapSource {
+
+		final int id;
+
+		Source(int id){
+			this.id = id;
+		}
+
+		@Override
+		public String getId() {
+			return "stress:" + id;
+		}
+
+		@Override
+		public InputStream open() throws IOException {
+			throw new IOException("No image data");
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Source && ((Source) o).id == id;
+		}
+
+		@Override
+		public int hashCode(){
+			return id;
+		}
+	}
+
+}
@@ -0,0 +1,442 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+
+/**
+ * Benchmarks of per-frame work of {@code SlideShowSwipe} and of bitmap containers,
+ * running on desktop JVM against shadow Android classes. Frames are timed by a fake
+ * clock advanced by 16 ms per frame, so every run performs the same work.
+ *
+ * Usage: {@code SlideShowBenchmarks [--filter prefix] [--forks n] [--save file] [--compare file] [--gate-time]}.
+ * Benchmarks run in {@code Bench.FORKS} forked JVMs by default, {@code --forks 0} runs them 
+ * in this JVM. With {@code --compare}, exits with status 1 if any benchmark regressed
+ */
+public final class SlideShowBenchmarks {
+
+	static final int WIDTH = 1080;
+	static final int HEIGHT = 1920;
+	static final long FRAME = 16;
+
+
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String filter = null, save = null, compare = null;
+		int forks = Bench.FORKS;
+		boolean gateTime = false;
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("--filter"))
+				filter = args[++i];
+			else if (args[i].equals("--forks"))
+				forks = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--gate-time"))
+				gateTime = true;
+			else if (args[i].equals("--save"))
+				save = args[++i];
+			else if (args[i].equals("--compare"))
+				compare = args[++i];
+			else
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+		}
+
+		Bench bench = new Bench(filter, gateTime);
+		if (forks > 0)
+			bench.fork(SlideShowBenchmarks.class, forks);
+		else {
+			calculateRectDst(bench);
+			frameIdle(bench);
+			frameSwipe(bench);
+			frameFling(bench);
+			frameSlideShow(bench);
+			cache(bench);
+			container(bench);
+			System.out.println("sink: " + sink);
+		}
+
+		if (save != null)
+			bench.save(save);
+		if (compare != null && bench.compare(compare) > 0)
+			System.exit(1);
+		System.exit(0);
+	}
+
+
+
+	/* ======================== Benchmarks ============================ */
+
+	static void calculateRectDst(Bench bench){
+		final Rect d = new Rect(0, 0, WIDTH, HEIGHT);
+		final Bitmap[] b = bitmaps();
+		bench.run("calculateRectDst", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				sink += SlideShowSwipe.calculateRectDst(b[i & 3], d).left;
+			}
+		});
+		final Rect out = new Rect();
+		bench.run("calculateRectDst.out", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				SlideShowSwipe.ScaleMode m = (i & 4) == 0 ? SlideShowSwipe.ScaleMode.FIT_CENTER : SlideShowSwipe.ScaleMode.CENTER_CROP;
+				sink += SlideShowSwipe.calculateRectDst(b[i & 3], d, m, out).left;
+			}
+		});
+	}
+
+
+
+	/**
+	 * Frames of a slide which is neither moved nor changed
+	 */
+	static void frameIdle(Bench bench){
+		final FakeClock clock = new FakeClock();
+		final SlideShowSwipe v = view(new ArrayContainer(bitmaps()), clock, true);
+		final Canvas c = new Canvas();
+		bench.run("frame.idle", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				v.onDraw(c);
+			}
+		});
+		dispose(v);
+	}
+
+
+
+	/**
+	 * Frames of a slide dragged back and forth, so that neighbour slides
+	 * are requested and cancelled
+	 */
+	static void frameSwipe(Bench bench){
+		final FakeClock clock = new FakeClock();
+		final SlideShowSwipe v = view(new ArrayContainer(bitmaps()), clock, true);
+		final Canvas c = new Canvas();
+		final MotionEvent e = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, WIDTH / 2, HEIGHT / 2, 0);
+		v.onTouchEvent(e);
+		bench.run("frame.swipe", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				float x = WIDTH / 2 + 0.6f * WIDTH * (float) Math.sin(i * 0.05);
+				v.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_MOVE, x, HEIGHT / 2));
+				v.onDraw(c);
+			}
+		});
+		dispose(v);
+	}
+
+
+
+	/**
+	 * Cycles of a short swipe followed by frames of fling motion
+	 */
+	static void frameFling(Bench bench){
+		final FakeClock clock = new FakeClock();
+		final SlideShowSwipe v = view(new ArrayContainer(bitmaps()), clock, true);
+		final Canvas c = new Canvas();
+		final MotionEvent e = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, WIDTH / 2, HEIGHT / 2, 0);
+		bench.run("frame.fling", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				int phase = i & 63;
+				float x = WIDTH * 0.8f - phase * WIDTH * 0.1f;
+				if (phase == 0)
+					v.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_DOWN, x, HEIGHT / 2));
+				else if (phase < 5)
+					v.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_MOVE, x, HEIGHT / 2));
+				else if (phase == 5)
+					v.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_UP, x, HEIGHT / 2));
+				v.onDraw(c);
+			}
+		});
+		dispose(v);
+	}
+
+
+
+	/**
+	 * Frames of running slideshow: transitions driven by slide timer and idle frames
+	 */
+	static void frameSlideShow(Bench bench){
+		final FakeClock clock = new FakeClock();
+		final SlideShowSwipe v = view(new ArrayContainer(bitmaps()), clock, false);
+		final Canvas c = new Canvas();
+		bench.run("frame.slideshow", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				Looper.runDue();
+				v.onDraw(c);
+			}
+		});
+		dispose(v);
+		
+		final SlideShowSwipe vm = view(new ArrayContainer(bitmaps()), clock, false);
+		final SlideShowMetrics m = new SlideShowMetrics();
+		vm.setMetrics(m);
+		bench.run("frame.slideshow.metrics", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				Looper.runDue();
+				vm.onDraw(c);
+			}
+		});
+		dispose(vm);
+		sink += m.getFrameCount();
+		
+		final SlideShowSwipe vk = view(new ArrayContainer(bitmaps()), clock, false);
+		vk.setSlideShowTransition(SlideTransition.KEN_BURNS, Easing.EASE_IN_OUT);
+		bench.run("frame.slideshow.kenburns", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				clock.advance(FRAME);
+				Looper.runDue();
+				vk.onDraw(c);
+			}
+		});
+		dispose(vk);
+	}
+
+
+
+	/**
+	 * Slides cycled through cache which fits only part of them, so that
+	 * evicted bitmaps are reused through the pool
+	 */
+	static void cache(Bench bench){
+		final int bytes = WIDTH * HEIGHT * 4;
+		final BitmapPool pool = new BitmapPool(bytes * 2);
+		final BitmapCache cache = new BitmapCache(bytes * 5, pool);
+		final Object[] keys = new Object[12];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new Source(i);
+		bench.run("cache.cycle", new Bench.Op(){
+			@Override
+			public void run(int i) {
+				Object k = keys[i % keys.length];
+				Bitmap b = cache.get(k, WIDTH, HEIGHT);
+				if (b == null){
+					b = pool.get(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888, false);
+					if (b == null)
+						b = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+					cache.put(k, WIDTH, HEIGHT, b);
+				}
+				sink += b.getWidth();
+			}
+		});
+	}
+
+
+
+	/**
+	 * Navigation through prefetching container, by itself and together with the work 
+	 * posted to the main looper: update of prefetch window and delivery of decoded slides. 
+	 * Decoding itself is not measured: it produces blank bitmaps on decoder threads
+	 */
+	static void container(Bench bench){
+		final PrefetchingBitmapContainer c = new PrefetchingBitmapContainer(){
+			@Override
+			protected Bitmap decode(BitmapSource source, int width, int height){
+				return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			}
+		};
+		for (int i = 0; i < 12; i++)
+			c.add(new Source(i));
+		c.setTargetSize(WIDTH, HEIGHT);
+		Looper.runDue();
+		
+		// calls made by the view during a frame, prefetch window is updated after the frame
+		bench.run("container.navigate", new Navigation(c, false));
+		
+		// frames changing slide, including update of prefetch window and delivery of slides
+		bench.run("container.frame", new Navigation(c, true));
+		c.shutdown();
+		Looper.clear();
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	/**
+	 * Navigation back and forth through container, as made by the view
+	 */
+	static final class Navigation implements Bench.Op {
+
+		final PrefetchingBitmapContainer c;
+		final boolean frames;
+		Object keyPrec;
+
+		Navigation(PrefetchingBitmapContainer c, boolean frames){
+			this.c = c;
+			this.frames = frames;
+		}
+
+		@Override
+		public void run(int i) {
+			Bitmap b = (i & 1) == 0 ? c.getBitmapNext() : c.getBitmapPrevious();
+			if ((i & 7) == 3)
+				c.undoGetBitmap();
+			Object key = c.getKeyCurrent();
+			c.onVisibleSlidesChange(key, null, keyPrec);
+			keyPrec = key;
+			if (frames)
+				Looper.runDue();
+			if (b != null)
+				sink += b.getWidth();
+		}
+	}
+
+
+
+	static long sink;
+
+
+
+	/**
+	 * Creates sized view showing the current slide of the container
+	 */
+	static SlideShowSwipe view(SlideShowSwipe.BitmapContainer container, FrameClock clock, boolean paused){
+		Looper.clear();
+		SlideShowSwipe v = new SlideShowSwipe(null);
+		v.setFrameClock(clock);
+		v.layout(WIDTH, HEIGHT);
+		v.setBitmapContainer(container);
+		v.restoreCurrent(paused);
+		v.onDraw(new Canvas());
+		return v;
+	}
+
+
+
+	static void dispose(SlideShowSwipe v){
+		v.onDetachedFromWindow();
+		Looper.clear();
+	}
+
+
+
+	/**
+	 * Landscape and portrait bitmaps, larger and smaller than the view
+	 */
+	static Bitmap[] bitmaps(){
+		return new Bitmap[]{
+				Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888),
+				Bitmap.createBitmap(900, 1600, Bitmap.Config.ARGB_8888),
+				Bitmap.createBitmap(4000, 3000, Bitmap.Config.ARGB_8888),
+				Bitmap.createBitmap(480, 640, Bitmap.Config.ARGB_8888)};
+	}
+
+
+
+	/**
+	 * Frame clock and uptime advanced by the benchmark
+	 */
+	static final class FakeClock implements FrameClock {
+
+		private long millis = 1000;
+
+		FakeClock(){
+			SystemClock.setUptimeMillis(millis);
+		}
+
+		void advance(long ms){
+			millis += ms;
+			SystemClock.setUptimeMillis(millis);
+		}
+
+		long millis(){
+			return millis;
+		}
+
+		@Override
+		public long frameTimeNanos() {
+			return millis * 1000000L;
+		}
+	}
+
+
+
+	/**
+	 * Synchronous container cycling through a fixed array of bitmaps
+	 */
+	static final class ArrayContainer implements SlideShowSwipe.BitmapContainer {
+
+		final Bitmap[] bitmaps;
+		int pos, posPrec;
+
+		ArrayContainer(Bitmap[] bitmaps){
+			this.bitmaps = bitmaps;
+		}
+
+		@Override
+		public Bitmap getBitmapNext() {
+			posPrec = pos;
+			pos = (pos + 1) % bitmaps.length;
+			return bitmaps[pos];
+		}
+
+		@Override
+		public Bitmap getBitmapPrevious() {
+			posPrec = pos;
+			pos = (pos + bitmaps.length - 1) % bitmaps.length;
+			return bitmaps[pos];
+		}
+
+		@Override
+		public Bitmap getBitmapCurrent() {
+			return bitmaps[pos];
+		}
+
+		@Override
+		public void undoGetBitmap() {
+			pos = posPrec;
+		}
+	}
+
+
+
+	/**
+	 * Source without image data, since decoding is replaced in benchmarks
+	 */
+	static final class Source implements BitmapSource {
+
+		final int id;
+
+		Source(int id){
+			this.id = id;
+		}
+
+		@Override
+		public String getId() {
+			return "bench:" + id;
+		}
+
+		@Override
+		public InputStream open() throws IOException {
+			throw new IOException("No image data");
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Source && ((Source) o).id == id;
+		}
+
+		@Override
+		public int hashCode(){
+			return id;
+		}
+	}
+
+}
@@ -0,0 +1,292 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+
+
+/**
+ * Cache of decoded bitmaps limited by total size in bytes, which is counted by allocation
+ * size of bitmaps, since bitmaps reused from the pool may be larger than images. Bitmaps are keyed by slide key
+ * and target size they were decoded for. When the budget is exceeded, least recently shown
+ * bitmaps are evicted first, except of pinned ones, which are kept until unpinned.
+ * If the cache has {@link BitmapPool}, evicted bitmaps are put into it for reuse,
+ * so bitmaps obtained from such cache must not be referenced after their key is unpinned.
+ *
+ * All methods are thread safe
+ */
+public class BitmapCache {
+
+
+	/**
+	 * Creates cache without bitmap pool
+	 *
+	 * @param maxSize	budget in bytes
+	 * @throws IllegalArgumentException		if {@code maxSize <= 0}
+	 */
+	public BitmapCache(int maxSize) throws IllegalArgumentException {
+		this(maxSize, null);
+	}
+
+
+
+	/**
+	 * Creates cache
+	 *
+	 * @param maxSize	budget in bytes
+	 * @param pool		pool to put evicted bitmaps into, or {@code null}
+	 * @throws IllegalArgumentException		if {@code maxSize <= 0}
+	 */
+	public BitmapCache(int maxSize, BitmapPool pool) throws IllegalArgumentException {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Cache size must be positive");
+		this.maxSize = maxSize;
+		this.pool = pool;
+	}
+
+
+
+	/**
+	 * Returns pool which evicted bitmaps are put into, or {@code null}
+	 */
+	public BitmapPool getBitmapPool(){
+		return pool;
+	}
+
+
+
+	/**
+	 * Returns default cache budget, which is 1/8 of maximum heap size
+	 */
+	static public int defaultMaxSize(){
+		return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+	}
+
+
+
+	/**
+	 * Returns cached bitmap and marks it as the most recently shown
+	 *
+	 * @return	bitmap or {@code null} if there is no bitmap for given key and size
+	 */
+	public synchronized Bitmap get(Object key, int width, int height){
+		Bitmap b = entries.get(probe.set(key, width, height));
+		if (b != null)
+			hitCount++;
+		else
+			missCount++;
+		return b;
+	}
+
+
+
+	/**
+	 * Checks if bitmap for given key and size is cached, not affecting
+	 * recency of the bitmap and hit/miss counters
+	 */
+	public synchronized boolean contains(Object key, int width, int height){
+		return entries.containsKey(probe.set(key, width, height));
+	}
+
+
+
+	/**
+	 * Puts bitmap into cache and evicts least recently shown unpinned bitmaps
+	 * if the budget is exceeded
+	 *
+	 * @throws NullPointerException
+	 */
+	public synchronized void put(Object key, int width, int height, Bitmap b) throws NullPointerException {
+		if (key == null || b == null)
+			throw new NullPointerException("Key or bitmap is null");
+		Bitmap old = entries.put(new Key(key, width, height), b);
+		size += BitmapPool.allocationSize(b);
+		if (old != null){
+			size -= BitmapPool.allocationSize(old);
+			if (old != b && !pins.containsKey(key))
+				entryRemoved(key, old);  // replaced bitmap of pinned key may be still displayed
+		}
+		trimToSize();
+	}
+
+
+
+	/**
+	 * Pins all bitmaps of the given key, so they are not evicted until
+	 * the key is unpinned. Calls of {@code pin()} and {@code unpin()} must be paired
+	 */
+	public synchronized void pin(Object key){
+		Integer c = pins.get(key);
+		pins.put(key, c == null ? 1 : c + 1);
+	}
+
+
+
+	/**
+	 * Unpins key pinned by {@code pin()}
+	 */
+	public synchronized void unpin(Object key){
+		Integer c = pins.get(key);
+		if (c == null)
+			return;
+		if (c == 1)
+			pins.remove(key);
+		else
+			pins.put(key, c - 1);
+		trimToSize();
+	}
+
+
+
+	/**
+	 * Removes all unpinned bitmaps
+	 */
+	public synchronized void evictAll(){
+		Iterator<Map.Entry<Key, Bitmap>> it = entries.entrySet().iterator();
+		while (it.hasNext()){
+			Map.Entry<Key, Bitmap> e = it.next();
+			if (!pins.containsKey(e.getKey().key)){
+				it.remove();
+				size -= BitmapPool.allocationSize(e.getValue());
+				evictionCount++;
+				entryRemoved(e.getKey().key, e.getValue());
+			}
+		}
+	}
+
+
+
+	/**
+	 * Returns total size of cached bitmaps in bytes
+	 */
+	public synchronized int size(){
+		return size;
+	}
+
+
+
+	/**
+	 * Returns budget of the cache in bytes
+	 */
+	public synchronized int maxSize(){
+		return maxSize;
+	}
+
+
+
+	/**
+	 * Returns number of {@code get()} calls which returned a bitmap
+	 */
+	public synchronized int hitCount(){
+		return hitCount;
+	}
+
+
+
+	/**
+	 * Returns number of {@code get()} calls which returned {@code null}
+	 */
+	public synchronized int missCount(){
+		return missCount;
+	}
+
+
+
+	/**
+	 * Returns number of bitmaps evicted to fit the budget
+	 */
+	public synchronized int evictionCount(){
+		return evictionCount;
+	}
+
+
+
+	@Override
+	public synchronized String toString(){
+		return String.format("BitmapCache[size=%d, maxSize=%d, hits=%d, misses=%d, evictions=%d]",
+				size, maxSize, hitCount, missCount, evictionCount);
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private LinkedHashMap<Key, Bitmap> entries = new LinkedHashMap<Key, Bitmap>(16, 0.75f, true);
+	final private Map<Object, Integer> pins = new HashMap<Object, Integer>();
+	final private Key probe = new Key(null, 0, 0); // reusable key for lookups
+	final private BitmapPool pool;
+
+	private int size;
+	private int maxSize;
+	private int hitCount, missCount, evictionCount;
+
+
+
+	/**
+	 * Invoked under the cache lock when unpinned bitmap was evicted or replaced.
+	 * Bitmap is not referenced by the cache anymore. By default, puts bitmap into pool
+	 */
+	protected void entryRemoved(Object key, Bitmap b){
+		if (pool != null)
+			pool.put(b);
+	}
+
+
+
+	/**
+	 * Evicts least recently shown unpinned bitmaps until total size fits the budget
+	 */
+	private void trimToSize(){
+		if (size <= maxSize)
+			return;
+		Iterator<Map.Entry<Key, Bitmap>> it = entries.entrySet().iterator();
+		while (size > maxSize && it.hasNext()){
+			Map.Entry<Key, Bitmap> e = it.next();
+			if (pins.containsKey(e.getKey().key))
+				continue;
+			it.remove();
+			size -= BitmapPool.allocationSize(e.getValue());
+			evictionCount++;
+			entryRemoved(e.getKey().key, e.getValue());
+		}
+	}
+
+
+
+	/**
+	 * Composite key of slide key and target size
+	 */
+	static private class Key {
+
+		Object key;
+		int width, height;
+
+		Key(Object key, int width, int height){
+			set(key, width, height);
+		}
+
+		Key set(Object key, int width, int height){
+			this.key = key;
+			this.width = width;
+			this.height = height;
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return k.width == width && k.height == height && k.key.equals(key);
+		}
+
+		@Override
+		public int hashCode(){
+			return (key.hashCode() * 31 + width) * 31 + height;
+		}
+	}
+
+}
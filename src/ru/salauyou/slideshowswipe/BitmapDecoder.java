@@ -0,0 +1,243 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+
+
+/**
+ * Helper methods to decode bitmaps from {@link BitmapSource}s downsampled to the size
+ * they are displayed at
+ */
+public class BitmapDecoder {
+
+	private BitmapDecoder(){}
+
+
+
+	/**
+	 * Returns the largest power-of-two sample size, such that the image sampled with it
+	 * still covers the area it occupies when fit into the target rectangle
+	 *
+	 * @param srcWidth		width of the image
+	 * @param srcHeight		height of the image
+	 * @param reqWidth		width of the target rectangle. If {@code <= 0}, 1 is returned
+	 * @param reqHeight		height of the target rectangle. If {@code <= 0}, 1 is returned
+	 */
+	static public int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight){
+		if (srcWidth <= 0 || srcHeight <= 0 || reqWidth <= 0 || reqHeight <= 0)
+			return 1;
+
+		// image fit into the target is scaled down by the larger of ratios
+		float ratio = Math.max((float)srcWidth / (float)reqWidth, (float)srcHeight / (float)reqHeight);
+		int sample = 1;
+		while (sample * 2 <= ratio)
+			sample *= 2;
+		return sample;
+	}
+
+
+
+	/**
+	 * Decodes bitmap from the source, downsampled to fit into the target rectangle.
+	 * First, only image bounds are decoded to choose sample size, then the image itself
+	 *
+	 * @param source	source to decode from
+	 * @param reqWidth	width of the target rectangle. If {@code <= 0}, bitmap is decoded in original size
+	 * @param reqHeight	height of the target rectangle. If {@code <= 0}, bitmap is decoded in original size
+	 * @return			decoded bitmap or {@code null} if image cannot be decoded
+	 * @throws IOException	if source cannot be read
+	 */
+	static public Bitmap decode(BitmapSource source, int reqWidth, int reqHeight) throws IOException {
+		return decode(source, reqWidth, reqHeight, null);
+	}
+
+
+
+	/**
+	 * Decodes bitmap from the source, downsampled to fit into the target rectangle, reusing 
+	 * memory of a suitable bitmap from the pool. Decoded bitmap is mutable, so it can be 
+	 * put into the pool when not needed anymore
+	 *
+	 * @param pool	pool to take bitmap to reuse from, or {@code null}
+	 * @see #decode(BitmapSource, int, int)
+	 */
+	static public Bitmap decode(BitmapSource source, int reqWidth, int reqHeight, BitmapPool pool) 
+			throws IOException {
+		BitmapFactory.Options opts = new BitmapFactory.Options();
+		if ((reqWidth > 0 && reqHeight > 0) || pool != null){
+			opts.inJustDecodeBounds = true;
+			decodeStream(source, opts);
+			opts.inJustDecodeBounds = false;
+			opts.inSampleSize = calculateInSampleSize(opts.outWidth, opts.outHeight, reqWidth, reqHeight);
+		}
+		if (pool == null)
+			return decodeStream(source, opts);
+
+		opts.inMutable = true;
+		opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		int s = opts.inSampleSize;
+		opts.inBitmap = pool.get((opts.outWidth + s - 1) / s, (opts.outHeight + s - 1) / s, 
+				opts.inPreferredConfig, s > 1);
+		try {
+			return decodeStream(source, opts);
+		} catch (IllegalArgumentException e) {
+			// pooled bitmap turned out to be unsuitable, it is still good for other images
+			if (opts.inBitmap != null)
+				pool.put(opts.inBitmap);
+			opts.inBitmap = null;
+			return decodeStream(source, opts);
+		}
+	}
+
+
+
+	/**
+	 * Calculates region of the image which is visible in the target rectangle, when the image 
+	 * is scaled to it in the given mode and aligned to center. The region is the whole image, 
+	 * unless the image overflows the rectangle in {@code CENTER_CROP} or {@code FIT_WIDTH} mode
+	 *
+	 * @param srcWidth		width of the image
+	 * @param srcHeight		height of the image
+	 * @param reqWidth		width of the target rectangle
+	 * @param reqHeight		height of the target rectangle
+	 * @param mode			scale mode
+	 * @param region		rectangle to store the result in, in coordinates of the image
+	 * @return				{@code region}
+	 */
+	static public Rect calculateVisibleRegion(int srcWidth, int srcHeight, int reqWidth, int reqHeight, 
+			SlideShowSwipe.ScaleMode mode, Rect region){
+		region.set(0, 0, srcWidth, srcHeight);
+		if (srcWidth <= 0 || srcHeight <= 0 || reqWidth <= 0 || reqHeight <= 0 
+				|| mode == SlideShowSwipe.ScaleMode.FIT_CENTER)
+			return region;
+		float sx = (float)reqWidth / (float)srcWidth, sy = (float)reqHeight / (float)srcHeight;
+		float scale = mode == SlideShowSwipe.ScaleMode.CENTER_CROP ? Math.max(sx, sy) : sx;
+		int w = Math.min(srcWidth, Math.round(reqWidth / scale));
+		int h = Math.min(srcHeight, Math.round(reqHeight / scale));
+		region.left = (srcWidth - w) / 2;
+		region.top = (srcHeight - h) / 2;
+		region.right = region.left + w;
+		region.bottom = region.top + h;
+		return region;
+	}
+
+
+
+	/**
+	 * Decodes region of the image visible in the target rectangle in the given scale mode, 
+	 * downsampled to the size it is displayed at, so memory of the bitmap is bounded by size 
+	 * of the rectangle rather than of the image. The bitmap has proportions of the rectangle,
+	 * so it fills the rectangle in the same mode, showing the same part of the image.
+	 *
+	 * If the whole image is visible, or the image format cannot be decoded by regions, 
+	 * the whole image is decoded downsampled to fit into the target rectangle
+	 *
+	 * @param mode	scale mode the bitmap will be displayed in
+	 * @see #decode(BitmapSource, int, int, BitmapPool)
+	 */
+	static public Bitmap decodeRegion(BitmapSource source, int reqWidth, int reqHeight, 
+			SlideShowSwipe.ScaleMode mode, BitmapPool pool) throws IOException {
+		if (reqWidth <= 0 || reqHeight <= 0 || mode == SlideShowSwipe.ScaleMode.FIT_CENTER)
+			return decode(source, reqWidth, reqHeight, pool);
+		BitmapFactory.Options opts = new BitmapFactory.Options();
+		opts.inJustDecodeBounds = true;
+		decodeStream(source, opts);
+		Rect region = calculateVisibleRegion(opts.outWidth, opts.outHeight, reqWidth, reqHeight, mode, new Rect());
+		if (region.width() == opts.outWidth && region.height() == opts.outHeight)
+			return decode(source, reqWidth, reqHeight, pool);
+
+		// region is trimmed to a multiple of sample size, so the bitmap size is exact
+		int s = calculateInSampleSize(region.width(), region.height(), reqWidth, reqHeight);
+		region.right -= region.width() % s;
+		region.bottom -= region.height() % s;
+		opts.inJustDecodeBounds = false;
+		opts.inSampleSize = s;
+		opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		if (pool != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+			opts.inBitmap = obtain(region.width() / s, region.height() / s, opts.inPreferredConfig, pool);
+
+		InputStream in = source.open();
+		try {
+			BitmapRegionDecoder d;
+			try {
+				d = BitmapRegionDecoder.newInstance(in, false);
+			} catch (IOException e) {
+				// format is not supported by region decoder
+				if (opts.inBitmap != null)
+					pool.put(opts.inBitmap);
+				return decode(source, reqWidth, reqHeight, pool);
+			}
+			try {
+				return d.decodeRegion(region, opts);
+			} catch (IllegalArgumentException e) {
+				// pooled bitmap turned out to be unsuitable, it is still good for other images
+				if (opts.inBitmap != null)
+					pool.put(opts.inBitmap);
+				opts.inBitmap = null;
+				return d.decodeRegion(region, opts);
+			} finally {
+				d.recycle();
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+
+
+	/**
+	 * Returns mutable bitmap of the given dimensions, taken from the pool if possible
+	 */
+	static Bitmap obtain(int width, int height, Bitmap.Config config, BitmapPool pool){
+		Bitmap b = pool != null ? pool.get(width, height, config, false) : null;
+		if (b != null && (b.getWidth() != width || b.getHeight() != height || b.getConfig() != config)){
+			if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT || !reconfigure(b, width, height, config)){
+				pool.put(b);
+				b = null;
+			}
+		}
+		return b != null ? b : Bitmap.createBitmap(width, height, config);
+	}
+
+
+
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	static private boolean reconfigure(Bitmap b, int width, int height, Bitmap.Config config){
+		try {
+			b.reconfigure(width, height, config);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+
+
+	/**
+	 * Opens new stream of the source, decodes it and closes the stream
+	 */
+	static private Bitmap decodeStream(BitmapSource source, BitmapFactory.Options opts) throws IOException {
+		InputStream in = source.open();
+		try {
+			return BitmapFactory.decodeStream(in, null, opts);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+}
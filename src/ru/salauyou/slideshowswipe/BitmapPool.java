@@ -0,0 +1,231 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+
+/**
+ * Pool of mutable bitmaps which are not displayed anymore and can be reused by decoder
+ * via {@code BitmapFactory.Options.inBitmap}. Bitmaps are bucketed by their allocation size.
+ *
+ * Before KitKat, decoder can reuse only bitmaps of exactly the same dimensions and configuration,
+ * since KitKat any bitmap of sufficient allocation size is suitable. Total size of pooled
+ * bitmaps is limited, bitmaps beyond the limit are left to garbage collector.
+ *
+ * All methods are thread safe
+ */
+public class BitmapPool {
+
+
+	/**
+	 * Creates pool
+	 *
+	 * @param maxSize	maximum total size of pooled bitmaps in bytes
+	 * @throws IllegalArgumentException		if {@code maxSize <= 0}
+	 */
+	public BitmapPool(int maxSize) throws IllegalArgumentException {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Pool size must be positive");
+		this.maxSize = maxSize;
+	}
+
+
+
+	/**
+	 * Returns default pool size, which is 1/32 of maximum heap size
+	 */
+	static public int defaultMaxSize(){
+		return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 32);
+	}
+
+
+
+	/**
+	 * Puts bitmap into pool. Immutable and recycled bitmaps are ignored.
+	 * Bitmap must not be used by caller after this call
+	 */
+	public synchronized void put(Bitmap b){
+		if (b == null || !b.isMutable() || b.isRecycled())
+			return;
+		int bytes = allocationSize(b);
+		if (bytes > maxSize)
+			return;
+
+		// free space dropping the largest bitmaps, which are the least likely to fit exactly
+		while (size + bytes > maxSize && !buckets.isEmpty()){
+			Map.Entry<Integer, ArrayDeque<Bitmap>> e = buckets.lastEntry();
+			e.getValue().poll();
+			size -= e.getKey();
+			if (e.getValue().isEmpty())
+				buckets.remove(e.getKey());
+		}
+
+		ArrayDeque<Bitmap> bucket = buckets.get(bytes);
+		if (bucket == null){
+			bucket = new ArrayDeque<Bitmap>();
+			buckets.put(bytes, bucket);
+		}
+		bucket.push(b);
+		size += bytes;
+		putCount++;
+	}
+
+
+
+	/**
+	 * Takes from pool a bitmap which can be reused to decode image of the given dimensions
+	 * and configuration
+	 *
+	 * @param sampled	if image is decoded with {@code inSampleSize > 1}
+	 * @return			bitmap or {@code null} if there is no suitable bitmap
+	 */
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config, boolean sampled){
+		Bitmap b = null;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+			b = takeAtLeast(width * height * bytesPerPixel(config));
+		else if (!sampled)
+			b = takeExact(width, height, config);
+		if (b != null)
+			hitCount++;
+		else
+			missCount++;
+		return b;
+	}
+
+
+
+	/**
+	 * Removes all bitmaps from pool
+	 */
+	public synchronized void clear(){
+		buckets.clear();
+		size = 0;
+	}
+
+
+
+	/**
+	 * Returns total size of pooled bitmaps in bytes
+	 */
+	public synchronized int size(){
+		return size;
+	}
+
+
+
+	/**
+	 * Returns number of {@code get()} calls which returned a bitmap
+	 */
+	public synchronized int hitCount(){
+		return hitCount;
+	}
+
+
+
+	/**
+	 * Returns number of {@code get()} calls which returned {@code null}
+	 */
+	public synchronized int missCount(){
+		return missCount;
+	}
+
+
+
+	/**
+	 * Returns number of bitmaps put into pool
+	 */
+	public synchronized int putCount(){
+		return putCount;
+	}
+
+
+
+	@Override
+	public synchronized String toString(){
+		return String.format("BitmapPool[size=%d, maxSize=%d, hits=%d, misses=%d, puts=%d]",
+				size, maxSize, hitCount, missCount, putCount);
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<Integer, ArrayDeque<Bitmap>>();
+	final private int maxSize;
+	private int size;
+	private int hitCount, missCount, putCount;
+
+
+
+	/**
+	 * Takes the smallest bitmap having allocation size at least {@code bytes},
+	 * but not larger than twice of it to avoid wasting memory
+	 */
+	private Bitmap takeAtLeast(int bytes){
+		Map.Entry<Integer, ArrayDeque<Bitmap>> e = buckets.ceilingEntry(bytes);
+		if (e == null || e.getKey() > 2 * bytes)
+			return null;
+		return take(e.getKey(), e.getValue().pop());
+	}
+
+
+
+	/**
+	 * Takes bitmap with exactly the same dimensions and configuration
+	 */
+	private Bitmap takeExact(int width, int height, Bitmap.Config config){
+		Integer bytes = width * height * bytesPerPixel(config);
+		ArrayDeque<Bitmap> bucket = buckets.get(bytes);
+		if (bucket == null)
+			return null;
+		Iterator<Bitmap> it = bucket.iterator();
+		while (it.hasNext()){
+			Bitmap b = it.next();
+			if (b.getWidth() == width && b.getHeight() == height && b.getConfig() == config){
+				it.remove();
+				return take(bytes, b);
+			}
+		}
+		return null;
+	}
+
+
+
+	private Bitmap take(int bytes, Bitmap b){
+		ArrayDeque<Bitmap> bucket = buckets.get(bytes);
+		if (bucket.isEmpty())
+			buckets.remove(bytes);
+		size -= bytes;
+		return b;
+	}
+
+
+
+	/**
+	 * Returns size of memory allocated for bitmap, which may be larger than its byte count 
+	 * since KitKat, if it was reused for a smaller image
+	 */
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	static int allocationSize(Bitmap b){
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+			return b.getAllocationByteCount();
+		return b.getByteCount();
+	}
+
+
+
+	static private int bytesPerPixel(Bitmap.Config config){
+		if (config == Bitmap.Config.ALPHA_8)
+			return 1;
+		if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444)
+			return 2;
+		return 4;
+	}
+
+}
@@ -0,0 +1,44 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Source of encoded image data for a single slide. Sources are decoded lazily
+ * by containers, so they must be cheap to create and hold no decoded pixels.
+ *
+ * Two sources providing the same image must be equal to each other, so
+ * implementations must override {@code equals()} and {@code hashCode()}
+ */
+public interface BitmapSource {
+
+	/**
+	 * Returns identifier which is unique and stable for the image provided by this source
+	 */
+	public String getId();
+
+	/**
+	 * Opens a new stream of encoded image data. Caller is responsible for closing it
+	 *
+	 * @throws IOException	if image data cannot be read
+	 */
+	public InputStream open() throws IOException;
+
+
+
+	/**
+	 * Source whose image may change while its identifier stays the same, e. g. a file
+	 * which was rewritten. Containers which keep decoded slides across runs of the
+	 * application key them by both identifier and version
+	 */
+	public interface Versioned extends BitmapSource {
+
+		/**
+		 * Returns version of the image, which changes when the image changes,
+		 * or {@code null} if it is unknown
+		 */
+		public String getVersion();
+	}
+
+}
@@ -0,0 +1,254 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Process;
+
+
+/**
+ * Executor of decoding tasks on a bounded pool of background threads. Pending tasks are
+ * executed in order of their priority, which may be changed while they wait, and tasks
+ * of slides which are not needed anymore can be cancelled. Decodes are counted by outcome,
+ * to check how much work is wasted on slides which were scrolled past:
+ * <ul>
+ * <li><i>useful</i> tasks were executed and not cancelled</li>
+ * <li><i>wasted</i> tasks were cancelled when executing or after that</li>
+ * <li><i>skipped</i> tasks were cancelled before they started</li>
+ * </ul>
+ *
+ * All methods are thread safe
+ */
+public class DecodeScheduler {
+
+
+	/**
+	 * Task of the scheduler. Tasks with lower priority value are executed first,
+	 * tasks of equal priority are executed in order of submission
+	 */
+	static public abstract class Task implements Runnable, Comparable<Task> {
+
+		static final private int NEW = 0, QUEUED = 1, RUNNING = 2, DONE = 3, CANCELLED = 4;
+
+		final private AtomicInteger state = new AtomicInteger(NEW);
+		private DecodeScheduler scheduler;
+		private volatile int priority;
+		private long sequence;
+
+		/**
+		 * Performs decoding. Invoked on a thread of the scheduler
+		 */
+		protected abstract void execute();
+
+		/**
+		 * Cancels the task. If it is not started yet, it will not be executed;
+		 * if it is executing, it is not interrupted, but counted as wasted
+		 *
+		 * @return	if the task was cancelled before it started
+		 */
+		public boolean cancel(){
+			while (true){
+				int s = state.get();
+				if (s == CANCELLED || s == NEW)
+					return false;
+				if (state.compareAndSet(s, CANCELLED)){
+					if (s == QUEUED){
+						scheduler.executor.remove(this);
+						scheduler.skipped.incrementAndGet();
+						return true;
+					}
+					if (s == DONE){
+						scheduler.useful.decrementAndGet();
+						scheduler.wasted.incrementAndGet();
+					}
+					return false; // running task is counted when it finishes
+				}
+			}
+		}
+
+		/**
+		 * Checks if the task was cancelled
+		 */
+		public boolean isCancelled(){
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * Returns priority of the task
+		 */
+		public int getPriority(){
+			return priority;
+		}
+
+		/**
+		 * Changes priority of the task. Has no effect if the task is already started
+		 */
+		public void setPriority(int priority){
+			if (priority == this.priority)
+				return;
+			synchronized (scheduler.executor){
+				if (state.get() == QUEUED && scheduler.executor.remove(this)){
+					this.priority = priority;
+					sequence = scheduler.sequence++;
+					scheduler.executor.execute(this);
+				}
+			}
+		}
+
+		@Override
+		public final void run(){
+			if (!state.compareAndSet(QUEUED, RUNNING))
+				return;
+			try {
+				execute();
+			} finally {
+				if (state.compareAndSet(RUNNING, DONE))
+					scheduler.useful.incrementAndGet();
+				else
+					scheduler.wasted.incrementAndGet();
+			}
+		}
+
+		@Override
+		public int compareTo(Task t){
+			if (priority != t.priority)
+				return priority < t.priority ? -1 : 1;
+			return sequence < t.sequence ? -1 : (sequence == t.sequence ? 0 : 1);
+		}
+	}
+
+
+
+	/**
+	 * Creates scheduler with the number of threads equal to the number of available cores
+	 */
+	public DecodeScheduler(){
+		this(Integer.MAX_VALUE);
+	}
+
+
+
+	/**
+	 * Creates scheduler
+	 *
+	 * @param threads	maximum number of decoding threads, which is limited
+	 * 					to the number of available cores. If {@code threads < 1}, is set to 1
+	 */
+	public DecodeScheduler(int threads){
+		threads = Math.max(1, Math.min(threads, Runtime.getRuntime().availableProcessors()));
+		executor = new ThreadPoolExecutor(threads, threads, 2, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new ThreadFactory(){
+					@Override
+					public Thread newThread(final Runnable r) {
+						return new Thread(new Runnable(){
+							@Override
+							public void run() {
+								Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+								r.run();
+							}
+						}, "SlideShowSwipe decoder");
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+
+
+	/**
+	 * Submits task for execution
+	 *
+	 * @throws IllegalStateException	if the task was already submitted
+	 */
+	public <T extends Task> T submit(T task, int priority) throws IllegalStateException {
+		Task t = task;
+		if (!t.state.compareAndSet(Task.NEW, Task.QUEUED))
+			throw new IllegalStateException("Task was already submitted");
+		t.scheduler = this;
+		t.priority = priority;
+		synchronized (executor){
+			t.sequence = sequence++;
+			executor.execute(t);
+		}
+		return task;
+	}
+
+
+
+	/**
+	 * Returns maximum number of decoding threads
+	 */
+	public int getThreads(){
+		return executor.getMaximumPoolSize();
+	}
+
+
+
+	/**
+	 * Returns number of tasks which were executed and not cancelled
+	 */
+	public long getUsefulCount(){
+		return useful.get();
+	}
+
+
+
+	/**
+	 * Returns number of tasks which were cancelled when executing or after that
+	 */
+	public long getWastedCount(){
+		return wasted.get();
+	}
+
+
+
+	/**
+	 * Returns number of tasks which were cancelled before they started
+	 */
+	public long getSkippedCount(){
+		return skipped.get();
+	}
+
+
+
+	/**
+	 * Resets counters of tasks
+	 */
+	public void resetCounters(){
+		useful.set(0);
+		wasted.set(0);
+		skipped.set(0);
+	}
+
+
+
+	/**
+	 * Stops decoding threads, interrupting executing tasks.
+	 * Scheduler must not be used after this call
+	 */
+	public void shutdown(){
+		executor.shutdownNow();
+	}
+
+
+
+	@Override
+	public String toString(){
+		return "DecodeScheduler[threads=" + getThreads() + ", useful=" + useful.get()
+				+ ", wasted=" + wasted.get() + ", skipped=" + skipped.get() + "]";
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private ThreadPoolExecutor executor;
+	final private AtomicLong useful = new AtomicLong();
+	final private AtomicLong wasted = new AtomicLong();
+	final private AtomicLong skipped = new AtomicLong();
+	private long sequence; // guarded by executor
+
+}
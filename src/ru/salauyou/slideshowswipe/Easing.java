@@ -0,0 +1,92 @@
+package ru.salauyou.slideshowswipe;
+
+
+/**
+ * Easing curve of slideshow transitions, mapping linear progress of transition to eased one.
+ * Curve is precomputed once into a lookup table, so it is evaluated per frame by a table
+ * lookup and linear interpolation, without allocation and calls of {@code Math}.
+ *
+ * Curves are defined by cubic Bezier control points, the same way as in CSS.
+ * Instances are immutable and thread safe
+ */
+public final class Easing {
+
+	static public final Easing LINEAR = new Easing(0, 0, 1, 1);
+	static public final Easing EASE = new Easing(0.25f, 0.1f, 0.25f, 1);
+	static public final Easing EASE_IN = new Easing(0.42f, 0, 1, 1);
+	static public final Easing EASE_OUT = new Easing(0, 0, 0.58f, 1);
+	static public final Easing EASE_IN_OUT = new Easing(0.42f, 0, 0.58f, 1);
+
+
+
+	/**
+	 * Creates curve from control points of cubic Bezier curve from (0, 0) to (1, 1)
+	 *
+	 * @param x1	x of the first control point, from 0 to 1
+	 * @param y1	y of the first control point
+	 * @param x2	x of the second control point, from 0 to 1
+	 * @param y2	y of the second control point
+	 * @throws IllegalArgumentException		if x of a control point is outside of [0, 1]
+	 */
+	static public Easing cubicBezier(float x1, float y1, float x2, float y2) throws IllegalArgumentException {
+		return new Easing(x1, y1, x2, y2);
+	}
+
+
+
+	/**
+	 * Returns eased progress
+	 *
+	 * @param t		linear progress, clamped to [0, 1]
+	 */
+	public float get(float t){
+		if (!(t > 0f))
+			return table[0];
+		if (t >= 1f)
+			return table[SIZE];
+		float p = t * SIZE;
+		int i = (int) p;
+		return table[i] + (table[i + 1] - table[i]) * (p - i);
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private int SIZE = 256; // number of intervals of the table
+
+	final private float[] table = new float[SIZE + 1];
+
+
+
+	private Easing(float x1, float y1, float x2, float y2){
+		if (!(x1 >= 0 && x1 <= 1 && x2 >= 0 && x2 <= 1))
+			throw new IllegalArgumentException("X of control point is outside of [0, 1]");
+
+		// x(s) is monotonic for such control points, so s is found by bisection
+		for (int i = 0; i <= SIZE; i++){
+			double x = (double) i / SIZE, lo = 0, hi = 1;
+			for (int k = 0; k < 30; k++){
+				double s = (lo + hi) / 2;
+				if (bezier(s, x1, x2) < x)
+					lo = s;
+				else
+					hi = s;
+			}
+			table[i] = (float) bezier((lo + hi) / 2, y1, y2);
+		}
+		table[0] = 0;
+		table[SIZE] = 1;
+	}
+
+
+
+	/**
+	 * Returns coordinate of cubic Bezier curve from 0 to 1 with the given control coordinates
+	 */
+	static private double bezier(double s, double c1, double c2){
+		double r = 1 - s;
+		return 3 * r * r * s * c1 + 3 * r * s * s * c2 + s * s * s;
+	}
+
+}
@@ -0,0 +1,78 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Bitmap source backed by an image file. Version of the image is given by
+ * length and modification time of the file
+ */
+public class FileBitmapSource implements BitmapSource.Versioned {
+
+	final private File file;
+	final private String id;
+
+
+	/**
+	 * @param file	image file
+	 * @throws NullPointerException
+	 */
+	public FileBitmapSource(File file) throws NullPointerException {
+		if (file == null)
+			throw new NullPointerException("File is null");
+		this.file = file;
+		this.id = "file:" + file.getAbsolutePath();
+	}
+
+
+	/**
+	 * Returns image file of this source
+	 */
+	public File getFile(){
+		return file;
+	}
+
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+
+	/**
+	 * Returns length and modification time of the file, read from file system on each call
+	 */
+	@Override
+	public String getVersion(){
+		return file.length() + "-" + file.lastModified();
+	}
+
+
+	@Override
+	public InputStream open() throws IOException {
+		return new BufferedInputStream(new FileInputStream(file), 16 * 1024);
+	}
+
+
+	@Override
+	public boolean equals(Object o){
+		return o instanceof FileBitmapSource && ((FileBitmapSource) o).id.equals(id);
+	}
+
+
+	@Override
+	public int hashCode(){
+		return id.hashCode();
+	}
+
+
+	@Override
+	public String toString(){
+		return id;
+	}
+
+}
@@ -0,0 +1,31 @@
+package ru.salauyou.slideshowswipe;
+
+
+/**
+ * Source of frame time for animations of {@code SlideShowSwipe}. All animation math
+ * (fling motion and transitions between slides) is computed for the time returned
+ * by the clock, so a fake clock makes animations deterministic. The clock is only
+ * a source of time: frames are paced by vsync whichever clock is set.
+ *
+ * Without a clock, the view times frames by vsync time. Time must be monotonic 
+ * and measured in nanoseconds
+ */
+public interface FrameClock {
+
+	/**
+	 * Clock based on {@code System.nanoTime()}, returning the time when it is called
+	 * rather than vsync time of the frame
+	 */
+	static public final FrameClock SYSTEM = new FrameClock(){
+		@Override
+		public long frameTimeNanos() {
+			return System.nanoTime();
+		}
+	};
+
+	/**
+	 * Returns time of the frame being calculated, in nanoseconds
+	 */
+	public long frameTimeNanos();
+
+}
@@ -0,0 +1,712 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+
+/**
+ * Asynchronous bitmap container which decodes slides from {@link BitmapSource}s
+ * by {@link DecodeScheduler}. Slides within {@code prefetch} positions ahead and behind
+ * the cursor are decoded in advance and kept in {@link BitmapCache}, where slides displayed
+ * by the view are pinned.
+ *
+ * Slides are decoded downsampled to the size of the view, so decoding starts only after
+ * the view is measured. Besides, thumbnails of {@code 1 / THUMBNAIL_SCALE} of that size are
+ * decoded for slides within {@code prefetch * THUMBNAIL_RANGE} positions, so that fast swipe
+ * through many slides shows them without waiting for full decoding. Until a slide is decoded,
+ * container returns its thumbnail, or {@code null} if there is no thumbnail either, 
+ * and notifies observer as soon as decoding of thumbnail or slide completes. Decodes are 
+ * prioritized by distance from the displayed slides, and cancelled when slides leave the window.
+ * 
+ * Slides are kept in {@link SlideList}, so they can be added, removed and moved by any thread 
+ * at any time, while the view navigates them; navigation follows the displayed slide
+ * wherever it is moved. Modifications are reported to the view once per pass of the main
+ * thread loop, and bulk ones can be made by {@link #edit()}. All other methods must be invoked 
+ * from the main thread, observer callbacks are delivered to the main thread as well
+ */
+public class PrefetchingBitmapContainer 
+		implements SlideShowSwipe.AsyncBitmapContainer, SlideShowSwipe.RestorableBitmapContainer {
+
+	static public final int PREFETCH_DEFAULT = 2;
+	static public final int THREADS_DEFAULT = 2;
+	
+	/**
+	 * Slides are re-decoded only if the view grows by more than this fraction, 
+	 * or shrinks to less than a half of size slides were decoded for
+	 */
+	static public final float RESIZE_TOLERANCE = 0.1f;
+	
+	/**
+	 * Thumbnails are decoded this many times smaller than the view in each dimension
+	 */
+	static public final int THUMBNAIL_SCALE = 8;
+	
+	/**
+	 * Thumbnails are decoded this many times farther from the cursor than slides
+	 */
+	static public final int THUMBNAIL_RANGE = 4;
+
+
+
+	/**
+	 * Creates container with default prefetch depth, number of decoding threads, 
+	 * cache budget and bitmap pool size
+	 */
+	public PrefetchingBitmapContainer(){
+		this(PREFETCH_DEFAULT, THREADS_DEFAULT, new BitmapCache(BitmapCache.defaultMaxSize(), 
+				new BitmapPool(BitmapPool.defaultMaxSize())));
+	}
+
+
+
+	/**
+	 * Creates container
+	 *
+	 * @param prefetch	number of slides to be decoded ahead and behind the cursor.
+	 * 					If {@code prefetch < 1}, is set to 1
+	 * @param threads	maximum number of decoding threads, limited to the number of available cores.
+	 * 					If {@code threads < 1}, is set to 1
+	 * @param cache		cache to keep decoded bitmaps in. If it has a bitmap pool, 
+	 * 					bitmaps are decoded reusing memory of bitmaps from the pool
+	 * @throws NullPointerException
+	 */
+	public PrefetchingBitmapContainer(int prefetch, int threads, BitmapCache cache) throws NullPointerException {
+		this(prefetch, new DecodeScheduler(threads), true, cache);
+	}
+
+
+
+	/**
+	 * Creates container which decodes slides by the given scheduler, 
+	 * which may be shared with other containers
+	 *
+	 * @param prefetch	number of slides to be decoded ahead and behind the cursor.
+	 * 					If {@code prefetch < 1}, is set to 1
+	 * @param scheduler	scheduler to decode slides by. It is not shut down with the container
+	 * @param cache		cache to keep decoded bitmaps in
+	 * @throws NullPointerException
+	 */
+	public PrefetchingBitmapContainer(int prefetch, DecodeScheduler scheduler, BitmapCache cache) 
+			throws NullPointerException {
+		this(prefetch, scheduler, false, cache);
+	}
+
+
+
+	private PrefetchingBitmapContainer(int prefetch, DecodeScheduler scheduler, boolean ownScheduler, 
+			BitmapCache cache) throws NullPointerException {
+		if (cache == null || scheduler == null)
+			throw new NullPointerException("Cache or scheduler is null");
+		sources.setOnChangeListener(new SlideList.OnChangeListener(){
+			@Override
+			public void onListChanged(SlideList<?> list) {
+				slidesChanged();
+			}
+		});
+		this.cache = cache;
+		this.prefetch = Math.max(1, prefetch);
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+	}
+
+
+
+	/**
+	 * Appends bitmap source to the end of container. May be invoked from any thread
+	 *
+	 * @throws NullPointerException
+	 */
+	public PrefetchingBitmapContainer add(BitmapSource source) throws NullPointerException {
+		sources.add(source);
+		return this;
+	}
+
+
+
+	/**
+	 * Inserts bitmap source at the given position. May be invoked from any thread
+	 *
+	 * @throws NullPointerException
+	 * @throws IndexOutOfBoundsException
+	 */
+	public PrefetchingBitmapContainer add(int index, BitmapSource source) 
+			throws NullPointerException, IndexOutOfBoundsException {
+		sources.add(index, source);
+		return this;
+	}
+
+
+
+	/**
+	 * Removes bitmap source from container. May be invoked from any thread
+	 *
+	 * @return	if the source was found
+	 */
+	public boolean remove(BitmapSource source){
+		return sources.remove(source);
+	}
+
+
+
+	/**
+	 * Moves bitmap source from one position to another. May be invoked from any thread
+	 *
+	 * @throws IndexOutOfBoundsException
+	 */
+	public void move(int from, int to) throws IndexOutOfBoundsException {
+		sources.move(from, to);
+	}
+
+
+
+	/**
+	 * Starts batch modification of slides. All modifications made by the editor are applied
+	 * on {@code commit()} at once, so the view re-queries the current slide and redraws once
+	 * per batch. May be invoked from any thread; the editor must be committed or cancelled
+	 * by the same thread, other modifications wait until then
+	 */
+	public SlideList.Editor<BitmapSource> edit(){
+		return sources.edit();
+	}
+
+
+
+	/**
+	 * Returns number of slides in container. May be invoked from any thread
+	 */
+	public int size(){
+		return sources.size();
+	}
+
+
+
+	/**
+	 * Returns the latest snapshot of slides in container. May be invoked from any thread
+	 */
+	public SlideList.Snapshot<BitmapSource> getSources(){
+		return sources.snapshot();
+	}
+
+
+
+	/**
+	 * Returns cache where decoded bitmaps are kept
+	 */
+	public BitmapCache getCache(){
+		return cache;
+	}
+
+
+
+	/**
+	 * Returns scheduler which decodes slides
+	 */
+	public DecodeScheduler getScheduler(){
+		return scheduler;
+	}
+
+
+
+	/**
+	 * Cancels pending decodes, unpins displayed slides and stops decoding threads,
+	 * unless the scheduler was given to the constructor. Container must not be used after this call
+	 */
+	public void shutdown(){
+		shutdown = true;
+		cancelAll();
+		onVisibleSlidesChange(null, null, null);
+		if (ownScheduler)
+			scheduler.shutdown();
+	}
+
+
+
+	/* ============ SlideShowSwipe.AsyncBitmapContainer ============ */
+
+	@Override
+	public Bitmap getBitmapNext() {
+		return obtain(cursor.next());
+	}
+
+
+	@Override
+	public Bitmap getBitmapPrevious() {
+		return obtain(cursor.previous());
+	}
+
+
+	@Override
+	public Bitmap getBitmapCurrent() {
+		return obtain(cursor.current());
+	}
+
+
+	@Override
+	public void undoGetBitmap() {
+		cursor.undo();
+		prefetchLater();
+	}
+
+
+	@Override
+	public Object getKeyCurrent() {
+		// the slide returned by the latest call, even if it was removed since then
+		return cursor.get();
+	}
+
+
+	@Override
+	public void setContainerObserver(SlideShowSwipe.ContainerObserver observer) {
+		this.observer = observer;
+	}
+
+
+	@Override
+	public void onMotionPredicted(int direction, int count) {
+		landing = null;
+		if (count > 0){
+			SlideList.Snapshot<BitmapSource> s = cursor.snapshot();
+			if (s.size() > 0){
+				landing = s.get(wrap(s, cursor.position() + direction * count));
+				landingDirection = direction;
+			}
+		}
+		prefetchLater();
+	}
+
+
+	/**
+	 * Returns position of the cursor and identifier of the current source
+	 */
+	@Override
+	public String saveCursor() {
+		BitmapSource b = cursor.current();
+		return cursor.position() + ":" + (b == null ? "" : b.getId());
+	}
+
+
+	/**
+	 * Moves the cursor to the source with the saved identifier, or to the saved position 
+	 * if there is no such source, and starts decoding of the slide
+	 */
+	@Override
+	public void restoreCursor(String saved) {
+		int c = saved == null ? -1 : saved.indexOf(':');
+		if (c < 0)
+			return;
+		String id = saved.substring(c + 1);
+		int pos;
+		try {
+			pos = Integer.parseInt(saved.substring(0, c));
+		} catch (NumberFormatException e) {
+			return;
+		}
+		SlideList.Snapshot<BitmapSource> s = cursor.snapshot();
+		if (s.size() == 0)
+			return;
+		int i = 0;
+		while (i < s.size() && !s.get(i).getId().equals(id))
+			i++; // by id, since sources of another process are not equal to these
+		cursor.moveTo(i < s.size() ? i : Math.max(0, Math.min(pos, s.size() - 1)));
+		landing = null;
+		prefetchAround();
+	}
+
+
+	@Override
+	public void setTargetSize(int width, int height) {
+		if (width <= 0 || height <= 0)
+			return;
+		boolean grown = width > targetWidth * (1f + RESIZE_TOLERANCE) 
+				|| height > targetHeight * (1f + RESIZE_TOLERANCE);
+		boolean shrunk = width < targetWidth / 2 && height < targetHeight / 2;
+		if (!grown && !shrunk)
+			return;
+
+		targetWidth = width;
+		targetHeight = height;
+		thumbnailWidth = Math.max(1, width / THUMBNAIL_SCALE);
+		thumbnailHeight = Math.max(1, height / THUMBNAIL_SCALE);
+
+		// bitmaps of the old size remain in cache, displayed slides are replaced when re-decoded
+		cancelAll();
+		prefetchAround();
+	}
+
+
+	@Override
+	public void onVisibleSlidesChange(Object keyFront, Object keyBack, Object keyPrec) {
+		// pin new slides before unpinning old ones, so that common slides are never evictable
+		if (keyFront != null)
+			cache.pin(keyFront);
+		if (keyBack != null)
+			cache.pin(keyBack);
+		if (keyPrec != null)
+			cache.pin(keyPrec);
+		for (int i = 0; i < visible.length; i++){
+			if (visible[i] != null)
+				cache.unpin(visible[i]);
+		}
+		
+		// slides returned since the previous call are either displayed now or dropped by the view
+		for (int i = 0; i < obtained.size(); i++)
+			cache.unpin(obtained.get(i));
+		obtained.clear();
+		visible[0] = keyFront;
+		visible[1] = keyBack;
+		visible[2] = keyPrec;
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private SlideList<BitmapSource> sources = new SlideList<BitmapSource>();
+	final private SlideList.Cursor<BitmapSource> cursor = sources.cursor();
+	final private BitmapCache cache;
+	final private Object[] visible = new Object[3]; // keys pinned in cache
+	final private ArrayList<Object> obtained = new ArrayList<Object>(); // keys returned to the view, pinned until it reports visible slides
+	final private Map<BitmapSource, Decode> pending = new HashMap<BitmapSource, Decode>();
+	final private Map<BitmapSource, Decode> pendingThumbnails = new HashMap<BitmapSource, Decode>();
+	private int pass = 0, rank = 0; // pass of prefetch window update and rank of the next decode in it
+	private boolean prefetchPosted = false;
+	final private Map<BitmapSource, Integer> positions = new HashMap<BitmapSource, Integer>(); // positions in indexed snapshot
+	private SlideList.Snapshot<BitmapSource> indexed; // snapshot which positions refer to
+
+	final private DecodeScheduler scheduler;
+	final private boolean ownScheduler;
+	final private Handler handler = new Handler(Looper.getMainLooper());
+	private SlideShowSwipe.ContainerObserver observer;
+
+	final private int prefetch;
+	final private AtomicBoolean changePosted = new AtomicBoolean();
+	private volatile boolean shutdown = false;
+	
+	final private Runnable change = new Runnable(){
+		@Override
+		public void run() {
+			changePosted.set(false);
+			if (shutdown)
+				return;
+			prefetchAround();
+			if (observer != null)
+				observer.onContainerChanged();
+		}
+	};
+	
+	final private Runnable windowUpdate = new Runnable(){
+		@Override
+		public void run() {
+			prefetchPosted = false;
+			if (!shutdown)
+				prefetchAround();
+		}
+	};
+	private int targetWidth = 0, targetHeight = 0; // size bitmaps are decoded for, 0 means unknown yet
+	private int thumbnailWidth = 0, thumbnailHeight = 0; // size thumbnails are decoded for
+	private BitmapSource landing; // slide where the predicted motion stops, until cursor reaches it
+	private int landingDirection;
+
+
+
+	/**
+	 * Decoding of slide or its thumbnail
+	 */
+	private class Decode extends DecodeScheduler.Task {
+
+		final BitmapSource source;
+		final int width, height;
+		final boolean thumbnail;
+		int pass; // pass of prefetch window update which ranked the decode
+
+		Decode(BitmapSource source, int width, int height, boolean thumbnail){
+			this.source = source;
+			this.width = width;
+			this.height = height;
+			this.thumbnail = thumbnail;
+		}
+
+		@Override
+		protected void execute(){
+			// slide is put into cache at once, since another container sharing the cache
+			// may have its decode pending as well
+			if (!cache.contains(source, width, height)){
+				Bitmap b = decode(source, width, height);
+				if (b != null)
+					cache.put(source, width, height, b);
+			}
+			handler.post(new Runnable(){
+				@Override
+				public void run() {
+					delivered(Decode.this);
+				}
+			});
+		}
+	}
+
+
+
+	/**
+	 * Decodes bitmap from the source, downsampled to fit into the given size. 
+	 * Invoked on decoding thread
+	 *
+	 * @param width		target width, or 0 if view size is unknown yet
+	 * @param height	target height, or 0 if view size is unknown yet
+	 * @return	decoded bitmap or {@code null} if source cannot be decoded
+	 */
+	protected Bitmap decode(BitmapSource source, int width, int height){
+		try {
+			return BitmapDecoder.decode(source, width, height, cache.getBitmapPool());
+		} catch (IOException e) {
+			Log.w("SlideShowSwipe", "Cannot decode " + source.getId(), e);
+			return null;
+		}
+	}
+
+
+
+	/**
+	 * Returns decoded bitmap of the current slide, or its thumbnail, or {@code null} 
+	 * if neither is decoded yet, and posts moving of prefetch window to the cursor. 
+	 * The slide is pinned before lookup, so that a decoding thread cannot evict the bitmap 
+	 * into the pool before the view reports it as visible
+	 */
+	private Bitmap obtain(BitmapSource source){
+		if (source == null)
+			return null;
+		if (!obtained.contains(source)){
+			cache.pin(source);
+			obtained.add(source);
+		}
+		Bitmap b = cache.get(source, targetWidth, targetHeight);
+		if (b == null)
+			b = cache.get(source, thumbnailWidth, thumbnailHeight);
+		prefetchLater();
+		return b;
+	}
+
+
+
+	/**
+	 * Posts update of prefetch window to the main thread, so that it is made once 
+	 * however many slides the view requests during a frame
+	 */
+	private void prefetchLater(){
+		if (!prefetchPosted){
+			prefetchPosted = true;
+			handler.post(windowUpdate);
+		}
+	}
+
+
+
+	/**
+	 * Posts update of prefetch window and notification of observer to the main thread, 
+	 * when slides were changed.
+	 * May be invoked from any thread, updates are coalesced
+	 */
+	private void slidesChanged(){
+		if (changePosted.compareAndSet(false, true))
+			handler.post(change);
+	}
+
+
+
+	/**
+	 * Schedules decoding of slides and thumbnails around the cursor, nearest first, 
+	 * and cancels pending decodes which left the window. If motion was predicted, 
+	 * the window is around the slide where the motion stops instead
+	 */
+	private void prefetchAround(){
+		SlideList.Snapshot<BitmapSource> s = cursor.snapshot();
+		if (s.size() == 0 || targetWidth == 0)
+			return; // nothing to decode until the view is measured
+		int pos = cursor.position();
+		int range = prefetch * THUMBNAIL_RANGE;
+		int target = landing != null ? positionOf(s, landing) : -1;
+		pass++;
+		rank = 0;
+		if (target < 0 || target == pos){
+			landing = null; // reached or removed
+			target = -1;
+		}
+
+		cancelUnwanted(pending, s, pos, target, false);
+		cancelUnwanted(pendingThumbnails, s, pos, target, true);
+
+		// the front slide goes first, then the back one
+		for (int i = 0; i < 2; i++){
+			if (visible[i] instanceof BitmapSource){
+				schedule((BitmapSource) visible[i], true);
+				schedule((BitmapSource) visible[i], false);
+			}
+		}
+
+		if (target >= 0){
+			// slides on the way are passed quickly, so only their thumbnails are decoded
+			schedule(s.get(target), true);
+			schedule(s.get(target), false);
+			int steps = Math.min(range, steps(s, pos, target, landingDirection));
+			for (int d = 1; d < steps; d++)
+				schedule(s.get(wrap(s, pos + landingDirection * d)), true);
+			pos = target;
+		}
+
+		// at every distance thumbnails go first, since they are decoded much faster
+		range = Math.min(range, s.size() / 2);
+		for (int d = 0; d <= range; d++){
+			BitmapSource a = s.get(wrap(s, pos + d)), b = s.get(wrap(s, pos - d));
+			schedule(a, true);
+			schedule(b, true);
+			if (d <= prefetch){
+				schedule(a, false);
+				schedule(b, false);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Cancels pending decodes of slides which are out of the window
+	 * 
+	 * @param target	index of the slide where predicted motion stops, or -1
+	 */
+	private void cancelUnwanted(Map<BitmapSource, Decode> pending, 
+			SlideList.Snapshot<BitmapSource> s, int pos, int target, boolean thumbnail){
+		int range = thumbnail ? prefetch * THUMBNAIL_RANGE : prefetch;
+		Iterator<Map.Entry<BitmapSource, Decode>> it = pending.entrySet().iterator();
+		while (it.hasNext()){
+			Map.Entry<BitmapSource, Decode> e = it.next();
+			int i = positionOf(s, e.getKey());
+			boolean wanted;
+			if (e.getKey().equals(visible[0]) || e.getKey().equals(visible[1]))
+				wanted = true; // displayed, even if removed from container
+			else if (target < 0)
+				wanted = distance(s, i, pos) <= range;
+			else
+				wanted = i == pos || distance(s, i, target) <= range || (thumbnail 
+						&& steps(s, pos, i, landingDirection) < Math.min(range, steps(s, pos, target, landingDirection)));
+			if (!wanted){
+				e.getValue().cancel();
+				it.remove();
+			}
+		}
+	}
+
+
+
+	/**
+	 * Cancels all pending decodes
+	 */
+	private void cancelAll(){
+		for (Decode d : pending.values())
+			d.cancel();
+		for (Decode d : pendingThumbnails.values())
+			d.cancel();
+		pending.clear();
+		pendingThumbnails.clear();
+	}
+
+
+
+	/**
+	 * Submits source for decoding with the next rank of the current pass, unless it is 
+	 * already decoded. If the decode is pending, only its priority is updated.
+	 * Thumbnail is not decoded if the slide itself is decoded
+	 */
+	private void schedule(BitmapSource source, boolean thumbnail){
+		Map<BitmapSource, Decode> p = thumbnail ? pendingThumbnails : pending;
+		Decode d = p.get(source);
+		if (d != null){
+			if (d.pass != pass){
+				d.pass = pass;
+				d.setPriority(rank++);
+			}
+			return;
+		}
+		int w = thumbnail ? thumbnailWidth : targetWidth;
+		int h = thumbnail ? thumbnailHeight : targetHeight;
+		if ((thumbnail && cache.contains(source, targetWidth, targetHeight)) || cache.contains(source, w, h))
+			return;
+		d = new Decode(source, w, h, thumbnail);
+		d.pass = pass;
+		p.put(source, scheduler.submit(d, rank++));
+	}
+
+
+
+	/**
+	 * Notifies observer about decoded bitmap. Invoked on the main thread
+	 */
+	private void delivered(Decode d){
+		if (d.isCancelled())
+			return; // left the window or decoded for the old size
+		(d.thumbnail ? pendingThumbnails : pending).remove(d.source);
+		Bitmap b = cache.get(d.source, d.width, d.height);
+		if (b == null)
+			return; // failed, or evicted already
+		if (d.thumbnail && cache.contains(d.source, targetWidth, targetHeight))
+			return; // slide itself is already delivered
+		if (observer != null)
+			observer.onBitmapLoaded(d.source, b);
+	}
+
+
+
+	/**
+	 * Returns position of the first occurrence of source in the snapshot, or -1. 
+	 * Positions are indexed once per snapshot
+	 */
+	private int positionOf(SlideList.Snapshot<BitmapSource> s, BitmapSource source){
+		if (indexed != s){
+			positions.clear();
+			for (int i = s.size() - 1; i >= 0; i--)
+				positions.put(s.get(i), i);
+			indexed = s;
+		}
+		Integer i = positions.get(source);
+		return i == null ? -1 : i;
+	}
+
+
+
+	/**
+	 * Returns distance between two positions, taking into account wrapping around the ends
+	 */
+	static private int distance(SlideList.Snapshot<?> s, int a, int b){
+		if (a < 0)
+			return Integer.MAX_VALUE;
+		int d = Math.abs(a - b);
+		return Math.min(d, s.size() - d);
+	}
+
+
+
+	/**
+	 * Returns number of steps from one position to another in the given direction,
+	 * taking into account wrapping around the ends
+	 */
+	static private int steps(SlideList.Snapshot<?> s, int from, int to, int direction){
+		if (to < 0)
+			return Integer.MAX_VALUE;
+		return wrap(s, (to - from) * direction);
+	}
+
+
+
+	static private int wrap(SlideList.Snapshot<?> s, int pos){
+		int n = s.size();
+		return ((pos % n) + n) % n;
+	}
+
+}
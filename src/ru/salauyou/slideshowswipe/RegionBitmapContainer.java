@@ -0,0 +1,104 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+
+/**
+ * Prefetching container for slides much larger than the view, such as panoramas and scans,
+ * displayed in a scale mode where they overflow the view. Only the region of a slide visible 
+ * in the view is decoded, at the sample size the slide is displayed at, so memory of a slide 
+ * is bounded by size of the view rather than of the image. Thumbnails are decoded the same way.
+ * See {@link BitmapDecoder#decodeRegion(BitmapSource, int, int, SlideShowSwipe.ScaleMode, BitmapPool)}.
+ *
+ * The view must be set to the same scale mode as the container. Bitmaps decoded by regions 
+ * differ from whole slides of the same size, so the cache must not be shared with containers 
+ * of other scale modes. Threading rules are the same as for {@link PrefetchingBitmapContainer}
+ */
+public class RegionBitmapContainer extends PrefetchingBitmapContainer {
+
+
+	/**
+	 * Creates container with default prefetch depth, number of decoding threads,
+	 * cache budget and bitmap pool size
+	 *
+	 * @param mode	scale mode of the view
+	 * @throws NullPointerException
+	 */
+	public RegionBitmapContainer(SlideShowSwipe.ScaleMode mode) throws NullPointerException {
+		super();
+		this.mode = check(mode);
+	}
+
+
+
+	/**
+	 * Creates container
+	 *
+	 * @param mode	scale mode of the view
+	 * @throws NullPointerException
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, int, BitmapCache)
+	 */
+	public RegionBitmapContainer(SlideShowSwipe.ScaleMode mode, int prefetch, int threads, BitmapCache cache) 
+			throws NullPointerException {
+		super(prefetch, threads, cache);
+		this.mode = check(mode);
+	}
+
+
+
+	/**
+	 * Creates container which decodes slides by the given scheduler, e. g. one of {@link SlideShowGroup}.
+	 * The scheduler may be shared with containers of any scale mode, but the cache may not
+	 *
+	 * @param mode	scale mode of the view
+	 * @throws NullPointerException
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, DecodeScheduler, BitmapCache)
+	 */
+	public RegionBitmapContainer(SlideShowSwipe.ScaleMode mode, int prefetch, DecodeScheduler scheduler, 
+			BitmapCache cache) throws NullPointerException {
+		super(prefetch, scheduler, cache);
+		this.mode = check(mode);
+	}
+
+
+
+	/**
+	 * Returns scale mode which slides are decoded for
+	 */
+	public SlideShowSwipe.ScaleMode getScaleMode(){
+		return mode;
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private SlideShowSwipe.ScaleMode mode;
+
+
+
+	/**
+	 * Decodes region of the slide visible in the view
+	 */
+	@Override
+	protected Bitmap decode(BitmapSource source, int width, int height){
+		try {
+			return BitmapDecoder.decodeRegion(source, width, height, mode, getCache().getBitmapPool());
+		} catch (IOException e) {
+			Log.w("SlideShowSwipe", "Cannot decode " + source.getId(), e);
+			return null;
+		}
+	}
+
+
+
+	static private SlideShowSwipe.ScaleMode check(SlideShowSwipe.ScaleMode mode){
+		if (mode == null)
+			throw new NullPointerException("Scale mode is null");
+		return mode;
+	}
+
+}
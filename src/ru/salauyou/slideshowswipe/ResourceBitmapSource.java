@@ -0,0 +1,112 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+
+/**
+ * Bitmap source backed by a drawable or raw resource. Resources and their identifiers
+ * change only with the application package, so version of the image is given by 
+ * version code and update time of the package
+ */
+public class ResourceBitmapSource implements BitmapSource.Versioned {
+
+	final private Resources resources;
+	final private int resId;
+	final private String id, version;
+
+	static private volatile String appVersion; // version of the package, which cannot change while process lives
+
+
+	/**
+	 * Creates source with version of the application package
+	 *
+	 * @param context		context to open image from
+	 * @param resId			identifier of resource
+	 * @throws NullPointerException
+	 */
+	public ResourceBitmapSource(Context context, int resId) throws NullPointerException {
+		this(appVersion(context), context.getResources(), resId);
+	}
+
+
+	/**
+	 * Creates source of unknown version. Slides of such sources, kept by containers across 
+	 * runs of the application, are not updated with the package
+	 *
+	 * @param resources		resources to open image from
+	 * @param resId			identifier of resource
+	 * @throws NullPointerException
+	 */
+	public ResourceBitmapSource(Resources resources, int resId) throws NullPointerException {
+		this(null, resources, resId);
+	}
+
+
+	private ResourceBitmapSource(String version, Resources resources, int resId) throws NullPointerException {
+		if (resources == null)
+			throw new NullPointerException("Resources is null");
+		this.resources = resources;
+		this.resId = resId;
+		this.id = "res:" + resId;
+		this.version = version;
+	}
+
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+
+	@Override
+	public String getVersion(){
+		return version;
+	}
+
+
+	@Override
+	public InputStream open() throws IOException {
+		return resources.openRawResource(resId);
+	}
+
+
+	@Override
+	public boolean equals(Object o){
+		return o instanceof ResourceBitmapSource && ((ResourceBitmapSource) o).resId == resId;
+	}
+
+
+	@Override
+	public int hashCode(){
+		return resId;
+	}
+
+
+	@Override
+	public String toString(){
+		return id;
+	}
+
+
+	static private String appVersion(Context context) throws NullPointerException {
+		if (context == null)
+			throw new NullPointerException("Context is null");
+		String v = appVersion;
+		if (v == null){
+			try {
+				PackageInfo p = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+				appVersion = v = p.versionCode + "-" + p.lastUpdateTime;
+			} catch (PackageManager.NameNotFoundException e) {
+				// own package is always found
+			}
+		}
+		return v;
+	}
+
+}
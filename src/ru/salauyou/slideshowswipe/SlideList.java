@@ -0,0 +1,580 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * List of slides which can be modified from any thread while it is navigated by a view.
+ * Every modification publishes a new immutable {@link Snapshot} (copy on write), so readers
+ * never lock and never observe a partially modified list. Modifications are serialized
+ * by a lock; they are expected to be much rarer than reads.
+ *
+ * Navigation is performed by a {@link Cursor}, which tracks the element it points to rather
+ * than its index: when slides are inserted, removed or moved, the cursor stays at the same
+ * slide, and if that slide was removed, moves to the slide which took its place.
+ *
+ * Bulk modifications are made by {@link Editor}, which publishes them as a single one
+ *
+ * @param <T>	type of elements, which must implement {@code equals()} and {@code hashCode()}
+ */
+public class SlideList<T> {
+
+
+	/**
+	 * Immutable state of the list at some moment
+	 */
+	static public final class Snapshot<T> {
+
+		final private Object[] items;
+		final private long version;
+
+		private Snapshot(Object[] items, long version){
+			this.items = items;
+			this.version = version;
+		}
+
+		/**
+		 * Returns version of the list, which is incremented by every modification
+		 */
+		public long version(){
+			return version;
+		}
+
+		public int size(){
+			return items.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T get(int index){
+			return (T) items[index];
+		}
+
+		/**
+		 * Returns index of the first element equal to the given one, or -1
+		 */
+		public int indexOf(Object o){
+			return SlideList.indexOf(items, o);
+		}
+	}
+
+
+
+	/**
+	 * Position in the list which wraps around its ends. Cursor is not thread safe and
+	 * must be used by a single thread, but the list may be modified by other threads
+	 * meanwhile. Changes of the list are picked up by all methods except of {@code get()}
+	 */
+	static public final class Cursor<T> {
+
+		final private SlideList<T> list;
+		private Snapshot<T> snapshot; // snapshot which indices refer to
+		private Object current, prec;
+		private int index = 0, indexPrec = 0;
+
+		private Cursor(SlideList<T> list){
+			this.list = list;
+			this.snapshot = list.snapshot();
+			sync();
+		}
+
+		/**
+		 * Moves to the next element
+		 *
+		 * @return	element or {@code null} if list is empty
+		 */
+		public T next(){
+			return move(+1);
+		}
+
+		/**
+		 * Moves to the previous element
+		 *
+		 * @return	element or {@code null} if list is empty
+		 */
+		public T previous(){
+			return move(-1);
+		}
+
+		/**
+		 * Moves to the element at the given index of the latest snapshot
+		 *
+		 * @return	element or {@code null} if list is empty
+		 * @throws IndexOutOfBoundsException	if list is not empty and index is out of it
+		 */
+		@SuppressWarnings("unchecked")
+		public T moveTo(int index) throws IndexOutOfBoundsException {
+			sync();
+			int n = snapshot.items.length;
+			if (n == 0)
+				return null;
+			if (index < 0 || index >= n)
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + n);
+			prec = current;
+			indexPrec = this.index;
+			this.index = index;
+			current = snapshot.items[index];
+			return (T) current;
+		}
+
+		/**
+		 * Returns the current element, taking into account changes of the list
+		 *
+		 * @return	element or {@code null} if list is empty
+		 */
+		@SuppressWarnings("unchecked")
+		public T current(){
+			sync();
+			return (T) current;
+		}
+
+		/**
+		 * Returns the element the cursor pointed to after the latest navigation or check
+		 * of changes, even if it was removed from the list since then
+		 */
+		@SuppressWarnings("unchecked")
+		public T get(){
+			return (T) current;
+		}
+
+		/**
+		 * Returns back to the element which was current before the latest
+		 * {@code next()} or {@code previous()}
+		 */
+		public void undo(){
+			sync();
+			current = prec;
+			index = indexPrec;
+		}
+
+		/**
+		 * Returns index of the current element in the latest snapshot, or 0 if list is empty
+		 */
+		public int position(){
+			sync();
+			return Math.max(0, index);
+		}
+
+		/**
+		 * Returns snapshot which the cursor position refers to
+		 */
+		public Snapshot<T> snapshot(){
+			sync();
+			return snapshot;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T move(int d){
+			sync();
+			int n = snapshot.items.length;
+			if (n == 0)
+				return null;
+			prec = current;
+			indexPrec = index;
+			index = ((index + d) % n + n) % n;
+			current = snapshot.items[index];
+			return (T) current;
+		}
+
+		/**
+		 * Re-locates current and preceding elements in the latest snapshot
+		 */
+		private void sync(){
+			Snapshot<T> s = list.snapshot;
+			if (s == snapshot && (current != null || s.items.length == 0))
+				return;
+			Object[] a = s.items;
+			index = locate(a, current, index);
+			indexPrec = locate(a, prec, indexPrec);
+			current = index < 0 ? null : a[index];
+			prec = indexPrec < 0 ? null : a[indexPrec];
+			snapshot = s;
+		}
+
+		/**
+		 * Returns index of the element in the array. If the element is absent,
+		 * returns the old index clamped to the array, or -1 if array is empty
+		 */
+		static private int locate(Object[] a, Object o, int hint){
+			if (a.length == 0)
+				return -1;
+			if (o != null){
+				if (hint >= 0 && hint < a.length && a[hint].equals(o))
+					return hint;
+				int i = SlideList.indexOf(a, o);
+				if (i >= 0)
+					return i;
+			}
+			return Math.max(0, Math.min(hint, a.length - 1));
+		}
+	}
+
+
+
+	/**
+	 * Interface to receive modifications of the list
+	 */
+	public interface OnChangeListener {
+
+		/**
+		 * Invoked on the modifying thread after modification was published
+		 */
+		public void onListChanged(SlideList<?> list);
+	}
+
+
+
+	/**
+	 * Batch modification of the list, obtained by {@code SlideList.edit()}. Editor works
+	 * on a private copy of elements and must be used by the thread which created it
+	 */
+	static public final class Editor<T> {
+
+		final private SlideList<T> list;
+		final private ArrayList<Object> items;
+		private boolean open = true;
+
+		private Editor(SlideList<T> list){
+			this.list = list;
+			this.items = new ArrayList<Object>(Arrays.asList(list.snapshot.items));
+		}
+
+		public int size(){
+			check();
+			return items.size();
+		}
+
+		@SuppressWarnings("unchecked")
+		public T get(int index){
+			check();
+			return (T) items.get(index);
+		}
+
+		public int indexOf(Object o){
+			check();
+			return o == null ? -1 : items.indexOf(o);
+		}
+
+		/**
+		 * @throws NullPointerException
+		 */
+		public Editor<T> add(T item) throws NullPointerException {
+			return add(size(), item);
+		}
+
+		/**
+		 * @throws NullPointerException
+		 * @throws IndexOutOfBoundsException
+		 */
+		public Editor<T> add(int index, T item) throws NullPointerException, IndexOutOfBoundsException {
+			check();
+			if (item == null)
+				throw new NullPointerException("Item is null");
+			items.add(index, item);
+			return this;
+		}
+
+		public boolean remove(Object item){
+			check();
+			return item != null && items.remove(item);
+		}
+
+		/**
+		 * @throws IndexOutOfBoundsException
+		 */
+		@SuppressWarnings("unchecked")
+		public T remove(int index) throws IndexOutOfBoundsException {
+			check();
+			return (T) items.remove(index);
+		}
+
+		/**
+		 * @throws IndexOutOfBoundsException
+		 */
+		public Editor<T> move(int from, int to) throws IndexOutOfBoundsException {
+			check();
+			if (to < 0 || to >= items.size())
+				throw new IndexOutOfBoundsException("Index " + to + ", size " + items.size());
+			items.add(to, items.remove(from));
+			return this;
+		}
+
+		public Editor<T> clear(){
+			check();
+			items.clear();
+			return this;
+		}
+
+		/**
+		 * Publishes all modifications as a single one and releases the list
+		 */
+		public void commit(){
+			check();
+			open = false;
+			try {
+				list.publish(items.toArray());
+			} finally {
+				list.lock.unlock();
+			}
+			list.changed();
+		}
+
+		/**
+		 * Discards all modifications and releases the list
+		 */
+		public void cancel(){
+			check();
+			open = false;
+			list.lock.unlock();
+		}
+
+		private void check(){
+			if (!open)
+				throw new IllegalStateException("Editor is committed or cancelled");
+		}
+	}
+
+
+
+	/**
+	 * Returns the latest snapshot of the list
+	 */
+	public Snapshot<T> snapshot(){
+		return snapshot;
+	}
+
+
+
+	/**
+	 * Creates cursor pointing to the first element
+	 */
+	public Cursor<T> cursor(){
+		return new Cursor<T>(this);
+	}
+
+
+
+	/**
+	 * Returns number of elements
+	 */
+	public int size(){
+		return snapshot.items.length;
+	}
+
+
+
+	/**
+	 * Sets listener of modifications of the list
+	 *
+	 * @param listener	listener or {@code null}
+	 */
+	public void setOnChangeListener(OnChangeListener listener){
+		this.listener = listener;
+	}
+
+
+
+	/**
+	 * Starts batch modification of the list. Modifications made by the returned editor are
+	 * published as a single one on {@code commit()}, and other modifications are blocked until
+	 * the editor is committed or cancelled, which must be done by the same thread
+	 */
+	public Editor<T> edit(){
+		lock.lock();
+		return new Editor<T>(this);
+	}
+
+
+
+	/**
+	 * Appends element to the end of the list
+	 *
+	 * @throws NullPointerException
+	 */
+	public void add(T item) throws NullPointerException {
+		if (item == null)
+			throw new NullPointerException("Item is null");
+		lock.lock();
+		try {
+			Object[] a = snapshot.items;
+			Object[] b = new Object[a.length + 1];
+			System.arraycopy(a, 0, b, 0, a.length);
+			b[a.length] = item;
+			publish(b);
+		} finally {
+			lock.unlock();
+		}
+		changed();
+	}
+
+
+
+	/**
+	 * Inserts element at the given position
+	 *
+	 * @throws NullPointerException
+	 * @throws IndexOutOfBoundsException
+	 */
+	public void add(int index, T item) throws NullPointerException, IndexOutOfBoundsException {
+		if (item == null)
+			throw new NullPointerException("Item is null");
+		lock.lock();
+		try {
+			Object[] a = snapshot.items;
+			if (index < 0 || index > a.length)
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + a.length);
+			Object[] b = new Object[a.length + 1];
+			System.arraycopy(a, 0, b, 0, index);
+			b[index] = item;
+			System.arraycopy(a, index, b, index + 1, a.length - index);
+			publish(b);
+		} finally {
+			lock.unlock();
+		}
+		changed();
+	}
+
+
+
+	/**
+	 * Removes the first element equal to the given one
+	 *
+	 * @return	if the element was found
+	 */
+	public boolean remove(Object item){
+		lock.lock();
+		try {
+			Object[] a = snapshot.items;
+			int i = indexOf(a, item);
+			if (i < 0)
+				return false;
+			publish(removed(a, i));
+		} finally {
+			lock.unlock();
+		}
+		changed();
+		return true;
+	}
+
+
+
+	/**
+	 * Removes element at the given position
+	 *
+	 * @return	removed element
+	 * @throws IndexOutOfBoundsException
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(int index) throws IndexOutOfBoundsException {
+		Object o;
+		lock.lock();
+		try {
+			Object[] a = snapshot.items;
+			if (index < 0 || index >= a.length)
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + a.length);
+			o = a[index];
+			publish(removed(a, index));
+		} finally {
+			lock.unlock();
+		}
+		changed();
+		return (T) o;
+	}
+
+
+
+	/**
+	 * Moves element from one position to another
+	 *
+	 * @throws IndexOutOfBoundsException
+	 */
+	public void move(int from, int to) throws IndexOutOfBoundsException {
+		lock.lock();
+		try {
+			Object[] a = snapshot.items;
+			if (from < 0 || from >= a.length || to < 0 || to >= a.length)
+				throw new IndexOutOfBoundsException("Index " + from + " or " + to + ", size " + a.length);
+			if (from == to)
+				return;
+			Object[] b = a.clone();
+			Object o = b[from];
+			if (from < to)
+				System.arraycopy(a, from + 1, b, from, to - from);
+			else
+				System.arraycopy(a, to, b, to + 1, from - to);
+			b[to] = o;
+			publish(b);
+		} finally {
+			lock.unlock();
+		}
+		changed();
+	}
+
+
+
+	/**
+	 * Removes all elements
+	 */
+	public void clear(){
+		lock.lock();
+		try {
+			publish(EMPTY);
+		} finally {
+			lock.unlock();
+		}
+		changed();
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private Object[] EMPTY = new Object[0];
+
+	final private ReentrantLock lock = new ReentrantLock();
+	private volatile Snapshot<T> snapshot = new Snapshot<T>(EMPTY, 0);
+	private volatile OnChangeListener listener;
+
+
+
+	/**
+	 * Publishes new state of the list. Invoked under lock
+	 */
+	private void publish(Object[] items){
+		snapshot = new Snapshot<T>(items, snapshot.version + 1);
+	}
+
+
+
+	/**
+	 * Notifies listener about modification. Invoked after the lock is released
+	 */
+	private void changed(){
+		OnChangeListener l = listener;
+		if (l != null)
+			l.onListChanged(this);
+	}
+
+
+
+	static private Object[] removed(Object[] a, int index){
+		Object[] b = new Object[a.length - 1];
+		System.arraycopy(a, 0, b, 0, index);
+		System.arraycopy(a, index + 1, b, index, a.length - index - 1);
+		return b;
+	}
+
+
+
+	static private int indexOf(Object[] a, Object o){
+		if (o == null)
+			return -1;
+		for (int i = 0; i < a.length; i++){
+			if (o.equals(a[i]))
+				return i;
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,202 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.ArrayList;
+
+
+/**
+ * Coordinator of several {@code SlideShowSwipe} views displayed at once, e. g. on a wall
+ * of screens. Views of a group share:
+ * <ul>
+ * <li>one {@link BitmapCache} with its {@link BitmapPool}, so the group has a single memory
+ * budget, and a slide shown by several views of the same size is decoded and kept once</li>
+ * <li>one {@link DecodeScheduler}, so decoding threads do not multiply with views</li>
+ * <li>one {@link FrameClock}, if it is set. The clock only times frames of the views,
+ * which are still paced by vsync</li>
+ * </ul>
+ * Slide changes of the views are staggered evenly over the period, so that transitions
+ * of different views fall on different frames.
+ *
+ * Containers for the views are created by {@code createContainer()}. Containers of other kinds, 
+ * such as {@link SlideStoreContainer}, are created with scheduler and cache of the group 
+ * and passed to {@code addContainer()}.
+ * Must be used from the main thread only
+ */
+public class SlideShowGroup {
+
+
+	/**
+	 * Creates group with default cache budget, bitmap pool size and number of decoding threads
+	 */
+	public SlideShowGroup(){
+		this(new BitmapCache(BitmapCache.defaultMaxSize(), new BitmapPool(BitmapPool.defaultMaxSize())),
+				new DecodeScheduler());
+	}
+
+
+
+	/**
+	 * Creates group
+	 *
+	 * @param cache		cache shared by containers of the group, its budget limits memory of all views
+	 * @param scheduler	scheduler shared by containers of the group
+	 * @throws NullPointerException
+	 */
+	public SlideShowGroup(BitmapCache cache, DecodeScheduler scheduler) throws NullPointerException {
+		if (cache == null || scheduler == null)
+			throw new NullPointerException("Cache or scheduler is null");
+		this.cache = cache;
+		this.scheduler = scheduler;
+	}
+
+
+
+	/**
+	 * Creates container with default prefetch depth, which decodes slides into the cache
+	 * of the group by its scheduler
+	 */
+	public PrefetchingBitmapContainer createContainer(){
+		return createContainer(PrefetchingBitmapContainer.PREFETCH_DEFAULT);
+	}
+
+
+
+	/**
+	 * Creates container which decodes slides into the cache of the group by its scheduler
+	 *
+	 * @param prefetch	number of slides to be decoded ahead and behind the cursor
+	 */
+	public PrefetchingBitmapContainer createContainer(int prefetch){
+		return addContainer(new PrefetchingBitmapContainer(prefetch, scheduler, cache));
+	}
+
+
+
+	/**
+	 * Adds container to be shut down with the group. The container must be created 
+	 * with scheduler and cache of the group
+	 *
+	 * @return	the container
+	 * @throws IllegalArgumentException	if the container uses other scheduler or cache
+	 */
+	public <C extends PrefetchingBitmapContainer> C addContainer(C c) throws IllegalArgumentException {
+		if (c.getScheduler() != scheduler || c.getCache() != cache)
+			throw new IllegalArgumentException("Container does not use scheduler and cache of the group");
+		if (!containers.contains(c))
+			containers.add(c);
+		return c;
+	}
+
+
+
+	/**
+	 * Adds view to the group, setting frame clock of the group to it
+	 * and staggering slide changes of all views of the group
+	 *
+	 * @throws NullPointerException
+	 */
+	public SlideShowGroup add(SlideShowSwipe view) throws NullPointerException {
+		if (view == null)
+			throw new NullPointerException("View is null");
+		if (views.contains(view))
+			return this;
+		views.add(view);
+		if (clock != null)
+			view.setFrameClock(clock);
+		stagger();
+		return this;
+	}
+
+
+
+	/**
+	 * Removes view from the group. The view keeps its frame clock, stops being staggered 
+	 * with other views and unpins its slides in the shared cache. If the view is still displayed, 
+	 * it requests its current slide again
+	 */
+	public void remove(SlideShowSwipe view){
+		if (views.remove(view)){
+			view.releaseSlides();
+			view.setSlideShowPhase(-1);
+			stagger();
+		}
+	}
+
+
+
+	/**
+	 * Sets frame clock to all views of the group. Frames of the views are timed by the clock
+	 * and paced by vsync
+	 *
+	 * @param clock		clock or {@code null} to restore default timing
+	 */
+	public SlideShowGroup setFrameClock(FrameClock clock){
+		this.clock = clock;
+		for (int i = 0; i < views.size(); i++)
+			views.get(i).setFrameClock(clock);
+		return this;
+	}
+
+
+
+	/**
+	 * Returns number of views in the group
+	 */
+	public int size(){
+		return views.size();
+	}
+
+
+
+	/**
+	 * Returns cache shared by containers of the group
+	 */
+	public BitmapCache getCache(){
+		return cache;
+	}
+
+
+
+	/**
+	 * Returns scheduler shared by containers of the group
+	 */
+	public DecodeScheduler getScheduler(){
+		return scheduler;
+	}
+
+
+
+	/**
+	 * Shuts down containers created by the group and its scheduler, and removes all views.
+	 * Group must not be used after this call
+	 */
+	public void shutdown(){
+		while (!views.isEmpty())
+			remove(views.get(views.size() - 1));
+		for (int i = 0; i < containers.size(); i++)
+			containers.get(i).shutdown();
+		containers.clear();
+		scheduler.shutdown();
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private BitmapCache cache;
+	final private DecodeScheduler scheduler;
+	final private ArrayList<PrefetchingBitmapContainer> containers = new ArrayList<PrefetchingBitmapContainer>();
+	final private ArrayList<SlideShowSwipe> views = new ArrayList<SlideShowSwipe>();
+	private FrameClock clock;
+
+
+
+	/**
+	 * Spreads phases of slide changes of the views evenly over the period
+	 */
+	private void stagger(){
+		int n = views.size();
+		for (int i = 0; i < n; i++)
+			views.get(i).setSlideShowPhase((float) i / n);
+	}
+
+}
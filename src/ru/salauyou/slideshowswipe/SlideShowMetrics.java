@@ -0,0 +1,268 @@
+package ru.salauyou.slideshowswipe;
+
+
+/**
+ * Metrics of {@code SlideShowSwipe} rendering and of calls to its bitmap container,
+ * aggregated into histograms which can be polled from any thread. All durations are
+ * measured in nanoseconds: durations of work by {@code System.nanoTime()}, and intervals 
+ * between frames by frame clock of the view, which animations are timed by.
+ *
+ * To collect metrics, set an instance to the view by {@code SlideShowSwipe.setMetrics()}.
+ * The view performs no measurements if no metrics are set
+ */
+public class SlideShowMetrics {
+
+
+	static public final long FRAME_INTERVAL_DEFAULT = 16666667L;
+
+
+
+	/**
+	 * Creates metrics for 60 fps display
+	 */
+	public SlideShowMetrics(){
+		this(FRAME_INTERVAL_DEFAULT);
+	}
+
+
+
+	/**
+	 * Creates metrics
+	 *
+	 * @param frameInterval		expected interval between animation frames in ns.
+	 * 							Frames which came later by more than a half of interval are counted as janky
+	 * @throws IllegalArgumentException		if {@code frameInterval <= 0}
+	 */
+	public SlideShowMetrics(long frameInterval) throws IllegalArgumentException {
+		if (frameInterval <= 0)
+			throw new IllegalArgumentException("Frame interval must be positive");
+		this.frameInterval = frameInterval;
+	}
+
+
+
+	/**
+	 * Returns durations of {@code onDraw()}
+	 */
+	public Histogram getDrawTime(){
+		return drawTime;
+	}
+
+
+
+	/**
+	 * Returns intervals between frame times of consecutive animation frames, including
+	 * frames which were not drawn since nothing changed by a pixel
+	 */
+	public Histogram getFrameInterval(){
+		return frameIntervals;
+	}
+
+
+
+	/**
+	 * Returns durations of {@code BitmapContainer.getBitmapNext()}
+	 */
+	public Histogram getContainerNextTime(){
+		return containerNext;
+	}
+
+
+
+	/**
+	 * Returns durations of {@code BitmapContainer.getBitmapPrevious()}
+	 */
+	public Histogram getContainerPreviousTime(){
+		return containerPrevious;
+	}
+
+
+
+	/**
+	 * Returns durations of {@code BitmapContainer.getBitmapCurrent()}
+	 */
+	public Histogram getContainerCurrentTime(){
+		return containerCurrent;
+	}
+
+
+
+	/**
+	 * Returns durations of {@code BitmapContainer.undoGetBitmap()}
+	 */
+	public Histogram getContainerUndoTime(){
+		return containerUndo;
+	}
+
+
+
+	/**
+	 * Returns times from slide timer tick to the end of the first frame drawn after it
+	 */
+	public Histogram getTickToFrameTime(){
+		return tickToFrame;
+	}
+
+
+
+	/**
+	 * Returns durations of transitions between slides, by frame time
+	 * of the first and the last frame of transition
+	 */
+	public Histogram getTransitionTime(){
+		return transitionTime;
+	}
+
+
+
+	/**
+	 * Returns number of frames which came later than expected during animation
+	 */
+	public synchronized long getJankCount(){
+		return jankCount;
+	}
+
+
+
+	/**
+	 * Returns estimated number of frames dropped during animation
+	 */
+	public synchronized long getDroppedFrames(){
+		return droppedFrames;
+	}
+
+
+
+	/**
+	 * Returns number of drawn frames. Animation frames skipped since nothing changed
+	 * by a pixel are not counted
+	 */
+	public synchronized long getFrameCount(){
+		return frameCount;
+	}
+
+
+
+	/**
+	 * Resets all metrics
+	 */
+	public synchronized void reset(){
+		drawTime.reset();
+		frameIntervals.reset();
+		containerNext.reset();
+		containerPrevious.reset();
+		containerCurrent.reset();
+		containerUndo.reset();
+		tickToFrame.reset();
+		transitionTime.reset();
+		jankCount = 0;
+		droppedFrames = 0;
+		frameCount = 0;
+	}
+
+
+
+	@Override
+	public synchronized String toString(){
+		return "SlideShowMetrics[frames=" + frameCount + ", janky=" + jankCount + ", dropped=" + droppedFrames
+				+ ",\n draw=" + drawTime + ",\n interval=" + frameIntervals
+				+ ",\n next=" + containerNext + ",\n previous=" + containerPrevious
+				+ ",\n current=" + containerCurrent + ",\n undo=" + containerUndo
+				+ ",\n tickToFrame=" + tickToFrame + ",\n transition=" + transitionTime + "]";
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private long NO_TIME = Long.MIN_VALUE;
+
+	final private long frameInterval;
+
+	final private Histogram drawTime = new Histogram();
+	final private Histogram frameIntervals = new Histogram();
+	final private Histogram containerNext = new Histogram();
+	final private Histogram containerPrevious = new Histogram();
+	final private Histogram containerCurrent = new Histogram();
+	final private Histogram containerUndo = new Histogram();
+	final private Histogram tickToFrame = new Histogram();
+	final private Histogram transitionTime = new Histogram();
+
+	private long jankCount, droppedFrames, frameCount;
+	private long timeFramePrev = NO_TIME; // frame time of the previous frame, if it requested the next one
+	private long timeTick = NO_TIME; // time of slide timer tick not drawn yet
+
+
+
+	/**
+	 * Invoked by the view when a frame was drawn
+	 *
+	 * @param start		time of start of {@code onDraw()}, by {@code System.nanoTime()}
+	 * @param end		time of end of {@code onDraw()}
+	 * @param frameTime	time the frame was drawn for, by frame clock
+	 * @param animating	if the frame requested the next one
+	 */
+	synchronized void frameDrawn(long start, long end, long frameTime, boolean animating){
+		frameCount++;
+		drawTime.record(end - start);
+		frameTimed(frameTime, animating);
+		if (timeTick != NO_TIME){
+			tickToFrame.record(end - timeTick);
+			timeTick = NO_TIME;
+		}
+	}
+
+
+
+	/**
+	 * Invoked by the view when an animation frame was calculated, but not drawn, 
+	 * since nothing changed by a pixel. Such frame came in time, so it is not 
+	 * counted as a gap between the drawn frames around it
+	 *
+	 * @param frameTime	time the frame was calculated for, by frame clock
+	 * @param animating	if the frame requested the next one
+	 */
+	synchronized void frameSkipped(long frameTime, boolean animating){
+		frameTimed(frameTime, animating);
+	}
+
+
+
+	/**
+	 * Records interval from the previous animation frame, drawn or skipped
+	 */
+	private void frameTimed(long frameTime, boolean animating){
+		if (timeFramePrev != NO_TIME){
+			long interval = frameTime - timeFramePrev;
+			frameIntervals.record(interval);
+			if (interval > frameInterval + frameInterval / 2){
+				jankCount++;
+				droppedFrames += (interval + frameInterval / 2) / frameInterval - 1;
+			}
+		}
+		timeFramePrev = animating ? frameTime : NO_TIME;
+	}
+
+
+
+	/**
+	 * Invoked by the view when slide timer ticked
+	 *
+	 * @param time		time of tick, by {@code System.nanoTime()}
+	 */
+	synchronized void slideTicked(long time){
+		timeTick = time;
+	}
+
+
+
+	/**
+	 * Invoked by the view when transition between slides finished
+	 *
+	 * @param duration	duration by frame time
+	 */
+	void transitionFinished(long duration){
+		transitionTime.record(duration);
+	}
+
+}
@@ -1,19 +1,23 @@
 package ru.salauyou.slideshowswipe;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
 import android.graphics.Rect;
-import android.os.Handler;
-import android.os.Message;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.view.AbsSavedState;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
@@ -41,6 +45,10 @@ public class SlideShowSwipe extends View {
 		/**
 		 * Request of current bitmap. Container shoud return bitmap at its current cursor position.
 		 * 
+		 * Container may return {@code null} if it has no bitmaps yet. In this case, it must invoke 
+		 * {@code SlideShowSwipe.notifyContainerChanged()} as soon as bitmap is available; asynchronous 
+		 * containers notify {@code ContainerObserver} instead.
+		 * 
 		 * Container must return the same (or similar) bitmap as returned by preceding {@code getBitmapCurrent()},
 		 * {@code getBitmapNext()} or {@code getBitmapPrevious()} invocation.
 		 */
@@ -60,6 +68,103 @@ public class SlideShowSwipe extends View {
 		
 	}
 	
+	/**
+	 * Interface of bitmap container which may return {@code null} for slides which are not 
+	 * decoded yet. Such slides are displayed as placeholders until container notifies 
+	 * the view through {@code ContainerObserver} that bitmap is ready. Container may as well
+	 * return a low resolution bitmap first and notify about the full resolution one later:
+	 * it replaces the displayed bitmap in place, not affecting swipe or transition.
+	 * 
+	 * Every slide is identified by a key, which must remain the same while the slide 
+	 * stays in container. Methods of this interface are invoked from the main thread
+	 */
+	public interface AsyncBitmapContainer extends BitmapContainer {
+		
+		/**
+		 * Returns key of the slide at current cursor position, or {@code null} if container is empty
+		 */
+		public Object getKeyCurrent();
+		
+		/**
+		 * Sets observer which container must notify about asynchronously loaded bitmaps.
+		 * Observer callbacks must be invoked from the main thread
+		 * 
+		 * @param observer	observer or {@code null} to stop notifications
+		 */
+		public void setContainerObserver(ContainerObserver observer);
+		
+		/**
+		 * Invoked when swipe launched motion which is expected to stop at the slide {@code count} 
+		 * positions away from the current cursor position. Container may decode that slide and
+		 * slides on the way in advance, and cancel decoding of slides in the opposite direction.
+		 * Prediction is cancelled by {@code count == 0}
+		 * 
+		 * @param direction	{@code +1} if motion goes to next slides, {@code -1} if to previous ones
+		 * @param count		number of slides
+		 */
+		public void onMotionPredicted(int direction, int count);
+		
+		/**
+		 * Invoked when size of the view is changed. Container should decode bitmaps
+		 * downsampled to fit this size, and may ignore insignificant changes
+		 */
+		public void setTargetSize(int width, int height);
+		
+		/**
+		 * Invoked when the set of slides displayed by the view is changed. Container should not
+		 * release bitmaps of these slides until they are reported as not displayed anymore
+		 * 
+		 * @param keyFront	key of current slide, or {@code null}
+		 * @param keyBack	key of slide partially displayed on swipe, or {@code null}
+		 * @param keyPrec	key of slide which fades out during slideshow transition, or {@code null}
+		 */
+		public void onVisibleSlidesChange(Object keyFront, Object keyBack, Object keyPrec);
+		
+	}
+	
+	/**
+	 * Interface of bitmap container which can save position of its cursor with the state 
+	 * of the view, so that the view restored after its process was killed resumes 
+	 * at the same slide
+	 */
+	public interface RestorableBitmapContainer extends BitmapContainer {
+		
+		/**
+		 * Returns position of the cursor, which is saved with the state of the view
+		 */
+		public String saveCursor();
+		
+		/**
+		 * Moves the cursor to the saved position. Invoked when state of the view is restored,
+		 * before the current bitmap is requested, so container should start decoding 
+		 * of the current slide. If the saved slide is not found, container should move 
+		 * to a nearby one
+		 * 
+		 * @param cursor	position returned by {@code saveCursor()}, possibly in another process
+		 */
+		public void restoreCursor(String cursor);
+		
+	}
+	
+	/**
+	 * Interface to receive notifications from {@code AsyncBitmapContainer}
+	 */
+	public interface ContainerObserver {
+		
+		/**
+		 * Invoked when bitmap of the slide with given key was loaded. If the view displays
+		 * another bitmap of this slide, it is replaced by the loaded one
+		 */
+		public void onBitmapLoaded(Object key, Bitmap bitmap);
+		
+		/**
+		 * Invoked when slides of container were added, removed or reordered,
+		 * so the current slide may be different
+		 */
+		public void onContainerChanged();
+		
+	}
+	
 	/**
 	 * Interface to send callbacks when state is changed
 	 */
@@ -89,8 +194,24 @@ public class SlideShowSwipe extends View {
 		RESET, SLIDESHOW_STARTED, NEXT_SLIDE, SLIDESHOW_PAUSED; 
 	}
 	
+	/**
+	 * Ways to scale slides to the view
+	 */
+	public enum ScaleMode {
+		
+		/** Slide fits the view, aligned to center and scaled proportionally */
+		FIT_CENTER,
+		
+		/** Slide fills the view, aligned to center and scaled proportionally, so its edges may be cropped */
+		CENTER_CROP,
+		
+		/** Slide fills the width of the view, aligned to center and scaled proportionally */
+		FIT_WIDTH;
+	}
+	
 	static public long PERIOD_DEFAULT = 1500L;
 	static public long TRANSITION_DEFAULT = 500L;
+	static public int PLACEHOLDER_COLOR_DEFAULT = 0x40000000;
 	
 	
     
@@ -102,7 +223,22 @@ public class SlideShowSwipe extends View {
 	public SlideShowSwipe setBitmapContainer(BitmapContainer container) throws NullPointerException{
 		if (container == null)
 			throw new NullPointerException("Container is null");
+		if (asyncContainer != null){
+			asyncContainer.setContainerObserver(null);
+			asyncContainer.onVisibleSlidesChange(null, null, null);
+			keyFrontVisible = keyBackVisible = keyPrecVisible = null;
+		}
 		this.container = container;
+		if (container instanceof AsyncBitmapContainer){
+			asyncContainer = (AsyncBitmapContainer) container;
+			asyncContainer.setContainerObserver(observer);
+			if (!rectDimensions.isEmpty())
+				asyncContainer.setTargetSize(rectDimensions.width(), rectDimensions.height());
+		} else {
+			asyncContainer = null;
+		}
+		if (restored != null)
+			restoreCursor(restored);
 		reset();
 		return this;
 	}
@@ -160,6 +296,24 @@ public class SlideShowSwipe extends View {
 	
 	
 	
+	/**
+	 * Sets phase of slide changes, so that views of the same period showing at the same time
+	 * change slides at different moments rather than on the same frame. Slides are changed
+	 * at times {@code t} such that {@code t % period == phase * period}, 
+	 * by {@code SystemClock.uptimeMillis()}
+	 * 
+	 * @param phase		fraction of period from 0 to 1, or negative value to change slides 
+	 * 					by period from the moment slideshow started (default)
+	 * @return
+	 */
+	public SlideShowSwipe setSlideShowPhase(float phase){
+		this.phase = phase < 0 ? -1 : phase % 1f;
+		SlideTimer.getInstance().setPhase(slideTimerEntry, tickPhase(slideTimerEntry.period));
+		return this;
+	}
+	
+	
+	
 	/**
 	 * Sets duration of transition between slides
 	 * 
@@ -180,6 +334,124 @@ public class SlideShowSwipe extends View {
 	
 	
 	
+	/**
+	 * Sets transition between slides and its easing curve. Transition is applied 
+	 * for the duration set by {@code setSlideShowTransition(long)}
+	 * 
+	 * @param transition	transition, or {@code null} to set default cross-fade
+	 * @param easing		easing curve, or {@code null} to set default linear one
+	 * @return
+	 */
+	public SlideShowSwipe setSlideShowTransition(SlideTransition transition, Easing easing){
+		this.slideTransition = transition == null ? SlideTransition.CROSSFADE : transition;
+		this.easing = easing == null ? Easing.LINEAR : easing;
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets color of placeholder which is drawn instead of slides not loaded yet 
+	 * by {@code AsyncBitmapContainer}
+	 * 
+	 * @param color		color in ARGB format
+	 * @return
+	 */
+	public SlideShowSwipe setPlaceholderColor(int color){
+		this.placeholderColor = color;
+		this.invalidate();
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets the way slides are scaled to the view
+	 * 
+	 * @throws NullPointerException
+	 */
+	public SlideShowSwipe setScaleMode(ScaleMode mode) throws NullPointerException{
+		if (mode == null)
+			throw new NullPointerException("Scale mode is null");
+		if (mode != scaleMode){
+			scaleMode = mode;
+			fitRectsChanged();
+			this.invalidate();
+		}
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Returns the way slides are scaled to the view
+	 */
+	public ScaleMode getScaleMode(){
+		return scaleMode;
+	}
+	
+	
+	
+	/**
+	 * Sets if slides are rendered through GPU layers. Each slide is rasterized into its layer 
+	 * once, and swipes and transitions only move and fade layers, so bitmaps are not redrawn 
+	 * every frame. Works only on Android 10 (API 29) and higher in hardware accelerated windows. 
+	 * Below API 29 this setting does nothing and slides are drawn as usual: a hardware layer 
+	 * of the whole view would be redrawn on every frame of a swipe, so there is no pre-Q fallback
+	 * 
+	 * @return
+	 */
+	public SlideShowSwipe setLayerRendering(boolean enabled){
+		if (enabled != layerRendering){
+			layerRendering = enabled;
+			discardLayers();
+			this.invalidate();
+		}
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets metrics to record rendering and container performance into
+	 * 
+	 * @param metrics	metrics or {@code null} to stop recording
+	 * @return
+	 */
+	public SlideShowSwipe setMetrics(SlideShowMetrics metrics){
+		this.metrics = metrics;
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Returns metrics set to the view, or {@code null}
+	 */
+	public SlideShowMetrics getMetrics(){
+		return metrics;
+	}
+	
+	
+	
+	/**
+	 * Sets clock which all animations, touch motion and frame metrics are timed by. 
+	 * By default, frames are timed by vsync time of the frame, and updates between frames 
+	 * by {@code SystemClock.uptimeMillis()}. The clock does not affect pacing: frames are scheduled 
+	 * by vsync on Jelly Bean and higher in either case
+	 * 
+	 * @param clock		clock or {@code null} to restore default timing
+	 * @return
+	 */
+	public SlideShowSwipe setFrameClock(FrameClock clock){
+		this.frameClock = clock;
+		timeLatest = NO_TIME;
+		timeVsync = NO_TIME;
+		return this;
+	}
+	
+	
+	
 	/**
 	 * Starts or unpauses slideshow, if it waw paused by {@code pauseSlideShow() or user's gesture.
 	 * After creating the view and setting bitmap container, revoke {@code startSlideShow()} 
@@ -211,6 +483,19 @@ public class SlideShowSwipe extends View {
 	}
 	
 	
+	/**
+	 * Notifies the view that slides of its container were changed, so the current slide should
+	 * be re-queried. Notifications are coalesced: however many of them were made before the main
+	 * thread handles them, the current bitmap is requested once and the view is redrawn once.
+	 * While slides are moved by swipe, the change is applied after they settle.
+	 * May be invoked from any thread
+	 */
+	public void notifyContainerChanged(){
+		if (containerChangePosted.compareAndSet(false, true))
+			self.post(containerChange);
+	}
+	
+	
 	/**
 	 * Restores slideshow to demonstrate the current bitmap. It must not be null.
 	 * To make the view wait for non-null current bitmap, use {@code startSlideShow()} instead
@@ -221,19 +506,14 @@ public class SlideShowSwipe extends View {
 	public void restoreCurrent(boolean paused) throws NullPointerException{
 		if (container == null)
 			throw new NullPointerException("Container is null");
-		if (container.getBitmapCurrent() == null)
+		Bitmap b = containerCurrent();
+		if (b == null)
 			throw new NullPointerException("Current bitmap is null");
 		
-		bitmapPrec = bitmapFront = container.getBitmapCurrent();
-		
-		started = true;
-		pausedManually = false;
-		if (paused)
-			pause();
-		else
-			unPause();
-		
-		this.invalidate();
+		bitmapFront = b;
+		keyFront = keyCurrent();
+		restored = null;
+		restore(paused, false, period);
 	}
 	
 	
@@ -261,7 +541,10 @@ public class SlideShowSwipe extends View {
 	final private SlideShowSwipe self = this;
 	
 	private BitmapContainer container;
+	private AsyncBitmapContainer asyncContainer; // the same container, if it is asynchronous
 	private Bitmap bitmapFront, bitmapBack, bitmapPrec;
+	private Object keyFront, keyBack, keyPrec; // keys of slides, if container is asynchronous
+	private Object keyFrontVisible, keyBackVisible, keyPrecVisible; // keys latest reported to container
 	
 	private State stateCurrent = State.RESET;
 	private OnStateChangeListener stateChangeListener;
@@ -271,36 +554,124 @@ public class SlideShowSwipe extends View {
 	private Rect rectDstF = new Rect(); // destination rect of 'front' bitmap (i. e. current)
 	private Rect rectDstB = new Rect(); // destination rect of 'back' bitmap (i. e. that which is partially viewed on swipe)
 	private Rect rectDstP = new Rect(); // destination rect of 'preceding' bitmap (i. e. that which fades out during slideshow transition)
+	private Rect rectPageF = new Rect(); // area of the view occupied by 'front' slide
+	private Rect rectPageB = new Rect(); // area of the view occupied by 'back' slide
+	private Rect rectPageP = new Rect(); // area of the view occupied by 'preceding' slide
+	
+	private ScaleMode scaleMode = ScaleMode.FIT_CENTER;
+	final private Bitmap[] fitBitmaps = new Bitmap[FIT_CACHE_SIZE]; // bitmaps whose destination rects are cached
+	final private int[] fitSizes = new int[FIT_CACHE_SIZE * 2]; // width and height of cached bitmaps
+	final private Rect[] fitRects = new Rect[FIT_CACHE_SIZE]; // cached destination rects for the current view size
+	private int fitVictim = 0; // slot of the fit rect cache to be replaced next
 
 	private Paint paintAlphaF = new Paint(Paint.FILTER_BITMAP_FLAG);
 	private Paint paintAlphaB = new Paint(Paint.FILTER_BITMAP_FLAG);
 	private Paint paintAlphaP = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private Paint paintPlaceholder = new Paint();
+	private int placeholderColor = PLACEHOLDER_COLOR_DEFAULT;
 	
 	private volatile boolean firstBitmapRequested = false;
 	private boolean started = false; // indicates if slide show was started (i. e. bitmaps != null)
-	private boolean startedMove = false; // indicates if some touch movement already occured
 	private boolean pausedNow = false;
 	private boolean paused = true;
 	private boolean pausedManually = true;
-	private boolean undoAtZero = false;
 
-	private float touchPath;
-	private float deltaX, deltaXPrec, xStart, xStartRaw, yStartRaw;
-	
-	private long timeTouchStart, timeStartRaw;
-	private long touchTimeThreshold = 200;
 	private long period = PERIOD_DEFAULT;
+	private float phase = -1; // phase of slide changes as fraction of period, if not negative
 	private long transition = TRANSITION_DEFAULT;
-	private volatile AtomicLong timeTransitionStart = new AtomicLong(-1);
+	private long timeTransitionStart = NO_TIME; // frame time when transition started, in ns
+	private SlideTransition slideTransition = SlideTransition.CROSSFADE;
+	private Easing easing = Easing.LINEAR;
+	final private SlideTransition.Transform transformF = new SlideTransition.Transform();
+	final private SlideTransition.Transform transformP = new SlideTransition.Transform();
+	
+	private FrameClock frameClock; // if null, time is taken from vsync and uptime
+	private SlideShowMetrics metrics; // if null, nothing is measured
+	private boolean layerRendering = false;
+	private SlideLayer[] layers; // layers of front, back and preceding slides, created on first use
+	private VsyncCallback vsyncCallback;
+	private long timeFrame = NO_TIME; // time of the frame calculated ahead of drawing
+	private long timeLatest = NO_TIME; // latest time taken from the clock, so that time never goes backwards
+	private long timeVsync = NO_TIME; // time of the latest vsync, if no clock is set
+	private boolean frameScheduled = false;
+	final private AtomicBoolean containerChangePosted = new AtomicBoolean();
+	private boolean containerChangeDeferred = false; // change of container to be applied when slides settle
+	private SavedState restored; // state to be applied when the first slide is shown
+	
+	// state of the latest drawn frame, to redraw only areas which changed
+	final private Rect rectDrawn = new Rect(); // union of areas of drawn slides
+	final private Rect rectDirty = new Rect();
+	private int offsetDrawn;
+	final private Rect rectDrawnF = new Rect(), rectDrawnP = new Rect(), rectPageDrawnF = new Rect();
+	private int alphaDrawnF, alphaDrawnB, alphaDrawnP;
+	private boolean transitionDrawn;
+	
+	static final private long NO_TIME = Long.MIN_VALUE;
+	static final private int FIT_CACHE_SIZE = 6;
+	static final private long FRAME_DELAY = 16; // delay between frames not timed by vsync, in ms
+	static final private long VSYNC_VALID = 50000000L; // time after vsync when its time is used for updates, in ns
+	static final private int SLOT_FRONT = 0, SLOT_BACK = 1, SLOT_PREC = 2;
+	
+	final private SwipePhysics physics = new SwipePhysics();
+	private int backDirection; // direction of the latest back request, see SwipePhysics.Listener
+	
+	final private SwipePhysics.Listener swipeListener = new SwipePhysics.Listener(){
+		@Override
+		public void onBackRequest(int direction) {
+			backRequested(direction);
+		}
+		
+		@Override
+		public void onBackPromote() {
+			bitmapFront = bitmapBack;
+			keyFront = keyBack;
+			rectDstFOrig = rectDstBOrig; 
+			bitmapChanged();
+		}
+		
+		@Override
+		public void onBackCancel() {
+			containerUndo();
+			bitmapBack = bitmapFront;
+			keyBack = keyFront;
+			rectDstBOrig = rectDstFOrig;
+		}
+	};
+	
+	final private SlideTimer.Entry slideTimerEntry = new SlideTimer.Entry(new SlideTimer.Client(){
+		@Override
+		public void onSlideTick(long time) {
+			nextSlide();
+		}
+	});
+	
+	final private Runnable frameTick = new Runnable(){
+		@Override
+		public void run() {
+			frameScheduled = false;
+			onFrame(now());
+		}
+	};
 	
-	private float v0, vC; // start and calculated velocity
-	private float xC, xCPrec; // start x, calculated x and preceeding calculated x
-	private float kVScreen = 4f;	// deceleration coefficient relative to view width
-	private float kV; // deceleration coefficient in px/s^2
-	private float touchMoveThresholdScreen = 0.03f; // size of maximum movement to be threated as click, in screen width 
-	private float touchMoveThreshold; // the same in pixels
+	final private ContainerObserver observer = new ContainerObserver(){
+		@Override
+		public void onBitmapLoaded(Object key, Bitmap bitmap) {
+			bitmapLoaded(key, bitmap);
+		}
+		
+		@Override
+		public void onContainerChanged() {
+			notifyContainerChanged();
+		}
+	};
 	
-	private ExecutorService scheduler;
+	final private Runnable containerChange = new Runnable(){
+		@Override
+		public void run() {
+			containerChangePosted.set(false);
+			containerChanged();
+		}
+	};
 	
 	
 	
@@ -314,16 +685,9 @@ public class SlideShowSwipe extends View {
 		if (started){
 			if (e.getAction() == MotionEvent.ACTION_DOWN){
 			
-				v0 = 0;
-				vC = 0;
-			
-				xStartRaw = e.getRawX();
-				yStartRaw = e.getRawY();
-			
-				xStart = e.getRawX() - deltaX;
-				timeTouchStart = timeStartRaw = System.currentTimeMillis();
-			
-				touchPath = 0;
+				physics.touchDown(e.getRawX(), e.getRawY(), e.getEventTime());
+				if (asyncContainer != null)
+					asyncContainer.onMotionPredicted(0, 0);
 			
 				// pause slideshow if needed
 				if (!paused && !pausedManually){
@@ -331,88 +695,28 @@ public class SlideShowSwipe extends View {
 					pausedNow = true;
 				}
 			
-			
 			} else if (e.getAction() == MotionEvent.ACTION_MOVE) {
 		
-				deltaX = e.getRawX() - xStart;
-				float dt = (float)(System.currentTimeMillis() - timeTouchStart) / 1000f;
-			
-				// threshold to avoid very small dt 
-				if (dt > 0.02){
-					v0 = v0 * 0.25f + 0.75f * (e.getRawX() - xStartRaw) / dt;
-					xStartRaw = e.getRawX();
-					timeTouchStart = System.currentTimeMillis();
-				}
-			
-				// calculate path of touch--this is needed to recognize clicks
-				touchPath += Math.hypot(e.getRawX() - xStartRaw, e.getRawY() - yStartRaw);
-			
-				self.invalidate();
+				touchHistory(e);
+				physics.touchMove(e.getRawX(), e.getRawY(), e.getEventTime());
+				
+				// redraw only if the slide moved by a pixel
+				if ((int) physics.getOffset() != offsetDrawn)
+					onFrame(now());
 		    
 			} else if (e.getAction() == MotionEvent.ACTION_UP){
 			
-				timeTouchStart = System.currentTimeMillis();
-			
-				// correct deceleration coefficient sign
-				kV = v0 > 0 ? +Math.abs(kV) : -Math.abs(kV);
-			
-				// correct start velocity
-				// calculate the x point where self motion will stop
-				double xEnd = v0 * v0 / 2f / kV;
-			
-				// swipe not strong enough to launch motion
-				if (Math.abs(xEnd) < rectDimensions.width() / 2){ 
-				
-					// but strong enough to switch photo?
-					boolean strong = Math.abs(xEnd) >= rectDimensions.width() / 4; 
-					float w = rectDimensions.width();
-				
-					if (deltaX >= 0 && deltaX < w / 2 ){
-						if (strong){
-							xEnd = w - deltaX;
-							v0 = +1;
-						} else {
-							xEnd = -deltaX;
-							v0 = -1;	
-						}
-					} else if (deltaX < 0 && deltaX > -w / 2){
-						if (strong){
-							xEnd = w + deltaX;
-							v0 = -1;
-						} else {
-							xEnd = -deltaX;
-							v0 = +1;
-						}
-					} else if (deltaX >= 0 && deltaX >= w / 2){
-						xEnd = w - deltaX;
-						v0 = +1;		
-					} else if (deltaX < 0 && deltaX < -w / 2){						
-						xEnd = -w - deltaX;
-						v0 = -1;			
-					} 
-				
-				} else {
-					// correct ending point such that motion will stop when full image is displayed
-					xEnd = Math.round((xEnd + deltaX)/rectDimensions.width()) 
-							* rectDimensions.width() - deltaX;
-				}
-			
-				// correct deceleration coefficient sign
-				kV = v0 > 0 ? +Math.abs(kV) : -Math.abs(kV);
-			
-				// calculate corrected velocity 
-				v0 = Math.signum(v0) * (float) Math.sqrt(Math.abs(2.0 * kV * xEnd));
-				vC = v0;
-				xCPrec = 0;
+				touchHistory(e);
+				boolean click = physics.touchUp(e.getRawX(), e.getEventTime(), now());
+				motionPredicted();
 			
 				// small movement treated as touch unpauses slideshow
-				if (touchPath <= touchMoveThreshold && !pausedManually && paused && !pausedNow
-						&& System.currentTimeMillis() - timeStartRaw <= touchTimeThreshold)			
+				if (click && !pausedManually && paused && !pausedNow)			
 					unPause();
 				else 
 					pausedNow = false;
 			
-				self.invalidate();
+				scheduleFrame();
 			}
 		}
 		return true;
@@ -420,6 +724,18 @@ public class SlideShowSwipe extends View {
 	
 
 	
+	/**
+	 * Passes samples batched into the event since the previous one to velocity estimation,
+	 * shifted to raw coordinates
+	 */
+	private void touchHistory(MotionEvent e){
+		float dx = e.getRawX() - e.getX();
+		for (int i = 0, n = e.getHistorySize(); i < n; i++)
+			physics.touchSample(e.getHistoricalX(i) + dx, e.getHistoricalEventTime(i));
+	}
+	
+	
+	
 	/**
 	 * {@code onSizeChange()} override
 	 */
@@ -433,11 +749,78 @@ public class SlideShowSwipe extends View {
 		rectDimensions.top = 0;
 		rectDimensions.bottom = h;
 		
-		// update decceleration coefficient
-		kV = kVScreen * w;
+		// update decceleration coefficient and move/click threshold
+		physics.setSize(w, h);
 		
-		// update move/click threshold
-		touchMoveThreshold = touchMoveThresholdScreen * Math.min(w, h);
+		// destination rects depend on view size
+		fitRectsChanged();
+		
+		// let container decode slides downsampled to the view size
+		if (asyncContainer != null)
+			asyncContainer.setTargetSize(w, h);
+	}
+	
+	
+	
+	/**
+	 * {@code onSaveInstanceState()} override. Saves position of the cursor of container,
+	 * if it is {@link RestorableBitmapContainer}, pause state of slideshow and time left 
+	 * to the next slide
+	 */
+	@Override
+	protected Parcelable onSaveInstanceState(){
+		SavedState s = saveState(super.onSaveInstanceState());
+		if (container instanceof RestorableBitmapContainer)
+			s.cursor = ((RestorableBitmapContainer) container).saveCursor();
+		if (s.cursor == null && restored != null)
+			s.cursor = restored.cursor;
+		return s;
+	}
+	
+	
+	
+	/**
+	 * Saves pause state of slideshow, time left to the next slide and size of the view
+	 */
+	private SavedState saveState(Parcelable superState){
+		SavedState s = new SavedState(superState);
+		if (restored != null){
+			// saved again before the restored state was applied
+			s.paused = restored.paused;
+			s.pausedManually = restored.pausedManually;
+			s.remaining = restored.remaining;
+			s.width = restored.width;
+			s.height = restored.height;
+			return s;
+		}
+		s.paused = paused;
+		s.pausedManually = pausedManually;
+		s.remaining = paused ? -1 : Math.max(0, slideTimerEntry.nextTick - SystemClock.uptimeMillis());
+		s.width = rectDimensions.width();
+		s.height = rectDimensions.height();
+		return s;
+	}
+	
+	
+	
+	/**
+	 * {@code onRestoreInstanceState()} override. Moves cursor of container to the saved slide
+	 * and lets container start decoding it for the saved view size, before the view is measured. 
+	 * Slideshow is resumed when the slide is shown, with the time which was left to the next slide
+	 */
+	@Override
+	protected void onRestoreInstanceState(Parcelable state){
+		if (!(state instanceof SavedState)){
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		SavedState s = (SavedState) state;
+		super.onRestoreInstanceState(s.getSuperState());
+		restored = s;
+		if (container != null){
+			restoreCursor(s);
+			reset();
+		}
 	}
 	
 	
@@ -448,10 +831,15 @@ public class SlideShowSwipe extends View {
 	@Override
 	protected void onDetachedFromWindow(){
 		super.onDetachedFromWindow();
+		releaseSlides();
 		pause();
-		vC = 0;
-		v0 = 0;
-		timeTransitionStart.set(-1);
+		physics.stop();
+		timeTransitionStart = NO_TIME;
+		if (vsyncCallback != null)
+			vsyncCallback.cancel();
+		self.removeCallbacks(frameTick);
+		frameScheduled = false;
+		discardLayers();
 	}
 	
 	
@@ -462,6 +850,10 @@ public class SlideShowSwipe extends View {
 	@Override
 	protected void onDraw(Canvas c){
 		super.onDraw(c);
+		SlideShowMetrics m = metrics;
+		long timeStart = m != null ? System.nanoTime() : 0;
+		long time = NO_TIME;
+		boolean animating = false;
 		if (container != null){
 			// if view just created or reset
 			if (!started){  
@@ -470,58 +862,83 @@ public class SlideShowSwipe extends View {
 						getFirstBitmap();
 						firstBitmapRequested = true;
 					}
+				} else if (restored != null){
+					SavedState s = restored;
+					restored = null;
+					restore(s.paused || s.pausedManually, s.pausedManually, s.remaining);
 				} else {
 					if (!pausedManually){
 						unPause();
 					}
 				}
-			} else {
-				makeCalculations();
+			}
+			if (started){
+				time = frameTime();
+				makeCalculations(time);
 				if (bitmapBack != null)
-					c.drawBitmap(bitmapBack, null, rectDstB, paintAlphaB);
-				if (timeTransitionStart.get() > 0 && bitmapPrec != null)
-					c.drawBitmap(bitmapPrec, null, rectDstP, paintAlphaP);
+					drawSlide(c, bitmapBack, rectDstB, rectPageB, paintAlphaB, SLOT_BACK);
+				else if (keyBack != null && physics.getOffset() != 0)
+					drawPlaceholder(c, rectPageB, paintAlphaB.getAlpha());
+				if (timeTransitionStart != NO_TIME && bitmapPrec != null)
+					drawSlide(c, bitmapPrec, rectDstP, rectPageP, paintAlphaP, SLOT_PREC);
 				if (bitmapFront != null)
-					c.drawBitmap(bitmapFront, null, rectDstF, paintAlphaF);
-				if ((v0 != 0 && vC != 0) || timeTransitionStart.get() > 0)
-					self.invalidate();
+					drawSlide(c, bitmapFront, rectDstF, rectPageF, paintAlphaF, SLOT_FRONT);
+				else if (keyFront != null)
+					drawPlaceholder(c, rectPageF, paintAlphaF.getAlpha());
+				
+				// remember what was drawn
+				offsetDrawn = (int) physics.getOffset();
+				alphaDrawnF = paintAlphaF.getAlpha();
+				alphaDrawnB = paintAlphaB.getAlpha();
+				alphaDrawnP = paintAlphaP.getAlpha();
+				transitionDrawn = timeTransitionStart != NO_TIME;
+				rectDrawnF.set(rectDstF);
+				rectDrawnP.set(rectDstP);
+				rectPageDrawnF.set(rectPageF);
+				rectDrawn.setEmpty();
+				unionSlides(rectDrawn);
+				
+				if (physics.isMoving() || timeTransitionStart != NO_TIME){
+					scheduleFrame();
+					animating = true;
+				}
 			}
 		}
+		if (m != null)
+			m.frameDrawn(timeStart, System.nanoTime(), time != NO_TIME ? time : now(), animating);
 	}
 	
 	
 	
 	/**
-	 * Runs new thread to get the first non-null bitmap from the container
+	 * Drops displayed slides and unpins them in asynchronous container, so that slides 
+	 * of a detached view can be evicted from a shared cache. The current slide is requested
+	 * again when the view is drawn, and slideshow resumes in the state it was in. 
+	 * Listener is not notified, since the state does not change for the user
 	 */
+	void releaseSlides(){
+		if (asyncContainer == null)
+			return;
+		SavedState s = started ? saveState(AbsSavedState.EMPTY_STATE) : restored;
+		if (physics.isBackRequested())
+			containerUndo();
+		paused = true;
+		SlideTimer.getInstance().cancel(slideTimerEntry);
+		dropSlides();
+		restored = s;
+	}
+	
+	
 	
+	/**
+	 * Gets the first bitmap from the container. If it is not available yet, the view 
+	 * waits for notification from the container, see {@code BitmapContainer.getBitmapCurrent()}
+	 */
 	private void getFirstBitmap(){
-
-		if (container.getBitmapCurrent() == null){
-			
-			// launch executor service to perform attempts to get current bitmap
-			final ExecutorService e = Executors.newScheduledThreadPool(1);
-			
-			final Handler h = new Handler(){
-				@Override
-				public void handleMessage(Message m){
-					bitmapFront = container.getBitmapCurrent();
-					self.invalidate();
-				}
-			};
-			
-			((ScheduledExecutorService) e).scheduleAtFixedRate(new Runnable(){
-				@Override
-				public void run() {
-					if (container.getBitmapCurrent() != null){
-						h.sendEmptyMessage(1);
-						e.shutdownNow();
-					}
-				}
-			}, 150, 150, TimeUnit.MILLISECONDS);
-
-		} else {
-			bitmapFront = container.getBitmapCurrent();
+		Bitmap b = containerCurrent();
+		if (b != null){
+			bitmapFront = b;
+			keyFront = keyCurrent();
 			self.invalidate();
 		}
 	}
@@ -529,58 +946,116 @@ public class SlideShowSwipe extends View {
 	
 	
 	/**
-	 * Pauses slide show
+	 * Re-queries the current slide after container was changed, and replaces displayed
+	 * slide if it is different
 	 */
-	private void pause(){
-		paused = true;
-		if (scheduler != null){
-			((ScheduledExecutorService)scheduler).shutdown();
-			scheduler = null;
+	private void containerChanged(){
+		containerChangeDeferred = false;
+		if (container == null)
+			return;
+		
+		// the first slide is awaited
+		if (!started){
+			if (firstBitmapRequested){
+				bitmapFront = null;
+				getFirstBitmap();
+			}
+			return;
 		}
-		stateChanged(State.SLIDESHOW_PAUSED);
+		
+		// container cursor is at the back slide
+		if (!settled()){
+			containerChangeDeferred = true;
+			return;
+		}
+		
+		Bitmap b = containerCurrent();
+		Object k = keyCurrent();
+		if (k != null ? k.equals(keyFront) : (keyFront == null && b == bitmapFront))
+			return;
+		bitmapBack = bitmapFront = b;
+		keyBack = keyFront = k;
+		rectDstBOrig = rectDstFOrig = b != null ? fitRect(b) : null;
+		bitmapChanged();
+		visibleSlidesChanged();
+		self.invalidate();
 	}
 	
 	
 	
 	/**
-	 * Unpauses slide show and launches transition
+	 * Checks if slides are not moved by swipe and no back slide is requested from container
 	 */
-	private void unPause(){
-		
-		if (paused || pausedManually){
-			
-			final Handler h = new Handler(){
-				@Override
-				public void handleMessage(Message m){
-					bitmapPrec = bitmapFront;
-					rectDstPOrig = rectDstFOrig;
-					bitmapFront = container.getBitmapNext();
-					bitmapBack = bitmapFront;
-					bitmapChanged();
-					if (bitmapFront != null)
-						rectDstBOrig = rectDstFOrig = calculateRectDst(bitmapFront, rectDimensions);
-					makeCalculations();
-					
-					stateChanged(State.NEXT_SLIDE);
-					
-					self.invalidate();
-				}
-			};
+	private boolean settled(){
+		return physics.getOffset() == 0 && !physics.isMoving() && !physics.isBackRequested();
+	}
+	
+	
+	
+	/**
+	 * Pauses slide show
+	 */
+	private void pause(){
+		paused = true;
+		SlideTimer.getInstance().cancel(slideTimerEntry);
+		stateChanged(State.SLIDESHOW_PAUSED);
+	}
+	
+	
+	
+	/**
+	 * Shows the next slide and launches transition. Invoked by slide timer
+	 */
+	private void nextSlide(){
+		if (metrics != null)
+			metrics.slideTicked(System.nanoTime());
+		long t = now();
+		timeTransitionStart = t;
 		
-			long p = bitmapPrec == null ? 0 : period;
-
-			// timer that performs slide changes
-			scheduler = Executors.newScheduledThreadPool(1);
-			((ScheduledExecutorService)scheduler).scheduleAtFixedRate(new Runnable(){
-				@Override
-				public void run() {
-					timeTransitionStart.set(System.currentTimeMillis());
-					h.sendEmptyMessage(1);
-				}
-			}, p, period, TimeUnit.MILLISECONDS);
+		bitmapPrec = bitmapFront;
+		keyPrec = keyFront;
+		rectDstPOrig = rectDstFOrig;
+		bitmapFront = containerNext();
+		keyFront = keyCurrent();
+		bitmapBack = bitmapFront;
+		keyBack = keyFront;
+		physics.clearBackRequest();
+		bitmapChanged();
+		if (bitmapFront != null)
+			rectDstBOrig = rectDstFOrig = fitRect(bitmapFront);
+		makeCalculations(t);
+		
+		stateChanged(State.NEXT_SLIDE);
+		
+		self.invalidate();
+	}
+	
+	
+	
+	/**
+	 * Unpauses slide show and launches transition
+	 */
+	private void unPause(){
+		unPause(bitmapPrec == null ? 0 : period);
+	}
+	
+	
+	
+	/**
+	 * Unpauses slide show, showing the next slide after the given delay in ms
+	 */
+	private void unPause(long delay){
+		
+		if (paused || pausedManually){
+			
+			// shared timer that performs slide changes
+			slideTimerEntry.phase = tickPhase(period);
+			SlideTimer.getInstance().schedule(slideTimerEntry, delay, period);
 			
 			paused = false;
-			stateChanged(State.SLIDESHOW_STARTED);
+			// slideshow paused by releaseSlides() resumes silently, as it paused
+			if (stateCurrent != State.NEXT_SLIDE)
+				stateChanged(State.SLIDESHOW_STARTED);
 			
 			self.invalidate();
 		}
@@ -589,133 +1064,88 @@ public class SlideShowSwipe extends View {
 	
 	
 	
+	/**
+	 * Starts demonstration of the front slide, which was restored
+	 * 
+	 * @param paused			if slideshow should be paused
+	 * @param pausedManually	if it was paused by {@code pauseSlideShow()}
+	 * @param delay				delay before the next slide if slideshow is not paused, in ms
+	 */
+	private void restore(boolean paused, boolean pausedManually, long delay){
+		bitmapPrec = bitmapFront;
+		keyPrec = keyFront;
+		
+		started = true;
+		this.pausedManually = pausedManually;
+		if (paused)
+			pause();
+		else
+			unPause(delay);
+		
+		this.invalidate();
+	}
+	
+	
+	
+	/**
+	 * Moves cursor of container to the slide of the saved state. If the view is not measured 
+	 * yet, container is let to decode the slide for the saved size of the view
+	 */
+	private void restoreCursor(SavedState s){
+		if (s.cursor == null || !(container instanceof RestorableBitmapContainer))
+			return;
+		((RestorableBitmapContainer) container).restoreCursor(s.cursor);
+		if (asyncContainer != null && rectDimensions.isEmpty() && s.width > 0 && s.height > 0)
+			asyncContainer.setTargetSize(s.width, s.height);
+	}
+	
+	
+	
 	/**
 	 * Process calculations of positions at which bitmaps should be drawn, 
 	 * depending on swipe and transition between bitmaps
+	 * 
+	 * @param time	frame time in ns
 	 */
-	private void makeCalculations(){
+	private void makeCalculations(long time){
 		
 		// special case: calculate destination rect in case of restoring slide show position
 		if (bitmapFront != null && rectDstFOrig == null)
-			rectDstFOrig = calculateRectDst(bitmapFront, rectDimensions);
+			rectDstFOrig = fitRect(bitmapFront);
 	
 		
 		// first call
 		if (!started){
 			if (bitmapFront != null)
-				rectDstFOrig = calculateRectDst(bitmapFront, rectDimensions);
+				rectDstFOrig = fitRect(bitmapFront);
 			rectDstBOrig = rectDstFOrig;
 			started = true;
 			bitmapChanged();
 		}
 		
-		// first call from stable state
-		if (!startedMove){
-			if (deltaX > 0){
-				bitmapBack = container.getBitmapPrevious();
-				if (bitmapBack != null)
-					rectDstBOrig = calculateRectDst(bitmapBack, rectDimensions);
-				startedMove = true;
-			} else if (deltaX < 0){
-				bitmapBack = container.getBitmapNext();
-				if (bitmapBack != null)
-					rectDstBOrig = calculateRectDst(bitmapBack, rectDimensions);
-				startedMove = true;
-			}
-		}
-
-		float w = rectDimensions.width();
-		
-		// perform self motion
-		if (v0 != 0 && vC != 0)
-		{
-			float t = (System.currentTimeMillis() - timeTouchStart) / 1000f;
-			vC = v0 - kV * t;
-			xC = v0 * t - kV * t * t / 2f;
-			deltaX += xC - xCPrec;
-			xCPrec = xC;
-			
-			// velocity changed sign: stop self motion
-			if ((vC < 0 && v0 > 0) || (vC > 0 && v0 < 0)){ 
-	
-				// correct image position on motion stop
-				if (v0 < 0 && deltaX < -0.5 * w && deltaX > -1.5 * w){
-					deltaX = -w;
-					deltaXPrec = -w;
-				} else if (v0 > 0 && deltaX > 0.5 * w && deltaX < 1.5 * w){
-					deltaX = w;
-					deltaXPrec = w;
-				} else {
-					deltaX = 0;
-					deltaXPrec = 0;
-				}
-				vC = 0;
-				v0 = 0;
-			}
-		}
+		// perform self motion and change slides crossing the view borders
+		physics.update(time, swipeListener);
+		if (containerChangeDeferred && settled())
+			notifyContainerChanged();
 		
-		// normalize deltas if image crossed opposite canvas border
-		while (deltaX >= w){
-			xStart += w;
-			deltaXPrec -= w;
-			deltaX -= w;
-			bitmapFront = bitmapBack;
-			rectDstFOrig = rectDstBOrig; 
-			undoAtZero = false;
-			bitmapChanged();
-		} 
-		while (deltaX <= -w){
-			xStart -= w;
-			deltaXPrec += w;
-			deltaX += w;
-			bitmapFront = bitmapBack;
-			rectDstFOrig = rectDstBOrig;
-			undoAtZero = false;
-			bitmapChanged();
-		}
-		
-		// called when movement stops to cancel previous bitmap request 
-		if (startedMove && deltaX == 0 && deltaXPrec == 0 && undoAtZero){
-			container.undoGetBitmap();
-			bitmapBack = bitmapFront;
-			rectDstBOrig = rectDstFOrig;
-			undoAtZero = false;
-		}
+		float w = rectDimensions.width();
+		float deltaX = physics.getOffset();
 		
-		// left side of back image crossed left border of view
-		if (deltaX > 0 && deltaXPrec <= 0){ 
-        	if (bitmapFront != bitmapBack)
-        		container.undoGetBitmap();
-			bitmapBack = container.getBitmapPrevious();
-			if (bitmapBack != null)
-				rectDstBOrig = calculateRectDst(bitmapBack, rectDimensions);
-			undoAtZero = true;
-			
-		// right side of back image crossed right border of view	
-		} else if (deltaX < 0 && deltaXPrec >= 0){ 
-        	if (bitmapFront != bitmapBack)
-        		container.undoGetBitmap();
-			bitmapBack = container.getBitmapNext();
-			if (bitmapBack != null)
-				rectDstBOrig = calculateRectDst(bitmapBack, rectDimensions);
-			undoAtZero = true;
+		// place slides for the frame of transition
+		transformF.reset();
+		transformP.reset();
+		long tStart = timeTransitionStart;
+		long duration = transition * 1000000L;
+		if (tStart != NO_TIME){
+			float a = duration <= 0 ? 1f : (float)(time - tStart) / (float)duration;
+			slideTransition.apply(easing.get(a), transformF, transformP);
 		}
-
-		deltaXPrec = deltaX;
 		
 		// calculate destination rectangles
-		if (rectDstFOrig != null){
-			rectDstF.left = rectDstFOrig.left + (int)deltaX;
-			rectDstF.top = rectDstFOrig.top;
-			rectDstF.right = rectDstFOrig.right + (int)deltaX;
-			rectDstF.bottom = rectDstFOrig.bottom; 
-		}
-		if (rectDstPOrig != null && timeTransitionStart.get() > 0){
-			rectDstP.left = rectDstPOrig.left + (int)deltaX;
-			rectDstP.top = rectDstPOrig.top;
-			rectDstP.right = rectDstPOrig.right + (int)deltaX;
-			rectDstP.bottom = rectDstPOrig.bottom; 
-		}
+		if (rectDstFOrig != null)
+			place(rectDstFOrig, deltaX, transformF, rectDstF);
+		if (rectDstPOrig != null && tStart != NO_TIME)
+			place(rectDstPOrig, deltaX, transformP, rectDstP);
 		if (rectDstBOrig != null){
 			rectDstB.left = (int)deltaX - rectDstBOrig.right;
 			rectDstB.right = (int)deltaX - rectDstBOrig.left;
@@ -726,29 +1156,103 @@ public class SlideShowSwipe extends View {
 				rectDstB.right += 2 * w;
 			} 
 		}
+		
+		// calculate areas of slides, used to draw placeholders and clip slides
+		int x = (int)deltaX, h = rectDimensions.height();
+		if (deltaX < 0)
+			rectPageB.set(x + (int)w, 0, x + 2 * (int)w, h);
+		else
+			rectPageB.set(x - (int)w, 0, x, h);
+		x += (int)(transformF.shift * w);
+		rectPageF.set(x, 0, x + (int)w, h);
+		x = (int)deltaX + (int)(transformP.shift * w);
+		rectPageP.set(x, 0, x + (int)w, h);
 			
 		// set alpha values to paints
 		paintAlphaB.setAlpha((int) (127f + 128f * Math.abs(deltaX / w)));
 		paintAlphaF.setAlpha((int) (127f + 128f * (1f - Math.abs(deltaX / w))));
 		
 		// calculate transparencies on transition
-		long tStart = timeTransitionStart.get();
-		if (tStart > 0){
-			long t = System.currentTimeMillis();
-			float a = (float)(t - tStart) / (float)transition;
-			if (a > 1f)
-				a = 1f;
-			paintAlphaP.setAlpha((int) ((float)paintAlphaF.getAlpha() * (1f - a)));
-			paintAlphaF.setAlpha((int) ((float)paintAlphaF.getAlpha() * a));
+		if (tStart != NO_TIME){
+			paintAlphaP.setAlpha(alpha(paintAlphaF.getAlpha(), transformP.alpha));
+			paintAlphaF.setAlpha(alpha(paintAlphaF.getAlpha(), transformF.alpha));
 			
-			if (t >= tStart + transition)
-				timeTransitionStart.set(-1);
+			if (time - tStart >= duration){
+				timeTransitionStart = NO_TIME;
+				if (metrics != null)
+					metrics.transitionFinished(time - tStart);
+			}
 		}
 		
+		visibleSlidesChanged();
+	}
+	
+	
+	
+	/**
+	 * Calculates destination rect of a slide shifted by swipe offset and placed by transform
+	 * 
+	 * @param orig		destination rect of the slide in its page
+	 * @param deltaX	swipe offset
+	 * @param t			transform of the slide
+	 * @param dst		rect to store the result in
+	 */
+	private void place(Rect orig, float deltaX, SlideTransition.Transform t, Rect dst){
+		float w = rectDimensions.width(), h = rectDimensions.height();
+		int x = (int)deltaX + (int)(t.shift * w);
+		if (t.scale == 1f){
+			dst.set(orig.left + x, orig.top, orig.right + x, orig.bottom);
+		} else {
+			float s = t.scale, px = t.pivotX * w, py = t.pivotY * h;
+			dst.set(x + (int)(px + (orig.left - px) * s), (int)(py + (orig.top - py) * s), 
+					x + (int)(px + (orig.right - px) * s), (int)(py + (orig.bottom - py) * s));
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns paint alpha scaled by opacity of transform, which is clamped to [0, 1]
+	 */
+	static private int alpha(int alpha, float opacity){
+		if (!(opacity > 0f))
+			return 0;
+		return opacity >= 1f ? alpha : (int) ((float)alpha * opacity);
 	}
 	
 
 	
+	/**
+	 * Requests back slide from the container
+	 * 
+	 * @param direction		{@code +1} for previous slide, {@code -1} for next
+	 */
+	private void backRequested(int direction){
+		backDirection = direction;
+		bitmapBack = direction > 0 ? containerPrevious() : containerNext();
+		keyBack = keyCurrent();
+		if (bitmapBack != null)
+			rectDstBOrig = fitRect(bitmapBack);
+	}
+	
+	
+	
+	/**
+	 * Reports to asynchronous container the slide where motion launched by swipe will stop
+	 */
+	private void motionPredicted(){
+		if (asyncContainer == null)
+			return;
+		
+		// container counts slides from its cursor, which is at the back slide if it was requested
+		int shift = -physics.getLandingShift();
+		if (physics.isBackRequested())
+			shift += backDirection;
+		asyncContainer.onMotionPredicted(shift > 0 ? +1 : -1, Math.abs(shift));
+	}
+	
+	
+	
 	/**
 	 *	Set current state to changed and perform listener callback 
 	 */
@@ -762,6 +1266,364 @@ public class SlideShowSwipe extends View {
 	
 	
 	
+	/**
+	 * Calls {@code getBitmapNext()} of the container, measuring it if metrics are set
+	 */
+	private Bitmap containerNext(){
+		if (metrics == null)
+			return container.getBitmapNext();
+		long t = System.nanoTime();
+		Bitmap b = container.getBitmapNext();
+		metrics.getContainerNextTime().record(System.nanoTime() - t);
+		return b;
+	}
+	
+	
+	
+	/**
+	 * Calls {@code getBitmapPrevious()} of the container, measuring it if metrics are set
+	 */
+	private Bitmap containerPrevious(){
+		if (metrics == null)
+			return container.getBitmapPrevious();
+		long t = System.nanoTime();
+		Bitmap b = container.getBitmapPrevious();
+		metrics.getContainerPreviousTime().record(System.nanoTime() - t);
+		return b;
+	}
+	
+	
+	
+	/**
+	 * Calls {@code getBitmapCurrent()} of the container, measuring it if metrics are set
+	 */
+	private Bitmap containerCurrent(){
+		if (metrics == null)
+			return container.getBitmapCurrent();
+		long t = System.nanoTime();
+		Bitmap b = container.getBitmapCurrent();
+		metrics.getContainerCurrentTime().record(System.nanoTime() - t);
+		return b;
+	}
+	
+	
+	
+	/**
+	 * Calls {@code undoGetBitmap()} of the container, measuring it if metrics are set
+	 */
+	private void containerUndo(){
+		if (metrics == null){
+			container.undoGetBitmap();
+			return;
+		}
+		long t = System.nanoTime();
+		container.undoGetBitmap();
+		metrics.getContainerUndoTime().record(System.nanoTime() - t);
+	}
+	
+	
+	
+	/**
+	 * Returns phase of slide timer ticks in ms for the given period, or -1 if phase is not set
+	 */
+	private long tickPhase(long period){
+		return phase < 0 ? -1 : (long) (phase * period);
+	}
+	
+	
+	
+	/**
+	 * Returns key of the current slide if container is asynchronous, or {@code null}
+	 */
+	private Object keyCurrent(){
+		return asyncContainer == null ? null : asyncContainer.getKeyCurrent();
+	}
+	
+	
+	
+	/**
+	 * Returns current time by frame clock, in ns. This is the only source of time 
+	 * for animations, touch motion and frame metrics, and it never goes backwards. 
+	 * If no clock is set, it is time of the latest vsync while frames go, so that touch 
+	 * events and drawing between vsyncs fall on the time of the frame, and uptime otherwise,
+	 * which is measured by the same monotonic clock as vsync
+	 */
+	private long now(){
+		long t;
+		if (frameClock != null){
+			t = frameClock.frameTimeNanos();
+		} else {
+			t = SystemClock.uptimeMillis() * 1000000L;
+			if (timeVsync != NO_TIME && t - timeVsync < VSYNC_VALID)
+				t = timeVsync;
+		}
+		return latest(t);
+	}
+	
+	
+	
+	/**
+	 * Returns the given time, or the latest time taken if it is later
+	 */
+	private long latest(long t){
+		if (timeLatest == NO_TIME || t > timeLatest)
+			timeLatest = t;
+		return timeLatest;
+	}
+	
+	
+	
+	/**
+	 * Returns time of the frame being drawn, in ns. If the frame was calculated 
+	 * ahead of drawing, and time was not taken since then, it is the time 
+	 * the frame was calculated for
+	 */
+	private long frameTime(){
+		long t = timeFrame;
+		timeFrame = NO_TIME;
+		return t != NO_TIME && t == timeLatest ? t : now();
+	}
+	
+	
+	
+	/**
+	 * Requests the next animation frame. On Jelly Bean and higher frames are scheduled 
+	 * by {@code Choreographer}, so they are paced by vsync, whichever clock times them
+	 */
+	private void scheduleFrame(){
+		if (frameScheduled)
+			return;
+		frameScheduled = true;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+			if (vsyncCallback == null)
+				vsyncCallback = new VsyncCallback(this);
+			vsyncCallback.post();
+		} else {
+			self.postDelayed(frameTick, FRAME_DELAY);
+		}
+	}
+	
+	
+	
+	/**
+	 * Invoked by vsync callback when scheduled frame starts. If no clock is set, 
+	 * the frame is timed by vsync time, otherwise by the clock
+	 *
+	 * @param frameTimeNanos	vsync time of the frame, by {@code System.nanoTime()} base
+	 */
+	private void onVsync(long frameTimeNanos){
+		frameScheduled = false;
+		if (frameClock != null){
+			onFrame(now());
+		} else {
+			timeVsync = frameTimeNanos;
+			onFrame(latest(frameTimeNanos));
+		}
+	}
+	
+	
+	
+	/**
+	 * Calculates the frame ahead of drawing and invalidates areas of slides which changed 
+	 * since the latest drawn frame. If nothing changed by a pixel or alpha step, the view is 
+	 * not redrawn, and animation continues on the next frame until it settles
+	 * 
+	 * @param time	frame time in ns
+	 */
+	private void onFrame(long time){
+		if (!started || container == null)
+			return;
+		makeCalculations(time);
+		boolean transition = timeTransitionStart != NO_TIME;
+		if ((int) physics.getOffset() != offsetDrawn || transition != transitionDrawn 
+				|| paintAlphaF.getAlpha() != alphaDrawnF || paintAlphaB.getAlpha() != alphaDrawnB 
+				|| (transition && (paintAlphaP.getAlpha() != alphaDrawnP || !rectDstF.equals(rectDrawnF) 
+						|| !rectDstP.equals(rectDrawnP) || !rectPageF.equals(rectPageDrawnF)))){
+			rectDirty.set(rectDrawn);
+			unionSlides(rectDirty);
+			if (rectDirty.intersect(rectDimensions)){
+				timeFrame = time;
+				self.invalidate(rectDirty);
+				return;
+			}
+		}
+		boolean animating = physics.isMoving() || transition;
+		if (metrics != null)
+			metrics.frameSkipped(time, animating);
+		if (animating)
+			scheduleFrame();
+	}
+	
+	
+	
+	/**
+	 * Adds areas of slides drawn with the current calculations to the rect
+	 */
+	private void unionSlides(Rect r){
+		if (bitmapBack != null)
+			r.union(rectDstB);
+		else if (keyBack != null && physics.getOffset() != 0)
+			r.union(rectPageB);
+		if (timeTransitionStart != NO_TIME && bitmapPrec != null)
+			r.union(rectDstP);
+		if (bitmapFront != null)
+			r.union(rectDstF);
+		else if (keyFront != null)
+			r.union(rectPageF);
+	}
+	
+	
+	
+	/**
+	 * Reports keys of displayed slides to asynchronous container, if they were changed
+	 */
+	private void visibleSlidesChanged(){
+		if (asyncContainer == null)
+			return;
+		Object p = timeTransitionStart != NO_TIME ? keyPrec : null;
+		if (keyFront != keyFrontVisible || keyBack != keyBackVisible || p != keyPrecVisible){
+			keyFrontVisible = keyFront;
+			keyBackVisible = keyBack;
+			keyPrecVisible = p;
+			asyncContainer.onVisibleSlidesChange(keyFront, keyBack, p);
+		}
+	}
+	
+	
+	
+	/**
+	 * Puts asynchronously loaded bitmap into every slot which waits for it
+	 */
+	private void bitmapLoaded(Object key, Bitmap b){
+		if (key == null || b == null || container != asyncContainer)
+			return;
+		
+		// the first bitmap is awaited, or its thumbnail is upgraded
+		if (!started){
+			if ((bitmapFront == null || key.equals(keyFront)) && bitmapFront != b 
+					&& key.equals(asyncContainer.getKeyCurrent())){
+				bitmapFront = b;
+				keyFront = key;
+				self.invalidate();
+			}
+			return;
+		}
+		
+		boolean changed = false;
+		if (key.equals(keyFront) && bitmapFront != b){
+			bitmapFront = b;
+			rectDstFOrig = fitRect(b);
+			changed = true;
+		}
+		if (key.equals(keyBack) && bitmapBack != b){
+			bitmapBack = b;
+			rectDstBOrig = fitRect(b);
+			changed = true;
+		}
+		if (key.equals(keyPrec) && bitmapPrec != b){
+			bitmapPrec = b;
+			rectDstPOrig = fitRect(b);
+			changed = true;
+		}
+		if (changed)
+			self.invalidate();
+	}
+	
+	
+	
+	/**
+	 * Draws bitmap of a slide. If the slide may overflow its page, it is clipped by the page
+	 */
+	private void drawSlide(Canvas c, Bitmap b, Rect dst, Rect page, Paint p, int slot){
+		if (layerRendering && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && c.isHardwareAccelerated()){
+			if (layers == null)
+				layers = new SlideLayer[]{ new SlideLayer(), new SlideLayer(), new SlideLayer() };
+			layers[slot].draw(c, b, dst, page, p);
+			return;
+		}
+		if (!page.contains(dst)){
+			int s = c.save();
+			c.clipRect(page);
+			c.drawBitmap(b, null, dst, p);
+			c.restoreToCount(s);
+		} else {
+			c.drawBitmap(b, null, dst, p);
+		}
+	}
+	
+	
+	
+	/**
+	 * Releases display lists and GPU layers of slides
+	 */
+	private void discardLayers(){
+		if (layers != null){
+			for (SlideLayer l : layers)
+				l.discard();
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns destination rect of the bitmap in the current scale mode and view size. 
+	 * Rects are cached by bitmap identity and dimensions, so a slide shown repeatedly 
+	 * (e. g. on back-and-forth swipe) does not cause allocations. Returned rect is 
+	 * shared and must not be modified
+	 */
+	private Rect fitRect(Bitmap b){
+		int w = b.getWidth(), h = b.getHeight();
+		for (int i = 0; i < FIT_CACHE_SIZE; i++){
+			if (fitBitmaps[i] == b && fitSizes[i * 2] == w && fitSizes[i * 2 + 1] == h)
+				return fitRects[i];
+		}
+		
+		// replace the oldest rect which is not referenced as destination rect of a slide
+		int i = fitVictim;
+		while (fitRects[i] != null 
+				&& (fitRects[i] == rectDstFOrig || fitRects[i] == rectDstBOrig || fitRects[i] == rectDstPOrig))
+			i = (i + 1) % FIT_CACHE_SIZE;
+		fitVictim = (i + 1) % FIT_CACHE_SIZE;
+		if (fitRects[i] == null)
+			fitRects[i] = new Rect();
+		fitBitmaps[i] = b;
+		fitSizes[i * 2] = w;
+		fitSizes[i * 2 + 1] = h;
+		return calculateRectDst(b, rectDimensions, scaleMode, fitRects[i]);
+	}
+	
+	
+	
+	/**
+	 * Invalidates cached destination rects and recalculates rects of displayed slides
+	 */
+	private void fitRectsChanged(){
+		for (int i = 0; i < FIT_CACHE_SIZE; i++)
+			fitBitmaps[i] = null;
+		if (rectDimensions.isEmpty())
+			return;
+		// rects of slides are replaced one by one, so slots they occupy are not reused meanwhile
+		if (rectDstFOrig != null && bitmapFront != null)
+			rectDstFOrig = fitRect(bitmapFront);
+		if (rectDstBOrig != null && bitmapBack != null)
+			rectDstBOrig = fitRect(bitmapBack);
+		if (rectDstPOrig != null && bitmapPrec != null)
+			rectDstPOrig = fitRect(bitmapPrec);
+	}
+	
+	
+	
+	/**
+	 * Draws placeholder of a slide which is not loaded yet
+	 */
+	private void drawPlaceholder(Canvas c, Rect page, int alpha){
+		paintPlaceholder.setColor(placeholderColor);
+		paintPlaceholder.setAlpha(Color.alpha(placeholderColor) * alpha / 255);
+		c.drawRect(page, paintPlaceholder);
+	}
+	
+	
+	
 	/**
 	 * Notify listener that current displaying bitmap was changed
 	 */
@@ -782,14 +1644,41 @@ public class SlideShowSwipe extends View {
 	 * @throws	NullPointerException
 	 */
 	static public Rect calculateRectDst(Bitmap b, Rect d) throws NullPointerException {
+		return calculateRectDst(b, d, ScaleMode.FIT_CENTER, new Rect());
+	}
+	
+	
+	
+	/**
+	 * Calculates position of a given bitmap in coordinates of destination rectangle,
+	 * such that the bitmap is aligned to center and scaled proportionally in a given mode
+	 * 
+	 * @param b		source bitmap
+	 * @param d		destination rectangle
+	 * @param mode	scale mode
+	 * @param dst	rectangle to store the result in
+	 * @return		{@code dst}
+	 * @throws	NullPointerException
+	 */
+	static public Rect calculateRectDst(Bitmap b, Rect d, ScaleMode mode, Rect dst) throws NullPointerException {
 		if (b == null) 
 			throw new NullPointerException("Bitmap is null");
 		if (d == null)
 			throw new NullPointerException("Destination Rect object is null");
+		if (mode == null || dst == null)
+			throw new NullPointerException("Scale mode or result Rect object is null");
 		
-		Rect dst = new Rect();
+		// height of the bitmap is scaled to the height of destination
+		boolean fitHeight;
+		boolean narrower = (float)b.getWidth()/(float)b.getHeight() < (float)d.width()/(float)d.height();
+		if (mode == ScaleMode.FIT_CENTER)
+			fitHeight = narrower;
+		else if (mode == ScaleMode.CENTER_CROP)
+			fitHeight = !narrower;
+		else
+			fitHeight = false;
 		
-		if ((float)b.getWidth()/(float)b.getHeight() < (float)d.width()/(float)d.height()){
+		if (fitHeight){
 			dst.left = (int)((float)d.width() / 2f 
 					- (float)b.getWidth() * (float)d.height() / (float)b.getHeight() / 2f);
 			dst.right = (int)((float)d.width() / 2f 
@@ -816,9 +1705,21 @@ public class SlideShowSwipe extends View {
 	 */
 	private void reset(){
 		pause();
+		dropSlides();
+		pausedManually = true;
+		stateChanged(State.RESET);
+	}
+	
+	
+	
+	/**
+	 * Drops displayed slides and motion, so that the first slide is requested again when 
+	 * the view is drawn. Does not touch slideshow timer and does not notify listener
+	 */
+	private void dropSlides(){
+		containerChangeDeferred = false;
 		
 		started = false;
-		startedMove = false;
 				
 		rectDstBOrig = null;
 		rectDstFOrig = null;
@@ -826,21 +1727,148 @@ public class SlideShowSwipe extends View {
 		bitmapFront = null;
 		bitmapBack = null;
 		bitmapPrec = null;
+		keyFront = null;
+		keyBack = null;
+		keyPrec = null;
+		visibleSlidesChanged();
 		
-		undoAtZero = false;
-
-		v0 = 0;
-		vC = 0;
-		deltaX = 0;
-		deltaXPrec = 0;
+		physics.reset();
 		
 		firstBitmapRequested = false;
-		pausedManually = true;
 		
-		timeTransitionStart.set(-1);
-		
-		stateChanged(State.RESET);
+		timeTransitionStart = NO_TIME;
 		
 		this.invalidate();
 	}
+	
+	
+	
+	/**
+	 * Slide rendered into a render node backed by GPU layer. The bitmap is recorded 
+	 * relative to the page of the slide and re-recorded only if the bitmap, its pixels or its 
+	 * position in the page change, while the page position and alpha are properties of the node.
+	 * Node clips the slide by its page
+	 */
+	@TargetApi(Build.VERSION_CODES.Q)
+	static private class SlideLayer {
+		
+		final private RenderNode node = new RenderNode("SlideShowSwipe slide");
+		final private Rect recorded = new Rect(); // destination rect of the bitmap in the page, as recorded
+		final private Rect local = new Rect();
+		private Bitmap bitmap;
+		private int generation; // generation of the bitmap, which changes if it is reused for other slide
+		private int width, height;
+		
+		SlideLayer(){
+			node.setUseCompositingLayer(true, null);
+		}
+		
+		void draw(Canvas c, Bitmap b, Rect dst, Rect page, Paint p){
+			local.set(dst.left - page.left, dst.top - page.top, dst.right - page.left, dst.bottom - page.top);
+			if (b != bitmap || b.getGenerationId() != generation || !local.equals(recorded) 
+					|| page.width() != width || page.height() != height){
+				bitmap = b;
+				generation = b.getGenerationId();
+				recorded.set(local);
+				width = page.width();
+				height = page.height();
+				node.setPosition(0, 0, width, height);
+				RecordingCanvas rc = node.beginRecording();
+				try {
+					rc.drawBitmap(b, null, recorded, PAINT_LAYER);
+				} finally {
+					node.endRecording();
+				}
+			}
+			node.setTranslationX(page.left);
+			node.setAlpha(p.getAlpha() / 255f);
+			c.drawRenderNode(node);
+		}
+		
+		void discard(){
+			bitmap = null;
+			node.discardDisplayList();
+		}
+		
+		static final private Paint PAINT_LAYER = new Paint(Paint.FILTER_BITMAP_FLAG);
+	}
+	
+	
+	
+	/**
+	 * State of the view saved across recreation of activity and process
+	 */
+	static class SavedState extends BaseSavedState {
+		
+		String cursor; // saved by container, or null
+		boolean paused, pausedManually;
+		long remaining; // time left to the next slide in ms, or -1 if paused
+		int width, height; // size of the view
+		
+		SavedState(Parcelable superState){
+			super(superState);
+		}
+		
+		private SavedState(Parcel in){
+			super(in);
+			cursor = in.readString();
+			paused = in.readInt() != 0;
+			pausedManually = in.readInt() != 0;
+			remaining = in.readLong();
+			width = in.readInt();
+			height = in.readInt();
+		}
+		
+		@Override
+		public void writeToParcel(Parcel out, int flags){
+			super.writeToParcel(out, flags);
+			out.writeString(cursor);
+			out.writeInt(paused ? 1 : 0);
+			out.writeInt(pausedManually ? 1 : 0);
+			out.writeLong(remaining);
+			out.writeInt(width);
+			out.writeInt(height);
+		}
+		
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>(){
+			@Override
+			public SavedState createFromParcel(Parcel in) {
+				return new SavedState(in);
+			}
+			
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
+	
+	
+	
+	/**
+	 * Choreographer callback which starts animation frames at vsync. Kept in a separate
+	 * class, so that {@code Choreographer} is not loaded on older platforms
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	static private class VsyncCallback implements Choreographer.FrameCallback {
+		
+		final private SlideShowSwipe view;
+		
+		VsyncCallback(SlideShowSwipe view){
+			this.view = view;
+		}
+		
+		void post(){
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+		
+		void cancel(){
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			view.onVsync(frameTimeNanos);
+		}
+	}
 }
@@ -0,0 +1,460 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+
+/**
+ * On-disk store of decoded slides. Pixels of slides are kept uncompressed in a data file
+ * and are read through a memory mapping of the file directly into bitmaps. The file is mapped 
+ * once and remapped only when a slide written after mapping is read, so a stored slide is loaded
+ * in time of copying its pixels, without decoding. Slides are keyed by identifier of their
+ * source and target size they were decoded for, and are located by an index file, which
+ * is read once when the store is opened.
+ *
+ * Slides are appended: data of a slide is written and synced to disk before its index record, 
+ * so slides written partially (e. g. when process was killed) are ignored on the next opening.
+ * When a new slide does not fit into the size limit, least recently used slides are
+ * evicted and the store is compacted: the rest of slides are copied to new data and
+ * index files, which replace the old ones. Identifiers must change when image 
+ * of the source changes.
+ *
+ * All methods are thread safe
+ */
+public class SlideStore {
+
+
+	static public final long MAX_SIZE_DEFAULT = 128 * 1024 * 1024;
+
+
+
+	/**
+	 * Opens store in the given directory with default size limit, 
+	 * creating the directory and files if needed
+	 *
+	 * @throws IOException	if the store cannot be opened
+	 */
+	public SlideStore(File dir) throws IOException {
+		this(dir, MAX_SIZE_DEFAULT);
+	}
+
+
+
+	/**
+	 * Opens store in the given directory, creating the directory and files if needed
+	 *
+	 * @param maxSize		maximum size of slides data in bytes. Slides are evicted 
+	 * 						when it is exceeded
+	 * @throws IOException	if the store cannot be opened
+	 * @throws IllegalArgumentException	if {@code maxSize} is not positive or exceeds {@code Integer.MAX_VALUE}
+	 */
+	public SlideStore(File dir, long maxSize) throws IOException, IllegalArgumentException {
+		if (maxSize <= 0 || maxSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Max size must be positive and fit into int");
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create directory " + dir);
+		this.maxSize = maxSize;
+		this.dir = dir;
+		this.fileIndex = new File(dir, FILE_INDEX);
+		this.fileData = new File(dir, FILE_DATA);
+		readIndex();
+		data = new RandomAccessFile(fileData, "rw");
+		if (entries.isEmpty())
+			data.setLength(0); // nothing is reachable
+		dataSize = data.length();
+	}
+
+
+
+	/**
+	 * Reads slide from the store into a bitmap, reusing memory of a suitable bitmap from the pool
+	 *
+	 * @param id			identifier of the slide source
+	 * @param reqWidth		target width the slide was decoded for
+	 * @param reqHeight		target height the slide was decoded for
+	 * @param pool			pool to take bitmap to reuse from, or {@code null}
+	 * @return	bitmap or {@code null} if there is no such slide or it cannot be read
+	 */
+	public Bitmap get(String id, int reqWidth, int reqHeight, BitmapPool pool){
+		try {
+			Entry e;
+			ByteBuffer buffer;
+			synchronized (this){
+				e = entries.get(key(id, reqWidth, reqHeight));
+				if (e == null || data == null)
+					return null;
+				if (mapped == null || e.offset + e.length > mapped.capacity())
+					mapped = data.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, data.length());
+				buffer = mapped.duplicate();
+			}
+			buffer.limit((int) e.offset + e.length).position((int) e.offset);
+			Bitmap.Config config = CONFIGS[e.config];
+			Bitmap b = BitmapDecoder.obtain(e.width, e.height, config, pool);
+			b.copyPixelsFromBuffer(buffer);
+			return b;
+		} catch (IOException ex) {
+			Log.w("SlideShowSwipe", "Cannot read slide " + id + " from store", ex);
+			return null;
+		} catch (RuntimeException ex) {
+			// stored data does not match the bitmap
+			Log.w("SlideShowSwipe", "Cannot read slide " + id + " from store", ex);
+			return null;
+		}
+	}
+
+
+
+	/**
+	 * Checks if slide is in the store
+	 */
+	public synchronized boolean contains(String id, int reqWidth, int reqHeight){
+		return entries.containsKey(key(id, reqWidth, reqHeight));
+	}
+
+
+
+	/**
+	 * Writes pixels of the bitmap to the store, unless the slide is already stored.
+	 * Only bitmaps of {@code ARGB_8888} and {@code RGB_565} configurations are stored
+	 *
+	 * @param id			identifier of the slide source
+	 * @param reqWidth		target width the slide was decoded for
+	 * @param reqHeight		target height the slide was decoded for
+	 * @return	if the slide was stored
+	 * @throws NullPointerException
+	 */
+	public boolean put(String id, int reqWidth, int reqHeight, Bitmap b) throws NullPointerException {
+		if (id == null || b == null)
+			throw new NullPointerException("Id or bitmap is null");
+		int config = configIndex(b.getConfig());
+		if (config < 0 || b.isRecycled() || b.getByteCount() > maxSize)
+			return false;
+		String key = key(id, reqWidth, reqHeight);
+		ByteBuffer buffer = ByteBuffer.allocate(b.getByteCount());
+		b.copyPixelsToBuffer(buffer);
+		buffer.flip();
+
+		// reserve space in data file, so that slides can be written concurrently
+		Entry e;
+		FileChannel channel;
+		int g;
+		synchronized (this){
+			if (data == null || entries.containsKey(key))
+				return false;
+			if (dataSize + buffer.remaining() > maxSize && !compact(buffer.remaining()))
+				return false;
+			g = generation;
+			e = new Entry(id, reqWidth, reqHeight, b.getWidth(), b.getHeight(), config, dataSize, buffer.remaining());
+			dataSize += e.length;
+			channel = data.getChannel();
+		}
+		try {
+			long pos = e.offset;
+			while (buffer.hasRemaining())
+				pos += channel.write(buffer, pos);
+			channel.force(false); // index record must not point to data lost on power failure
+			synchronized (this){
+				if (data == null || g != generation)
+					return false; // closed, cleared or compacted while writing
+				appendIndex(e);
+				entries.put(key, e);
+			}
+			return true;
+		} catch (ClosedChannelException ex) {
+			return false; // closed or compacted while writing
+		} catch (IOException ex) {
+			Log.w("SlideShowSwipe", "Cannot write slide " + id + " to store", ex);
+			return false;
+		}
+	}
+
+
+
+	/**
+	 * Returns number of stored slides
+	 */
+	public synchronized int size(){
+		return entries.size();
+	}
+
+
+
+	/**
+	 * Returns maximum size of slides data in bytes
+	 */
+	public long getMaxSize(){
+		return maxSize;
+	}
+
+
+
+	/**
+	 * Removes all slides from the store
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void clear() throws IOException {
+		entries.clear();
+		generation++;
+		mapped = null;
+		dataSize = 0;
+		if (fileIndex.exists() && !fileIndex.delete())
+			throw new IOException("Cannot delete " + fileIndex);
+		if (data != null){
+			// data file is replaced, not truncated, as it may be mapped by reads in progress
+			data.close();
+			data = null;
+			if (fileData.exists() && !fileData.delete())
+				throw new IOException("Cannot delete " + fileData);
+			data = new RandomAccessFile(fileData, "rw");
+		}
+	}
+
+
+
+	/**
+	 * Closes files of the store. Store must not be used after this call
+	 */
+	public synchronized void close(){
+		if (data == null)
+			return;
+		try {
+			data.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+		data = null;
+		mapped = null;
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private String FILE_INDEX = "slides.idx";
+	static final private String FILE_DATA = "slides.dat";
+	static final private int MAGIC = 0x53535331; // 'SSS1'
+	static final private String SUFFIX_NEW = ".new";
+	static final private Bitmap.Config[] CONFIGS = { Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565 };
+
+	final private long maxSize;
+	final private File dir, fileIndex, fileData;
+	final private Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true); // in order of access
+	private RandomAccessFile data;
+	private MappedByteBuffer mapped; // mapping of data file, remapped when a slide beyond it is read
+	private long dataSize; // size of data file including space reserved by pending writes
+	private int generation; // incremented when store is cleared or compacted
+
+
+
+	/**
+	 * Key of a slide and its location in data file
+	 */
+	static private class Entry {
+
+		final String id;
+		final int reqWidth, reqHeight, width, height, config, length;
+		final long offset;
+
+		Entry(String id, int reqWidth, int reqHeight, int width, int height, int config, long offset, int length){
+			this.id = id;
+			this.reqWidth = reqWidth;
+			this.reqHeight = reqHeight;
+			this.width = width;
+			this.height = height;
+			this.config = config;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+
+
+	static private String key(String id, int reqWidth, int reqHeight){
+		return id + '@' + reqWidth + 'x' + reqHeight;
+	}
+
+
+
+	static private int configIndex(Bitmap.Config config){
+		for (int i = 0; i < CONFIGS.length; i++){
+			if (CONFIGS[i] == config)
+				return i;
+		}
+		return -1;
+	}
+
+
+
+	/**
+	 * Reads index file. Records pointing beyond data file and a partially written
+	 * trailing record are dropped, and the index is truncated after the last valid record
+	 */
+	private void readIndex() throws IOException {
+		if (!fileIndex.exists())
+			return;
+		byte[] bytes = new byte[(int) fileIndex.length()];
+		DataInputStream in = new DataInputStream(new FileInputStream(fileIndex));
+		try {
+			in.readFully(bytes);
+		} finally {
+			in.close();
+		}
+
+		long dataLength = fileData.length();
+		int valid = 0;
+		ByteArrayInputStream buf = new ByteArrayInputStream(bytes);
+		in = new DataInputStream(buf);
+		try {
+			if (in.readInt() == MAGIC){
+				valid = bytes.length - buf.available();
+				while (buf.available() > 0){
+					Entry e = new Entry(in.readUTF(), in.readInt(), in.readInt(), 
+							in.readInt(), in.readInt(), in.readByte(), in.readLong(), in.readInt());
+					if (e.config < 0 || e.config >= CONFIGS.length || e.offset + e.length > dataLength)
+						break;
+					entries.put(key(e.id, e.reqWidth, e.reqHeight), e);
+					valid = bytes.length - buf.available();
+				}
+			}
+		} catch (IOException e) {
+			// truncated record, valid ones are kept
+		}
+		if (valid < bytes.length){
+			RandomAccessFile f = new RandomAccessFile(fileIndex, "rw");
+			try {
+				f.setLength(valid);
+			} finally {
+				f.close();
+			}
+		}
+	}
+
+
+
+	/**
+	 * Appends record of the slide to index file, creating the file if needed
+	 */
+	private void appendIndex(Entry e) throws IOException {
+		boolean created = !fileIndex.exists() || fileIndex.length() == 0;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileIndex, true)));
+		try {
+			if (created)
+				out.writeInt(MAGIC);
+			writeRecord(out, e);
+		} finally {
+			out.close();
+		}
+	}
+
+
+
+	static private void writeRecord(DataOutputStream out, Entry e) throws IOException {
+		out.writeUTF(e.id);
+		out.writeInt(e.reqWidth);
+		out.writeInt(e.reqHeight);
+		out.writeInt(e.width);
+		out.writeInt(e.height);
+		out.writeByte(e.config);
+		out.writeLong(e.offset);
+		out.writeInt(e.length);
+	}
+
+
+
+	/**
+	 * Evicts least recently used slides, so that slides left and the given number of bytes
+	 * take no more than 3/4 of the size limit, and copies slides left to new data and index
+	 * files, which replace the old ones. Index is deleted before data file is replaced, so
+	 * if the process is killed while files are replaced, the store is empty on the next opening.
+	 * Writes started before compaction are discarded. If files cannot be replaced, the store
+	 * is cleared
+	 *
+	 * @return	if the store is not closed
+	 */
+	private boolean compact(long room){
+		long live = 0;
+		for (Entry e : entries.values())
+			live += e.length;
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext() && live + room > maxSize - maxSize / 4){
+			live -= it.next().length;
+			it.remove();
+		}
+		generation++;
+
+		File fileDataNew = new File(dir, FILE_DATA + SUFFIX_NEW), fileIndexNew = new File(dir, FILE_INDEX + SUFFIX_NEW);
+		try {
+			List<Entry> moved = new ArrayList<Entry>(entries.size());
+			RandomAccessFile dataNew = new RandomAccessFile(fileDataNew, "rw");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileIndexNew)));
+			try {
+				dataNew.setLength(0);
+				FileChannel from = data.getChannel(), to = dataNew.getChannel();
+				out.writeInt(MAGIC);
+				long offset = 0;
+				for (Entry e : entries.values()){
+					for (long n = 0; n < e.length; )
+						n += from.transferTo(e.offset + n, e.length - n, to);
+					Entry m = new Entry(e.id, e.reqWidth, e.reqHeight, e.width, e.height, e.config, offset, e.length);
+					writeRecord(out, m);
+					moved.add(m);
+					offset += e.length;
+				}
+				to.force(false);
+			} finally {
+				out.close();
+				dataNew.close();
+			}
+
+			data.close();
+			data = null;
+			mapped = null;
+			if (fileIndex.exists() && !fileIndex.delete())
+				throw new IOException("Cannot delete " + fileIndex);
+			if (!fileDataNew.renameTo(fileData) || !fileIndexNew.renameTo(fileIndex))
+				throw new IOException("Cannot replace files of store");
+			data = new RandomAccessFile(fileData, "rw");
+			dataSize = data.length();
+			entries.clear();
+			for (Entry m : moved)
+				entries.put(key(m.id, m.reqWidth, m.reqHeight), m);
+			return true;
+
+		} catch (IOException ex) {
+			Log.w("SlideShowSwipe", "Cannot compact store, clearing it", ex);
+			fileDataNew.delete();
+			fileIndexNew.delete();
+			try {
+				if (data == null)
+					data = new RandomAccessFile(fileData, "rw");
+				clear();
+				return true;
+			} catch (IOException ex2) {
+				Log.w("SlideShowSwipe", "Cannot clear store, closing it", ex2);
+				close();
+				return false;
+			}
+		}
+	}
+
+}
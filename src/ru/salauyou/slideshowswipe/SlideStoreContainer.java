@@ -0,0 +1,159 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+
+/**
+ * Prefetching container which keeps decoded slides in {@link SlideStore}. A slide is decoded
+ * from its source only the first time it is shown at the given view size, and is read from
+ * the store without decoding afterwards, including subsequent runs of the application.
+ * Slides of {@link BitmapSource.Versioned} sources are stored by identifier and version, 
+ * so a changed image is decoded again. If the store cannot be opened, slides are decoded as usual.
+ *
+ * Threading rules are the same as for {@link PrefetchingBitmapContainer}
+ */
+public class SlideStoreContainer extends PrefetchingBitmapContainer {
+
+
+	/**
+	 * Creates container with default store size limit, prefetch depth, number of decoding threads,
+	 * cache budget and bitmap pool size
+	 *
+	 * @param dir	directory of the store
+	 */
+	public SlideStoreContainer(File dir){
+		super();
+		this.store = open(dir, SlideStore.MAX_SIZE_DEFAULT);
+	}
+
+
+
+	/**
+	 * Creates container with default store size limit
+	 *
+	 * @param dir	directory of the store
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, int, BitmapCache)
+	 */
+	public SlideStoreContainer(File dir, int prefetch, int threads, BitmapCache cache) throws NullPointerException {
+		this(dir, SlideStore.MAX_SIZE_DEFAULT, prefetch, threads, cache);
+	}
+
+
+
+	/**
+	 * Creates container
+	 *
+	 * @param dir		directory of the store
+	 * @param maxSize	maximum size of slides data in the store, in bytes
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, int, BitmapCache)
+	 */
+	public SlideStoreContainer(File dir, long maxSize, int prefetch, int threads, BitmapCache cache) 
+			throws NullPointerException {
+		super(prefetch, threads, cache);
+		this.store = open(dir, maxSize);
+	}
+
+
+
+	/**
+	 * Creates container with default store size limit, which decodes slides by the given scheduler,
+	 * e. g. one of {@link SlideShowGroup}
+	 *
+	 * @param dir	directory of the store
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, DecodeScheduler, BitmapCache)
+	 */
+	public SlideStoreContainer(File dir, int prefetch, DecodeScheduler scheduler, BitmapCache cache) 
+			throws NullPointerException {
+		this(dir, SlideStore.MAX_SIZE_DEFAULT, prefetch, scheduler, cache);
+	}
+
+
+
+	/**
+	 * Creates container which decodes slides by the given scheduler, e. g. one of {@link SlideShowGroup}
+	 *
+	 * @param dir		directory of the store
+	 * @param maxSize	maximum size of slides data in the store, in bytes
+	 * @see PrefetchingBitmapContainer#PrefetchingBitmapContainer(int, DecodeScheduler, BitmapCache)
+	 */
+	public SlideStoreContainer(File dir, long maxSize, int prefetch, DecodeScheduler scheduler, BitmapCache cache) 
+			throws NullPointerException {
+		super(prefetch, scheduler, cache);
+		this.store = open(dir, maxSize);
+	}
+
+
+
+	/**
+	 * Returns store of decoded slides, or {@code null} if it cannot be opened
+	 */
+	public SlideStore getStore(){
+		return store;
+	}
+
+
+
+	/**
+	 * Returns identifier the slide of the source is stored by: identifier of the source,
+	 * followed by its version if the source is versioned
+	 */
+	protected String storeId(BitmapSource source){
+		String v = source instanceof BitmapSource.Versioned ? ((BitmapSource.Versioned) source).getVersion() : null;
+		return v == null ? source.getId() : source.getId() + '#' + v;
+	}
+
+
+
+	/**
+	 * Stops decoding and closes the store
+	 */
+	@Override
+	public void shutdown(){
+		super.shutdown();
+		if (store != null)
+			store.close();
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	final private SlideStore store;
+
+
+
+	/**
+	 * Reads slide from the store, or decodes it from the source and writes to the store
+	 */
+	@Override
+	protected Bitmap decode(BitmapSource source, int width, int height){
+		if (store == null)
+			return super.decode(source, width, height);
+		String id = storeId(source);
+		Bitmap b = store.get(id, width, height, getCache().getBitmapPool());
+		if (b == null){
+			b = super.decode(source, width, height);
+			if (b != null)
+				store.put(id, width, height, b);
+		}
+		return b;
+	}
+
+
+
+	static private SlideStore open(File dir, long maxSize){
+		if (dir == null)
+			throw new NullPointerException("Directory is null");
+		try {
+			return new SlideStore(dir, maxSize);
+		} catch (IOException e) {
+			Log.w("SlideShowSwipe", "Cannot open slide store in " + dir, e);
+			return null;
+		}
+	}
+
+}
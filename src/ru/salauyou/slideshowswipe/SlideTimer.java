@@ -0,0 +1,196 @@
+package ru.salauyou.slideshowswipe;
+
+import java.util.ArrayList;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+
+/**
+ * Process-wide timer which changes slides of all {@code SlideShowSwipe} views.
+ * It runs on the main looper and keeps a single pending message for the earliest
+ * tick among all scheduled entries, so it creates no threads regardless of
+ * number of views and pause cycles.
+ *
+ * Must be used from the main thread only
+ */
+final class SlideTimer {
+
+	/**
+	 * Interface to receive ticks
+	 */
+	interface Client {
+
+		/**
+		 * Invoked on the main thread when the next slide should be shown
+		 *
+		 * @param time	time of the tick, by {@code SystemClock.uptimeMillis()}
+		 */
+		void onSlideTick(long time);
+	}
+
+
+
+	/**
+	 * Scheduling state of a single client. Entry is created once per client
+	 * and reused between pauses
+	 */
+	static final class Entry {
+
+		final Client client;
+		long period;
+		long nextTick;
+		long phase = -1; // ticks are aligned to this phase of period, if it is not negative
+		boolean scheduled;
+
+		Entry(Client client){
+			this.client = client;
+		}
+	}
+
+
+
+	/**
+	 * Returns the timer instance
+	 */
+	static SlideTimer getInstance(){
+		if (instance == null)
+			instance = new SlideTimer();
+		return instance;
+	}
+
+
+
+	/**
+	 * Schedules periodic ticks of the entry. If entry is already scheduled, its schedule is replaced
+	 *
+	 * @param delay		delay before the first tick in ms
+	 * @param period	period of ticks in ms
+	 */
+	void schedule(Entry e, long delay, long period){
+		e.period = period;
+		e.nextTick = SystemClock.uptimeMillis() + delay;
+		if (delay > 0)
+			align(e, e.nextTick);
+		if (!e.scheduled){
+			e.scheduled = true;
+			entries.add(e);
+		}
+		reschedule();
+	}
+
+
+
+	/**
+	 * Sets phase of ticks of the entry. Entries of equal period and different phases
+	 * tick at different times, however they were scheduled
+	 *
+	 * @param phase		phase in ms, by {@code SystemClock.uptimeMillis() % period}, 
+	 * 					or negative value to tick by period from the time entry was scheduled
+	 */
+	void setPhase(Entry e, long phase){
+		e.phase = phase;
+		if (e.scheduled){
+			align(e, Math.max(SystemClock.uptimeMillis(), e.nextTick - e.period / 2));
+			reschedule();
+		}
+	}
+
+
+
+	/**
+	 * Stops ticks of the entry
+	 */
+	void cancel(Entry e){
+		if (e.scheduled){
+			e.scheduled = false;
+			entries.remove(e);
+			reschedule();
+		}
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static private SlideTimer instance;
+
+	final private ArrayList<Entry> entries = new ArrayList<Entry>();
+	private Entry[] fired = new Entry[4]; // entries to notify on the current tick
+	final private Handler handler = new Handler(Looper.getMainLooper());
+
+	final private Runnable tick = new Runnable(){
+		@Override
+		public void run() {
+			onTick();
+		}
+	};
+
+
+
+	private SlideTimer(){}
+
+
+
+	/**
+	 * Advances due entries and notifies their clients. Clients are collected before
+	 * notification, since they may schedule or cancel entries from the callback
+	 */
+	private void onTick(){
+		long now = SystemClock.uptimeMillis();
+		int n = 0;
+		for (int i = 0; i < entries.size(); i++){
+			Entry e = entries.get(i);
+			if (e.nextTick <= now){
+				e.nextTick += e.period;
+				// skip ticks missed while the main thread was busy
+				if (e.nextTick <= now)
+					e.nextTick = now + e.period;
+				align(e, e.nextTick - e.period / 2);
+				if (n == fired.length){
+					Entry[] a = new Entry[n * 2];
+					System.arraycopy(fired, 0, a, 0, n);
+					fired = a;
+				}
+				fired[n++] = e;
+			}
+		}
+		reschedule();
+		for (int i = 0; i < n; i++){
+			Entry e = fired[i];
+			fired[i] = null;
+			if (e.scheduled)
+				e.client.onSlideTick(now);
+		}
+	}
+
+
+
+	/**
+	 * Moves the next tick of the entry to the earliest time not before the given one
+	 * which matches phase of the entry, if it is set
+	 */
+	static private void align(Entry e, long time){
+		if (e.phase < 0 || e.period <= 0)
+			return;
+		long shift = (e.phase - time) % e.period;
+		e.nextTick = time + (shift < 0 ? shift + e.period : shift);
+	}
+
+
+
+	/**
+	 * Posts the tick for the earliest scheduled entry
+	 */
+	private void reschedule(){
+		handler.removeCallbacks(tick);
+		if (entries.isEmpty())
+			return;
+		long next = Long.MAX_VALUE;
+		for (int i = 0; i < entries.size(); i++)
+			next = Math.min(next, entries.get(i).nextTick);
+		handler.postAtTime(tick, next);
+	}
+
+}
@@ -0,0 +1,115 @@
+package ru.salauyou.slideshowswipe;
+
+
+/**
+ * Transition between slides in slideshow. Transition is a function of eased progress,
+ * which places the incoming ('front') slide and the outgoing ('preceding') one for a frame
+ * by setting their {@link Transform}. It is invoked on the main thread for every frame
+ * of transition and must not allocate.
+ *
+ * Transforms of both slides are reset to identity before every invocation, and the front
+ * slide should be at identity when progress reaches 1, since it is drawn so after transition.
+ * Transforms are applied on top of swipe, so slides may be swiped in the middle of transition
+ */
+public abstract class SlideTransition {
+
+	/**
+	 * Placement of a slide in its page, which is the area of the view the slide occupies
+	 */
+	static public final class Transform {
+
+		/** Opacity from 0 to 1 */
+		public float alpha;
+
+		/** Horizontal shift of the page, in its widths, positive to the right */
+		public float shift;
+
+		/** Scale of the slide about the pivot, the slide is clipped by its page if it overflows it */
+		public float scale;
+
+		/** Pivot of scaling, in widths and heights of the page from its top left corner */
+		public float pivotX, pivotY;
+
+		/**
+		 * Resets transform to identity
+		 */
+		public void reset(){
+			alpha = 1;
+			shift = 0;
+			scale = 1;
+			pivotX = 0.5f;
+			pivotY = 0.5f;
+		}
+	}
+
+
+
+	/**
+	 * Cross-fade of the outgoing slide into the incoming one
+	 */
+	static public final SlideTransition CROSSFADE = new SlideTransition(){
+		@Override
+		public void apply(float progress, Transform front, Transform prec){
+			front.alpha = progress;
+			prec.alpha = 1f - progress;
+		}
+	};
+
+	/**
+	 * The incoming slide slides in from the right over the outgoing one
+	 */
+	static public final SlideTransition SLIDE = new SlideTransition(){
+		@Override
+		public void apply(float progress, Transform front, Transform prec){
+			front.shift = 1f - progress;
+		}
+	};
+
+	/**
+	 * The incoming slide pushes the outgoing one out to the left
+	 */
+	static public final SlideTransition PUSH = new SlideTransition(){
+		@Override
+		public void apply(float progress, Transform front, Transform prec){
+			front.shift = 1f - progress;
+			prec.shift = -progress;
+		}
+	};
+
+	/**
+	 * Cross-fade, in which the outgoing slide slowly zooms in towards its upper left part,
+	 * and the incoming one zooms out from its lower right part, panning over the slides
+	 */
+	static public final SlideTransition KEN_BURNS = new SlideTransition(){
+		@Override
+		public void apply(float progress, Transform front, Transform prec){
+			front.alpha = progress;
+			front.scale = 1f + KEN_BURNS_ZOOM * (1f - progress);
+			front.pivotX = 0.7f;
+			front.pivotY = 0.65f;
+			prec.alpha = 1f - progress;
+			prec.scale = 1f + KEN_BURNS_ZOOM * progress;
+			prec.pivotX = 0.3f;
+			prec.pivotY = 0.35f;
+		}
+	};
+
+
+
+	/**
+	 * Places slides for a frame of transition
+	 *
+	 * @param progress	eased progress of transition, which is usually from 0 to 1,
+	 * 					but may overshoot for some easing curves
+	 * @param front		transform of the incoming slide, reset to identity
+	 * @param prec		transform of the outgoing slide, reset to identity
+	 */
+	public abstract void apply(float progress, Transform front, Transform prec);
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	static final private float KEN_BURNS_ZOOM = 0.15f;
+
+}
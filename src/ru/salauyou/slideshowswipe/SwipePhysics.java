@@ -0,0 +1,431 @@
+package ru.salauyou.slideshowswipe;
+
+
+/**
+ * Physics of swipe between slides: touch tracking, fling with constant deceleration
+ * and settling at slide boundaries. The class does not depend on Android and keeps
+ * its state in primitive fields, so it performs no allocation per touch event or frame.
+ *
+ * Offset is the horizontal shift of the current ('front') slide in pixels, positive
+ * when the slide is moved to the right, revealing the preceding ('back') slide at the left.
+ * When the offset crosses a slide boundary, the physics reports through {@link Listener}
+ * which slide should be requested, cancelled or promoted to the front
+ */
+public final class SwipePhysics {
+
+	/**
+	 * Interface to receive changes of slides caused by motion
+	 */
+	public interface Listener {
+
+		/**
+		 * Invoked when the back slide becomes visible and should be requested
+		 *
+		 * @param direction		{@code +1} if the previous slide is revealed at the left,
+		 * 						{@code -1} if the next slide is revealed at the right
+		 */
+		public void onBackRequest(int direction);
+
+		/**
+		 * Invoked when the back slide fully took the place of the front one
+		 */
+		public void onBackPromote();
+
+		/**
+		 * Invoked when the back slide is not visible anymore and its request must be undone
+		 */
+		public void onBackCancel();
+	}
+
+
+
+	static public final float DECELERATION_DEFAULT = 4f;
+	static public final float CLICK_THRESHOLD_DEFAULT = 0.03f;
+	static public final long CLICK_TIME_DEFAULT = 200;
+
+	/** Number of latest touch samples kept for velocity estimation */
+	static public final int SAMPLES = 32;
+
+	/** Samples older than this before the latest one are not used for velocity estimation, in ms */
+	static public final long VELOCITY_HORIZON = 100;
+
+	/** If touch stayed still for longer than this before touch up, there is no fling, in ms */
+	static public final long VELOCITY_STOP = 40;
+
+
+
+	/**
+	 * Sets size of the view
+	 *
+	 * @param width		width in px
+	 * @param height	height in px
+	 */
+	public void setSize(int width, int height){
+		this.width = width;
+		kV = kVScreen * width;
+		touchMoveThreshold = touchMoveThresholdScreen * Math.min(width, height);
+	}
+
+
+
+	/**
+	 * Starts tracking of touch, stopping self motion
+	 *
+	 * @param x		x coordinate in px
+	 * @param y		y coordinate in px
+	 * @param time	event time in ms
+	 */
+	public void touchDown(float x, float y, long time){
+		v0 = 0;
+		vC = 0;
+
+		xPrec = x;
+		yPrec = y;
+
+		xStart = x - deltaX;
+		timeStartRaw = time;
+
+		touchPath = 0;
+		sampleCount = 0;
+		sample(x, time);
+	}
+
+
+
+	/**
+	 * Adds touch sample which preceded the current move event, e. g. one of historical
+	 * samples batched into a {@code MotionEvent}. Sample is only used to estimate velocity
+	 *
+	 * @param x		x coordinate in px
+	 * @param time	event time in ms
+	 */
+	public void touchSample(float x, long time){
+		sample(x, time);
+	}
+
+
+
+	/**
+	 * Moves the front slide following the touch
+	 *
+	 * @param x		x coordinate in px
+	 * @param y		y coordinate in px
+	 * @param time	event time in ms
+	 */
+	public void touchMove(float x, float y, long time){
+		deltaX = x - xStart;
+		sample(x, time);
+
+		// calculate path of touch--this is needed to recognize clicks
+		touchPath += Math.hypot(x - xPrec, y - yPrec);
+		xPrec = x;
+		yPrec = y;
+	}
+
+
+
+	/**
+	 * Finishes tracking of touch and launches self motion which stops
+	 * when a slide fully fills the view. Position of touch up is the latest sample 
+	 * of velocity estimation, like positions of moves
+	 *
+	 * @param x			x coordinate in px
+	 * @param time		event time in ms
+	 * @param frameTime	frame time when motion starts, in ns
+	 * @return			if the touch should be treated as click
+	 */
+	public boolean touchUp(float x, long time, long frameTime){
+		deltaX = x - xStart;
+		sample(x, time);
+		touchPath += Math.abs(x - xPrec);
+		xPrec = x;
+
+		timeMotionStart = frameTime;
+		v0 = estimateVelocity(time);
+
+		// correct deceleration coefficient sign
+		kV = v0 > 0 ? +Math.abs(kV) : -Math.abs(kV);
+
+		// calculate the x point where self motion will stop
+		double xEnd = v0 * v0 / 2f / kV;
+		float w = width;
+
+		// swipe not strong enough to launch motion
+		if (Math.abs(xEnd) < width / 2){
+
+			// but strong enough to switch photo?
+			boolean strong = Math.abs(xEnd) >= width / 4;
+
+			if (deltaX >= 0 && deltaX < w / 2 ){
+				if (strong){
+					xEnd = w - deltaX;
+					v0 = +1;
+				} else {
+					xEnd = -deltaX;
+					v0 = -1;
+				}
+			} else if (deltaX < 0 && deltaX > -w / 2){
+				if (strong){
+					xEnd = -w - deltaX;
+					v0 = -1;
+				} else {
+					xEnd = -deltaX;
+					v0 = +1;
+				}
+			} else if (deltaX >= 0 && deltaX >= w / 2){
+				xEnd = w - deltaX;
+				v0 = +1;
+			} else if (deltaX < 0 && deltaX < -w / 2){
+				xEnd = -w - deltaX;
+				v0 = -1;
+			}
+
+		} else {
+			// correct ending point such that motion will stop when full image is displayed
+			xEnd = Math.round((xEnd + deltaX) / width) * width - deltaX;
+		}
+
+		// correct deceleration coefficient sign
+		kV = v0 > 0 ? +Math.abs(kV) : -Math.abs(kV);
+
+		// calculate corrected velocity
+		v0 = Math.signum(v0) * (float) Math.sqrt(Math.abs(2.0 * kV * xEnd));
+		vC = v0;
+		xCPrec = 0;
+		landingShift = width > 0 ? (int) Math.round((deltaX + xEnd) / w) : 0;
+
+		return touchPath <= touchMoveThreshold && time - timeStartRaw <= touchTimeThreshold;
+	}
+
+
+
+	/**
+	 * Advances self motion to the given frame time and reports slide changes
+	 * caused by movement since the previous update
+	 *
+	 * @param frameTime		frame time in ns
+	 * @param l				listener to report slide changes to
+	 */
+	public void update(long frameTime, Listener l){
+		if (width <= 0)
+			return;
+		float w = width;
+
+		// perform self motion
+		if (v0 != 0 && vC != 0){
+			float t = Math.max(0, frameTime - timeMotionStart) / 1e9f;
+			vC = v0 - kV * t;
+			xC = v0 * t - kV * t * t / 2f;
+			deltaX += xC - xCPrec;
+			xCPrec = xC;
+
+			// velocity changed sign: stop self motion
+			if ((vC < 0 && v0 > 0) || (vC > 0 && v0 < 0)){
+
+				// correct image position on motion stop
+				if (v0 < 0 && deltaX < -0.5 * w && deltaX > -1.5 * w){
+					deltaX = -w;
+					deltaXPrec = -w;
+				} else if (v0 > 0 && deltaX > 0.5 * w && deltaX < 1.5 * w){
+					deltaX = w;
+					deltaXPrec = w;
+				} else {
+					deltaX = 0;
+					deltaXPrec = 0;
+				}
+				vC = 0;
+				v0 = 0;
+			}
+		}
+
+		// normalize deltas if image crossed opposite canvas border
+		while (deltaX >= w){
+			xStart += w;
+			deltaXPrec -= w;
+			deltaX -= w;
+			backRequested = false;
+			l.onBackPromote();
+		}
+		while (deltaX <= -w){
+			xStart -= w;
+			deltaXPrec += w;
+			deltaX += w;
+			backRequested = false;
+			l.onBackPromote();
+		}
+
+		// called when movement stops to cancel previous bitmap request
+		if (deltaX == 0 && deltaXPrec == 0 && backRequested){
+			backRequested = false;
+			l.onBackCancel();
+		}
+
+		// left side of back image crossed left border of view
+		if (deltaX > 0 && deltaXPrec <= 0){
+			if (backRequested)
+				l.onBackCancel();
+			backRequested = true;
+			l.onBackRequest(+1);
+
+		// right side of back image crossed right border of view
+		} else if (deltaX < 0 && deltaXPrec >= 0){
+			if (backRequested)
+				l.onBackCancel();
+			backRequested = true;
+			l.onBackRequest(-1);
+		}
+
+		deltaXPrec = deltaX;
+	}
+
+
+
+	/**
+	 * Stops self motion, leaving the offset as is
+	 */
+	public void stop(){
+		v0 = 0;
+		vC = 0;
+	}
+
+
+
+	/**
+	 * Resets offset and motion. Pending back request is forgotten, not cancelled
+	 */
+	public void reset(){
+		stop();
+		deltaX = 0;
+		deltaXPrec = 0;
+		backRequested = false;
+		landingShift = 0;
+	}
+
+
+
+	/**
+	 * Forgets pending back request, when the back slide was replaced by the caller
+	 */
+	public void clearBackRequest(){
+		backRequested = false;
+	}
+
+
+
+	/**
+	 * Checks if the back slide was requested and not promoted or cancelled yet
+	 */
+	public boolean isBackRequested(){
+		return backRequested;
+	}
+
+
+
+	/**
+	 * Returns offset of the front slide in px
+	 */
+	public float getOffset(){
+		return deltaX;
+	}
+
+
+
+	/**
+	 * Returns current velocity of self motion in px/s, or 0 if there is no self motion
+	 */
+	public float getVelocity(){
+		return isMoving() ? vC : 0;
+	}
+
+
+
+	/**
+	 * Returns by how many slides self motion launched by the latest {@code touchUp()} shifts
+	 * the front slide it started from: positive if slides move to the right, revealing 
+	 * preceding ones, negative if they move to the left
+	 */
+	public int getLandingShift(){
+		return landingShift;
+	}
+
+
+
+	/**
+	 * Checks if self motion is in progress
+	 */
+	public boolean isMoving(){
+		return v0 != 0 && vC != 0;
+	}
+
+
+
+	/* ================ Protected and private fields ================== */
+
+	private int width;
+	private boolean backRequested = false; // indicates if back slide was requested and not promoted or cancelled
+
+	private float touchPath;
+	private float deltaX, deltaXPrec, xStart, xPrec, yPrec;
+
+	private long timeStartRaw; // time of touch down, in ms
+	private long timeMotionStart; // frame time when self motion started, in ns
+	private long touchTimeThreshold = CLICK_TIME_DEFAULT;
+
+	private float v0, vC; // start and calculated velocity
+	private float xC, xCPrec; // calculated x and preceeding calculated x
+	private int landingShift; // shift of slides predicted for self motion, in slides
+	private float kVScreen = DECELERATION_DEFAULT; // deceleration coefficient relative to view width
+	private float kV; // deceleration coefficient in px/s^2
+	private float touchMoveThresholdScreen = CLICK_THRESHOLD_DEFAULT; // size of maximum movement to be threated as click, in screen width
+	private float touchMoveThreshold; // the same in pixels
+
+	// ring buffer of touch samples, sampleNext is where the next sample is written
+	final private float[] sampleX = new float[SAMPLES];
+	final private long[] sampleTime = new long[SAMPLES];
+	private int sampleNext, sampleCount;
+
+
+
+	private void sample(float x, long time){
+		sampleX[sampleNext] = x;
+		sampleTime[sampleNext] = time;
+		sampleNext = (sampleNext + 1) % SAMPLES;
+		sampleCount = Math.min(sampleCount + 1, SAMPLES);
+	}
+
+
+
+	/**
+	 * Estimates velocity of touch at the given time in px/s by least squares fit of a line
+	 * to the latest samples within {@code VELOCITY_HORIZON}. Samples before a pause longer than
+	 * {@code VELOCITY_STOP} are not used, and if touch stayed still before the given time,
+	 * velocity is 0
+	 */
+	private float estimateVelocity(long time){
+		if (sampleCount < 2)
+			return 0;
+		int last = (sampleNext + SAMPLES - 1) % SAMPLES;
+		long tLast = sampleTime[last];
+		if (time - tLast > VELOCITY_STOP)
+			return 0;
+
+		// sums over samples, times are in s relative to the latest sample
+		double n = 0, st = 0, sx = 0, stt = 0, stx = 0;
+		long tNext = tLast;
+		for (int k = 0, i = last; k < sampleCount; k++, i = (i + SAMPLES - 1) % SAMPLES){
+			long ti = sampleTime[i];
+			if (tLast - ti > VELOCITY_HORIZON || tNext - ti > VELOCITY_STOP)
+				break;
+			double t = (ti - tLast) / 1000.0, x = sampleX[i] - sampleX[last];
+			n++;
+			st += t;
+			sx += x;
+			stt += t * t;
+			stx += t * x;
+			tNext = ti;
+		}
+		double d = n * stt - st * st;
+		return n < 2 || d <= 0 ? 0 : (float) ((n * stx - st * sx) / d);
+	}
+
+}
@@ -1,14 +1,14 @@
 package ru.salauyou.slideshowswipedemo;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
 import java.util.Random;
 
+import ru.salauyou.slideshowswipe.PrefetchingBitmapContainer;
+import ru.salauyou.slideshowswipe.ResourceBitmapSource;
+import ru.salauyou.slideshowswipe.SlideStoreContainer;
 import ru.salauyou.slideshowswipe.SlideShowSwipe;
 import ru.salauyou.slideshowswipe.SlideShowSwipe.State;
 import android.app.Activity;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -16,16 +16,13 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.ImageView;
 
-public class ActivityMain extends Activity implements SlideShowSwipe.BitmapContainer, SlideShowSwipe.OnStateChangeListener {
+public class ActivityMain extends Activity implements SlideShowSwipe.OnStateChangeListener {
 
 	SlideShowSwipe slideShow;
 	ImageView viewControl;
-	List<Bitmap> container;
+	PrefetchingBitmapContainer container;
 	Random rnd = new Random();
 	
-	int posCurrent = 0;
-	int posPrec = 0;
-	
 	ActivityMain self = this;
 	
 	@Override
@@ -34,18 +31,18 @@ public class ActivityMain extends Activity implements SlideShowSwipe.BitmapConta
 		setContentView(R.layout.activity_main);
 
 		
-		container = new ArrayList<Bitmap>();
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img01));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img02));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img03));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img04));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img05));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img06));
-		container.add(BitmapFactory.decodeResource(this.getResources(), R.drawable.img07));
+		container = new SlideStoreContainer(new File(getCacheDir(), "slides"))
+		.add(new ResourceBitmapSource(this, R.drawable.img01))
+		.add(new ResourceBitmapSource(this, R.drawable.img02))
+		.add(new ResourceBitmapSource(this, R.drawable.img03))
+		.add(new ResourceBitmapSource(this, R.drawable.img04))
+		.add(new ResourceBitmapSource(this, R.drawable.img05))
+		.add(new ResourceBitmapSource(this, R.drawable.img06))
+		.add(new ResourceBitmapSource(this, R.drawable.img07));
 		
 		
 		((SlideShowSwipe)findViewById(R.id.slide_show))
-		.setBitmapContainer(self)
+		.setBitmapContainer(container)
 		.setOnStateChangeListener(self)
 		.setSlideShowPeriod(2000)
 		.setSlideShowTransition(1000)
@@ -62,6 +59,12 @@ public class ActivityMain extends Activity implements SlideShowSwipe.BitmapConta
 		
 	}
 
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		container.shutdown();
+	}
+
 	@Override
 	public boolean onCreateOptionsMenu(Menu menu) {
 		// Inflate the menu; this adds items to the action bar if it is present.
@@ -69,41 +72,6 @@ public class ActivityMain extends Activity implements SlideShowSwipe.BitmapConta
 		return true;
 	}
 
-	/**
-	 * SlideShowSwipe.BitmapContainer implementation
-	 */
-	
-	@Override
-	public Bitmap getBitmapNext() {
-		posPrec = posCurrent;
-		posCurrent ++;
-		if (posCurrent >= container.size()){
-			posCurrent = 0;
-		}
-		return container.get(posCurrent);
-	}
-
-	@Override
-	public Bitmap getBitmapPrevious() {
-		posPrec = posCurrent;
-		posCurrent --;
-		if (posCurrent < 0){
-			posCurrent = container.size() - 1;
-		}
-		return container.get(posCurrent);
-	}
-
-	@Override
-	public Bitmap getBitmapCurrent() {
-		return container.get(posCurrent);
-	}
-
-	@Override
-	public void undoGetBitmap() {
-		posCurrent = posPrec;
-	}
-
-	
 	/**
 	 * SlideShowSwipe.OnStateChangeListener implementation
 	 */
@@ -116,7 +84,7 @@ public class ActivityMain extends Activity implements SlideShowSwipe.BitmapConta
 
 	@Override
 	public void onCurrentBitmapChange() {
-		//viewControl.setImageBitmap(this.getBitmapCurrent());
+		//viewControl.setImageBitmap(container.getBitmapCurrent());
 	}
 
 }
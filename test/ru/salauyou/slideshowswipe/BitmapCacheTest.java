@@ -0,0 +1,101 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import android.graphics.Bitmap;
+
+
+/**
+ * Budget, eviction order, pins and counters of {@code BitmapCache}
+ */
+final class BitmapCacheTest {
+
+	static final int WIDTH = 108, HEIGHT = 192, SLIDE = WIDTH * HEIGHT * 4;
+
+
+
+	/**
+	 * When the budget is exceeded, the least recently shown bitmap is evicted
+	 * and put into the pool, and bitmaps read by {@code get()} are kept
+	 */
+	static void testLeastRecentlyShownIsEvicted(){
+		BitmapPool pool = new BitmapPool(4 * SLIDE);
+		BitmapCache cache = new BitmapCache(3 * SLIDE, pool);
+		Bitmap a = slide(), b = slide(), c = slide();
+		cache.put("a", WIDTH, HEIGHT, a);
+		cache.put("b", WIDTH, HEIGHT, b);
+		cache.put("c", WIDTH, HEIGHT, c);
+		check(cache.size() == 3 * SLIDE, "size: " + cache);
+
+		check(cache.get("a", WIDTH, HEIGHT) == a, "a is not cached");
+		cache.put("d", WIDTH, HEIGHT, slide());
+		check(!cache.contains("b", WIDTH, HEIGHT), "b is not evicted: " + cache);
+		check(cache.contains("a", WIDTH, HEIGHT) && cache.contains("c", WIDTH, HEIGHT), "recent slides are evicted");
+		check(cache.size() == 3 * SLIDE && cache.evictionCount() == 1, "after eviction: " + cache);
+		check(pool.size() == SLIDE && pool.get(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888, false) == b,
+				"evicted bitmap is not pooled: " + pool);
+
+		// contains() does not affect recency, so c is evicted next
+		cache.contains("c", WIDTH, HEIGHT);
+		cache.put("e", WIDTH, HEIGHT, slide());
+		check(!cache.contains("c", WIDTH, HEIGHT), "c is not evicted: " + cache);
+		check(cache.evictionCount() == 2, "evictions: " + cache.evictionCount());
+	}
+
+
+
+	/**
+	 * Bitmaps of pinned key are kept over the budget, evicting unpinned ones, until the key
+	 * is unpinned as many times as it was pinned, and are not evicted by {@code evictAll()}
+	 */
+	static void testPinnedKeysAreNotEvicted(){
+		BitmapCache cache = new BitmapCache(2 * SLIDE);
+		cache.put("a", WIDTH, HEIGHT, slide());
+		cache.pin("a");
+		cache.pin("a");
+		cache.put("b", WIDTH, HEIGHT, slide());
+		cache.put("a", HEIGHT, WIDTH, Bitmap.createBitmap(HEIGHT, WIDTH, Bitmap.Config.ARGB_8888));
+		check(!cache.contains("b", WIDTH, HEIGHT), "b is not evicted: " + cache);
+		cache.put("a", WIDTH / 2, HEIGHT / 2, Bitmap.createBitmap(WIDTH / 2, HEIGHT / 2, Bitmap.Config.ARGB_8888));
+		cache.put("c", WIDTH, HEIGHT, slide());
+		check(!cache.contains("c", WIDTH, HEIGHT), "c is not evicted: " + cache);
+		check(cache.contains("a", WIDTH, HEIGHT) && cache.contains("a", HEIGHT, WIDTH) 
+				&& cache.contains("a", WIDTH / 2, HEIGHT / 2), "pinned bitmaps are evicted: " + cache);
+		check(cache.size() > cache.maxSize(), "pinned bitmaps do not exceed budget: " + cache);
+
+		cache.evictAll();
+		check(cache.contains("a", WIDTH, HEIGHT), "pinned bitmap is evicted by evictAll(): " + cache);
+		cache.unpin("a");
+		check(cache.contains("a", WIDTH, HEIGHT), "a is evicted while pinned once: " + cache);
+		cache.unpin("a");
+		check(!cache.contains("a", WIDTH, HEIGHT) && cache.contains("a", HEIGHT, WIDTH), 
+				"least recently shown bitmap of unpinned key is not evicted: " + cache);
+		check(cache.size() <= cache.maxSize() && cache.evictionCount() == 3, "after unpin: " + cache);
+	}
+
+
+
+	/**
+	 * Hits and misses are counted by {@code get()} only, for every key and size
+	 */
+	static void testHitsAndMissesAreCounted(){
+		BitmapCache cache = new BitmapCache(2 * SLIDE);
+		check(cache.get("a", WIDTH, HEIGHT) == null, "empty cache returns bitmap");
+		cache.put("a", WIDTH, HEIGHT, slide());
+		check(cache.get("a", WIDTH, HEIGHT) != null, "a is not cached");
+		check(cache.get("a", WIDTH, HEIGHT) != null, "a is not cached");
+		check(cache.get("a", HEIGHT, WIDTH) == null, "bitmap of other size is returned");
+		cache.contains("a", WIDTH, HEIGHT);
+		cache.contains("b", WIDTH, HEIGHT);
+		check(cache.hitCount() == 2 && cache.missCount() == 2 && cache.evictionCount() == 0, "counters: " + cache);
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	static Bitmap slide(){
+		return Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+	}
+
+}
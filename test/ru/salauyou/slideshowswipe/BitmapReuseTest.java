@@ -0,0 +1,145 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Looper;
+
+
+/**
+ * Reuse of bitmap memory through {@code BitmapPool} by decoder and prefetching container
+ */
+final class BitmapReuseTest {
+
+	static final int WIDTH = 108, HEIGHT = 192, SLIDE = WIDTH * HEIGHT * 4;
+
+
+
+	/**
+	 * Pooled bitmap which decoder rejected is returned to the pool,
+	 * and the image is decoded into a new bitmap
+	 */
+	static void testRejectedBitmapIsReturnedToPool() throws IOException {
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.KITKAT;
+		BitmapPool pool = new BitmapPool(4 * SLIDE);
+		Bitmap pooled = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+		pool.put(pooled);
+		BitmapFactory.rejectInBitmap = true;
+		try {
+			Bitmap b = BitmapDecoder.decode(new Image("a", 2 * WIDTH, 2 * HEIGHT), WIDTH, HEIGHT, pool);
+			check(b != null && b != pooled, "image is not decoded into new bitmap: " + b);
+			check(pool.size() == SLIDE, "rejected bitmap is not returned to pool: " + pool);
+		} finally {
+			BitmapFactory.rejectInBitmap = false;
+		}
+		Bitmap b = BitmapDecoder.decode(new Image("b", 2 * HEIGHT, 2 * WIDTH), WIDTH, HEIGHT, pool);
+		check(b == pooled, "returned bitmap is not reused");
+		check(b.getWidth() == HEIGHT && b.getHeight() == WIDTH, "bitmap is not reconfigured: " + b.getWidth() + "x" + b.getHeight());
+	}
+
+
+
+	/**
+	 * Since KitKat, once the pool and cache are warmed up, navigation through portrait
+	 * and landscape slides decodes them into pooled bitmaps of the other orientation
+	 * and creates no new bitmaps
+	 */
+	static void testNavigationDoesNotCreateBitmaps(){
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.KITKAT;
+		BitmapPool pool = new BitmapPool(4 * SLIDE);
+		PrefetchingBitmapContainer c = new PrefetchingBitmapContainer(1, 1, new BitmapCache(8 * SLIDE, pool));
+		for (int i = 0; i < 20; i++)
+			c.add(i % 3 == 0 ? new Image("slide" + i, 2 * HEIGHT, 2 * WIDTH) : new Image("slide" + i, 2 * WIDTH, 2 * HEIGHT));
+		c.setTargetSize(WIDTH, HEIGHT);
+		try {
+			navigate(c, 40);
+			int created = Bitmap.createdCount(), hits = pool.hitCount(), evictions = c.getCache().evictionCount();
+			navigate(c, 20);
+			check(Bitmap.createdCount() == created, (Bitmap.createdCount() - created) + " bitmaps created, " + pool);
+			check(c.getCache().evictionCount() - evictions >= 20, "slides are not evicted: " + c.getCache());
+			check(pool.hitCount() - hits >= 20, "pooled bitmaps are not reused: " + pool);
+		} finally {
+			c.shutdown();
+		}
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	/**
+	 * Moves to the next slide the given number of times, as the view does,
+	 * waiting for decoding of every slide
+	 */
+	static void navigate(PrefetchingBitmapContainer c, int steps){
+		Object prec = c.getKeyCurrent();
+		for (int i = 0; i < steps; i++){
+			c.getBitmapNext();
+			Object key = c.getKeyCurrent();
+			c.onVisibleSlidesChange(key, null, prec);
+			prec = key;
+			settle(c);
+			check(c.getBitmapCurrent() != null && c.getBitmapCurrent().getWidth() >= WIDTH / 2,
+					"slide " + key + " is not decoded");
+		}
+	}
+
+
+
+	/**
+	 * Runs tasks of the main looper until decoding of the container stops
+	 */
+	static void settle(PrefetchingBitmapContainer c){
+		DecodeScheduler s = c.getScheduler();
+		long end = System.currentTimeMillis() + 5000, done = -1;
+		for (int quiet = 0; quiet < 20; ){
+			check(System.currentTimeMillis() < end, "decoding does not stop: " + s);
+			long n = s.getUsefulCount() + s.getWastedCount() + s.getSkippedCount();
+			quiet = Looper.runDue() == 0 && n == done ? quiet + 1 : 0;
+			done = n;
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Image of the test format of the shadow {@code BitmapFactory}
+	 */
+	static final class Image implements BitmapSource {
+
+		final String id;
+		final byte[] data;
+
+		Image(String id, int width, int height){
+			this.id = id;
+			this.data = BitmapFactory.encode(width, height);
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public InputStream open() throws IOException {
+			return new ByteArrayInputStream(data);
+		}
+
+		@Override
+		public String toString(){
+			return id;
+		}
+	}
+
+}
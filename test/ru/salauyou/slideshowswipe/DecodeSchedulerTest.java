@@ -0,0 +1,163 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Order of execution and accounting of cancelled tasks by {@code DecodeScheduler}
+ */
+final class DecodeSchedulerTest {
+
+
+
+	/**
+	 * Waiting tasks are executed by priority, tasks of equal priority in order of submission,
+	 * and changed priority is taken into account
+	 */
+	static void testTasksAreExecutedByPriority() throws InterruptedException {
+		DecodeScheduler s = new DecodeScheduler(1);
+		List<String> order = new ArrayList<String>();
+		try {
+			Blocker b = s.submit(new Blocker(), 0);
+			b.started();
+			s.submit(new Named("a", order), 5);
+			s.submit(new Named("b", order), 1);
+			Named c = s.submit(new Named("c", order), 3);
+			s.submit(new Named("d", order), 1);
+			s.submit(new Named("e", order), 2);
+			c.setPriority(0);
+			check(c.getPriority() == 0, "priority is not changed: " + c.getPriority());
+			b.release();
+			await(s, 6);
+			synchronized (order){
+				check(order.equals(Arrays.asList("c", "b", "d", "e", "a")), "order: " + order);
+			}
+			b.setPriority(-1);
+			check(b.getPriority() == 0, "priority of started task is changed");
+		} finally {
+			s.shutdown();
+		}
+	}
+
+
+
+	/**
+	 * Tasks cancelled before they started are skipped; tasks cancelled when executing,
+	 * or completed and then cancelled before their result was delivered, are wasted
+	 */
+	static void testCancelledTasksAreCounted() throws InterruptedException {
+		DecodeScheduler s = new DecodeScheduler(1);
+		List<String> order = new ArrayList<String>();
+		try {
+			Named done = s.submit(new Named("done", order), 0);
+			await(s, 1);
+			check(s.getUsefulCount() == 1, "completed task is not useful: " + s);
+
+			Blocker b = s.submit(new Blocker(), 0);
+			b.started();
+			Named queued = s.submit(new Named("queued", order), 0);
+			Named next = s.submit(new Named("next", order), 1);
+			check(queued.cancel() && queued.isCancelled(), "queued task is not cancelled before start");
+			check(s.getSkippedCount() == 1, "cancelled task is not skipped: " + s);
+			check(!b.cancel() && b.isCancelled(), "executing task is not cancelled");
+			check(s.getWastedCount() == 0, "executing task is counted before it finishes: " + s);
+			b.release();
+			await(s, 4);
+			synchronized (order){
+				check(order.equals(Arrays.asList("done", "next")), "executed: " + order);
+			}
+			check(s.getUsefulCount() == 2 && s.getWastedCount() == 1, "after cancel of executing task: " + s);
+
+			check(!done.cancel() && done.isCancelled(), "completed task is not cancelled");
+			check(s.getUsefulCount() == 1 && s.getWastedCount() == 2, "after cancel of completed task: " + s);
+			check(!done.cancel() && !queued.cancel(), "task is cancelled twice");
+			check(s.getUsefulCount() == 1 && s.getWastedCount() == 2 && s.getSkippedCount() == 1, "after repeated cancel: " + s);
+
+			Named unsubmitted = new Named("new", order);
+			check(!unsubmitted.cancel() && !unsubmitted.isCancelled(), "task is cancelled before submission");
+			try {
+				s.submit(done, 0);
+				check(false, "task is submitted twice");
+			} catch (IllegalStateException e){
+				// expected
+			}
+			s.resetCounters();
+			check(s.getUsefulCount() + s.getWastedCount() + s.getSkippedCount() == 0, "after reset: " + s);
+		} finally {
+			s.shutdown();
+		}
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	/**
+	 * Waits until the given number of tasks is executed or skipped
+	 */
+	static void await(DecodeScheduler s, long n) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (s.getUsefulCount() + s.getWastedCount() + s.getSkippedCount() < n){
+			check(System.currentTimeMillis() < end, "tasks are not executed: " + s);
+			Thread.sleep(1);
+		}
+	}
+
+
+
+	/**
+	 * Task which occupies a thread of the scheduler until it is released
+	 */
+	static final class Blocker extends DecodeScheduler.Task {
+
+		final CountDownLatch started = new CountDownLatch(1), released = new CountDownLatch(1);
+
+		@Override
+		protected void execute() {
+			started.countDown();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void started() throws InterruptedException {
+			check(started.await(5, TimeUnit.SECONDS), "blocker is not started");
+		}
+
+		void release(){
+			released.countDown();
+		}
+	}
+
+
+
+	/**
+	 * Task which appends its name to the list of executed tasks
+	 */
+	static final class Named extends DecodeScheduler.Task {
+
+		final String name;
+		final List<String> order;
+
+		Named(String name, List<String> order){
+			this.name = name;
+			this.order = order;
+		}
+
+		@Override
+		protected void execute() {
+			synchronized (order){
+				order.add(name);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+import static ru.salauyou.slideshowswipe.Tests.near;
+
+
+/**
+ * Table-based evaluation of {@code Easing} curves
+ */
+final class EasingTest {
+
+	static final Easing[] CURVES = { Easing.LINEAR, Easing.EASE, Easing.EASE_IN, Easing.EASE_OUT,
+			Easing.EASE_IN_OUT, Easing.cubicBezier(0.1f, 0.9f, 0.2f, 1), Easing.cubicBezier(1, 0, 1, 0) };
+	static final int STEPS = 10000;
+
+
+
+	/**
+	 * Curves start at 0 and end at 1 exactly, and progress outside of [0, 1] is clamped
+	 */
+	static void testEndpointsAreExact(){
+		for (int i = 0; i < CURVES.length; i++){
+			Easing e = CURVES[i];
+			check(e.get(0) == 0 && e.get(1) == 1, "endpoints of curve " + i + ": " + e.get(0) + ", " + e.get(1));
+			check(e.get(-0.5f) == 0 && e.get(Float.NaN) == 0 && e.get(1.5f) == 1, "progress of curve " + i + " is not clamped");
+		}
+	}
+
+
+
+	/**
+	 * Curves with control points inside of the unit square never go back,
+	 * including between entries of the table
+	 */
+	static void testCurvesAreMonotonic(){
+		for (int i = 0; i < CURVES.length; i++){
+			Easing e = CURVES[i];
+			float prec = e.get(0);
+			for (int k = 1; k <= STEPS; k++){
+				float v = e.get((float) k / STEPS);
+				check(v >= prec, "curve " + i + " goes back at " + k + "/" + STEPS + ": " + prec + " -> " + v);
+				prec = v;
+			}
+		}
+	}
+
+
+
+	/**
+	 * Interpolated values are close to the curve
+	 */
+	static void testValuesFollowCurve(){
+		for (int k = 0; k <= 100; k++){
+			float t = k / 100f;
+			near(t, Easing.LINEAR.get(t), 1e-5, "linear at " + t);
+			near(1 - Easing.EASE_IN_OUT.get(1 - t), Easing.EASE_IN_OUT.get(t), 1e-4, "symmetry of ease-in-out at " + t);
+			near(1 - Easing.EASE_OUT.get(1 - t), Easing.EASE_IN.get(t), 1e-4, "ease-in as reversed ease-out at " + t);
+		}
+		near(0.5, Easing.EASE_IN_OUT.get(0.5f), 1e-5, "ease-in-out at 0.5");
+		near(0.8024, Easing.EASE.get(0.5f), 1e-3, "ease at 0.5");
+		try {
+			Easing.cubicBezier(-0.1f, 0, 1, 1);
+			check(false, "control point outside of [0, 1] is accepted");
+		} catch (IllegalArgumentException e){
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,370 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+
+/**
+ * Saving of {@code SlideShowSwipe} state into a parcel and restoring it into a new view
+ * and container, as after recreation of activity or process, and keeping the state 
+ * while the view releases its slides
+ */
+final class SavedStateTest {
+
+	static final int WIDTH = 108, HEIGHT = 192;
+	static final long PERIOD = 3000, FRAME = 16;
+
+
+
+	/**
+	 * Slide is restored by identifier, even if it moved to another position
+	 */
+	static void testSlideIsRestoredById(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		c.restoreCursor("5:slide5");
+		Parcelable state = parcel(new Screen(clock, c).show().view.onSaveInstanceState());
+		String saved = c.saveCursor();
+		c.shutdown();
+
+		Slides r = new Slides(0, 10);
+		r.add(0, new Source("new"));
+		Screen t = new Screen(clock, r).restore(state).show();
+		check(r.saveCursor().equals((position(saved) + 1) + ":" + id(saved)), 
+				"restored cursor: " + r.saveCursor() + ", saved: " + saved);
+		check(t.canvas.lastBitmap == r.decoded(id(saved)), id(saved) + " is not drawn");
+		r.shutdown();
+	}
+
+
+
+	/**
+	 * If the slide was removed, the saved position is restored, clamped to the slides left
+	 */
+	static void testPositionIsRestoredIfSlideIsRemoved(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		c.restoreCursor("6:slide6");
+		Parcelable state = parcel(new Screen(clock, c).show().view.onSaveInstanceState());
+		int pos = position(c.saveCursor());
+		check(pos > 3, "saved position: " + pos);
+		c.shutdown();
+
+		Slides r = new Slides(10, 20);
+		new Screen(clock, r).restore(state).show();
+		check(r.saveCursor().equals(pos + ":slide" + (10 + pos)), "restored cursor: " + r.saveCursor());
+		r.shutdown();
+
+		r = new Slides(10, 14);
+		Screen t = new Screen(clock, r).restore(state).show();
+		check(r.saveCursor().equals("3:slide13"), "clamped cursor: " + r.saveCursor());
+		check(t.canvas.lastBitmap == r.decoded("slide13"), "slide13 is not drawn");
+		r.shutdown();
+	}
+
+
+
+	/**
+	 * Slideshow resumes with the time which was left to the next slide when the state was saved
+	 */
+	static void testSlideShowResumesWithRemainingTime(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		Screen s = new Screen(clock, c).show();
+		long tick = clock.millis(); // slide is changed at once when slideshow starts
+		s.frames(1000);
+		SlideShowSwipe.SavedState state = (SlideShowSwipe.SavedState) parcel(s.view.onSaveInstanceState());
+		check(state.remaining == PERIOD - (clock.millis() - tick), "remaining: " + state.remaining);
+		String saved = c.saveCursor();
+		c.shutdown();
+
+		Slides r = new Slides(0, 10);
+		Screen t = new Screen(clock, r).restore(state).show();
+		check(t.view.getState() == SlideShowSwipe.State.SLIDESHOW_STARTED, "state: " + t.view.getState());
+		t.frames(state.remaining - 100);
+		check(r.saveCursor().equals(saved), "slide changed before remaining time: " + r.saveCursor());
+		t.frames(200);
+		check(position(r.saveCursor()) == position(saved) + 1, "slide not changed after remaining time: " 
+				+ r.saveCursor() + ", saved: " + saved);
+		r.shutdown();
+	}
+
+
+
+	/**
+	 * Slideshow paused by the user stays paused after restoring
+	 */
+	static void testPausedSlideShowStaysPaused(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		Screen s = new Screen(clock, c).show();
+		s.view.pauseSlideShow();
+		Parcelable state = parcel(s.view.onSaveInstanceState());
+		String saved = c.saveCursor();
+		c.shutdown();
+
+		Slides r = new Slides(0, 10);
+		Screen t = new Screen(clock, r).restore(state).show();
+		check(t.view.getState() == SlideShowSwipe.State.SLIDESHOW_PAUSED, "state: " + t.view.getState());
+		t.frames(2 * PERIOD);
+		check(r.saveCursor().equals(saved), "slide changed while paused: " + r.saveCursor() + ", saved: " + saved);
+		r.shutdown();
+	}
+
+
+
+	/**
+	 * Restored container starts decoding the slide for the saved size of the view
+	 * before the view is laid out, and does not decode it again after layout
+	 */
+	static void testSlideIsDecodedBeforeLayout(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		c.restoreCursor("3:slide3");
+		Parcelable state = parcel(new Screen(clock, c).show().view.onSaveInstanceState());
+		String id = id(c.saveCursor());
+		c.shutdown();
+
+		Slides r = new Slides(0, 10);
+		SlideShowSwipe view = new SlideShowSwipe(null);
+		view.setFrameClock(clock);
+		view.setBitmapContainer(r);
+		view.startSlideShow();
+		view.onRestoreInstanceState(state);
+		String request = id + " " + WIDTH + "x" + HEIGHT;
+		long end = System.currentTimeMillis() + 5000;
+		while (!r.requests().contains(request)){
+			check(System.currentTimeMillis() < end, "not decoded before layout: " + r.requests());
+			sleep();
+		}
+
+		view.layout(WIDTH, HEIGHT);
+		Screen t = new Screen(clock, r, view).show();
+		check(t.canvas.lastBitmap == r.decoded(id), id + " is not drawn");
+		int n = 0;
+		for (String q : r.requests())
+			n += q.equals(request) ? 1 : 0;
+		check(n == 1, id + " decoded " + n + " times: " + r.requests());
+		r.shutdown();
+	}
+
+
+
+	/**
+	 * View which releases its slides unpins them without notifying listener, and shows 
+	 * the same slide in the same state when it is drawn again. Detached view only pauses
+	 */
+	static void testSlidesAreReleasedWithoutReset(){
+		Tests.TestClock clock = new Tests.TestClock();
+		Slides c = new Slides(0, 10);
+		Screen s = new Screen(clock, c).show();
+		s.frames(1000);
+		final List<SlideShowSwipe.State> states = new ArrayList<SlideShowSwipe.State>();
+		s.view.setOnStateChangeListener(new SlideShowSwipe.OnStateChangeListener(){
+			@Override
+			public void onStateChange(SlideShowSwipe.State state) {
+				states.add(state);
+			}
+
+			@Override
+			public void onCurrentBitmapChange() {
+			}
+		});
+		String saved = c.saveCursor();
+
+		s.view.releaseSlides();
+		c.getCache().evictAll();
+		check(c.getCache().size() == 0, "slides stay pinned: " + c.getCache());
+		s.canvas.reset();
+		s.show();
+		check(c.saveCursor().equals(saved), "cursor moved: " + c.saveCursor() + ", saved: " + saved);
+		check(states.isEmpty(), "states on release: " + states);
+		s.frames(PERIOD);
+		check(position(c.saveCursor()) == position(saved) + 1, "slideshow does not resume: " + c.saveCursor());
+
+		states.clear();
+		s.view.onDetachedFromWindow();
+		check(states.equals(Arrays.asList(SlideShowSwipe.State.SLIDESHOW_PAUSED)), "states on detach: " + states);
+		c.shutdown();
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	/**
+	 * Writes the state into a parcel and reads it back
+	 */
+	static Parcelable parcel(Parcelable state){
+		Parcel p = Parcel.obtain();
+		state.writeToParcel(p, 0);
+		p.setDataPosition(0);
+		Parcelable s = SlideShowSwipe.SavedState.CREATOR.createFromParcel(p);
+		p.recycle();
+		return s;
+	}
+
+
+
+	static int position(String cursor){
+		return Integer.parseInt(cursor.substring(0, cursor.indexOf(':')));
+	}
+
+
+
+	static String id(String cursor){
+		return cursor.substring(cursor.indexOf(':') + 1);
+	}
+
+
+
+	static void sleep(){
+		try {
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+
+
+	/**
+	 * View with a prefetching container, timed by the test clock. Like an activity, it starts
+	 * slideshow after setting container, before the state is restored
+	 */
+	static final class Screen {
+
+		final Tests.TestClock clock;
+		final SlideShowSwipe view;
+		final Canvas canvas = new Canvas();
+
+		Screen(Tests.TestClock clock, Slides c){
+			this(clock, c, new SlideShowSwipe(null));
+			Looper.clear();
+			view.setFrameClock(clock);
+			view.setSlideShowPeriod(PERIOD);
+			view.layout(WIDTH, HEIGHT);
+			view.setBitmapContainer(c);
+			view.startSlideShow();
+		}
+
+		Screen(Tests.TestClock clock, Slides c, SlideShowSwipe view){
+			this.clock = clock;
+			this.view = view;
+		}
+
+		Screen restore(Parcelable state){
+			view.onRestoreInstanceState(state);
+			return this;
+		}
+
+		/**
+		 * Waits until decoded slides are delivered and drawn, and the view is not invalidated
+		 */
+		Screen show(){
+			long end = System.currentTimeMillis() + 5000;
+			while (true){
+				Looper.runDue();
+				if (view.invalidations > 0)
+					draw();
+				else if (canvas.lastBitmap != null)
+					return this;
+				check(System.currentTimeMillis() < end, "slide is not shown");
+				sleep();
+			}
+		}
+
+		/**
+		 * Runs frames for the given time
+		 */
+		void frames(long time){
+			for (long t = 0; t < time; t += FRAME){
+				clock.advance(FRAME);
+				Looper.runDue();
+				if (view.invalidations > 0)
+					draw();
+			}
+		}
+
+		void draw(){
+			view.resetInvalidations();
+			canvas.reset();
+			view.onDraw(canvas);
+		}
+	}
+
+
+
+	/**
+	 * Container of sources {@code slide<from>} to {@code slide<to - 1>}, which decodes
+	 * every slide into a blank bitmap and remembers requests and bitmaps
+	 */
+	static final class Slides extends PrefetchingBitmapContainer {
+
+		final private List<String> requests = new ArrayList<String>();
+		final private Map<String, Bitmap> decoded = new HashMap<String, Bitmap>();
+
+		Slides(int from, int to){
+			for (int i = from; i < to; i++)
+				add(new Source("slide" + i));
+		}
+
+		@Override
+		protected Bitmap decode(BitmapSource source, int width, int height){
+			Bitmap b = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			synchronized (requests){
+				requests.add(source.getId() + " " + width + "x" + height);
+				if (width == WIDTH && height == HEIGHT)
+					decoded.put(source.getId(), b);
+			}
+			return b;
+		}
+
+		List<String> requests(){
+			synchronized (requests){
+				return new ArrayList<String>(requests);
+			}
+		}
+
+		Bitmap decoded(String id){
+			synchronized (requests){
+				return decoded.get(id);
+			}
+		}
+	}
+
+
+
+	static final class Source implements BitmapSource {
+
+		final String id;
+
+		Source(String id){
+			this.id = id;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public InputStream open() throws IOException {
+			throw new IOException("No image data");
+		}
+	}
+
+}
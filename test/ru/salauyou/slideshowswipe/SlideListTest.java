@@ -0,0 +1,161 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+
+/**
+ * Tracking of slides by {@code SlideList.Cursor} while the list is modified,
+ * and batch modifications by {@code SlideList.Editor}
+ */
+final class SlideListTest {
+
+
+
+	/**
+	 * Cursor stays at the same slide when slides are inserted and moved, and moves
+	 * to the slide which took the place of the current one when it is removed
+	 */
+	static void testCursorTracksSlide(){
+		SlideList<String> list = list("a", "b", "c", "d", "e");
+		SlideList.Cursor<String> cursor = list.cursor();
+		check(cursor.moveTo(2).equals("c"), "moveTo(2): " + cursor.get());
+
+		list.add(0, "x");
+		check(cursor.current().equals("c") && cursor.position() == 3, "after insert: " + state(cursor));
+		list.move(3, 0);
+		check(cursor.current().equals("c") && cursor.position() == 0, "after move: " + state(cursor));
+		list.move(1, 5);
+		check(cursor.current().equals("c") && cursor.position() == 0, "after move of other slide: " + state(cursor));
+
+		// [c, a, b, d, e, x]
+		list.remove(2);
+		check(cursor.current().equals("c") && cursor.position() == 0, "after remove of other slide: " + state(cursor));
+		cursor.moveTo(1);
+		list.remove("a");
+		check(cursor.get().equals("a"), "removed slide is not kept by get(): " + cursor.get());
+		check(cursor.current().equals("d") && cursor.position() == 1, "after remove: " + state(cursor));
+		cursor.moveTo(3);
+		list.remove(3);
+		check(cursor.current().equals("e") && cursor.position() == 2, "after remove of the last slide: " + state(cursor));
+		check(cursor.next().equals("c") && cursor.position() == 0, "next() does not wrap: " + state(cursor));
+
+		list.clear();
+		check(cursor.current() == null && cursor.position() == 0 && cursor.next() == null, "after clear: " + state(cursor));
+		list.add("y");
+		check("y".equals(cursor.current()), "after add to empty list: " + state(cursor));
+	}
+
+
+
+	/**
+	 * {@code undo()} returns to the slide which was current before the latest navigation,
+	 * wherever it is after modifications, or to the slide which took its place if it was removed
+	 */
+	static void testUndoReturnsToPrecedingSlide(){
+		SlideList<String> list = list("a", "b", "c", "d");
+		SlideList.Cursor<String> cursor = list.cursor();
+		cursor.moveTo(1);
+		check(cursor.next().equals("c"), "next(): " + cursor.get());
+		list.add(0, "x");
+		list.move(0, 3);
+		cursor.undo();
+		check(cursor.current().equals("b") && cursor.position() == 1, "after undo: " + state(cursor));
+
+		check(cursor.previous().equals("a"), "previous(): " + cursor.get());
+		list.remove("b");
+		cursor.undo();
+		check(cursor.current().equals("c") && cursor.position() == 1, "undo to removed slide: " + state(cursor));
+	}
+
+
+
+	/**
+	 * Editor publishes its modifications as a single one on commit, and the cursor
+	 * follows its slide; cancelled editor leaves the list as it was
+	 */
+	static void testEditorCommitsAtOnce() throws InterruptedException {
+		final SlideList<String> list = list("a", "b", "c", "d");
+		SlideList.Cursor<String> cursor = list.cursor();
+		cursor.moveTo(2);
+		final int[] changes = { 0 };
+		list.setOnChangeListener(new SlideList.OnChangeListener(){
+			@Override
+			public void onListChanged(SlideList<?> l) {
+				changes[0]++;
+			}
+		});
+		long version = list.snapshot().version();
+
+		SlideList.Editor<String> e = list.edit();
+		e.remove("a");
+		e.add(0, "x").add("y").move(2, 0);
+		check(list.size() == 4 && cursor.current().equals("c") && cursor.position() == 2,
+				"edit is published before commit: " + state(cursor));
+		e.commit();
+		check(changes[0] == 1 && list.snapshot().version() == version + 1,
+				changes[0] + " changes, version " + list.snapshot().version());
+		check(cursor.current().equals("c") && cursor.position() == 0, "after commit: " + state(cursor));
+		check(order(list).equals("c x b d y"), "after commit: " + order(list));
+		check(committed(e), "editor is usable after commit");
+
+		e = list.edit();
+		e.clear();
+		e.cancel();
+		check(committed(e), "editor is usable after cancel");
+		check(changes[0] == 1 && list.snapshot().version() == version + 1 && order(list).equals("c x b d y"),
+				"after cancel: " + order(list));
+
+		// list is released, so other threads may modify it
+		Thread t = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				list.add("z");
+			}
+		});
+		t.start();
+		t.join(5000);
+		check(!t.isAlive() && list.size() == 6, "list is locked after editing");
+	}
+
+
+
+	/* ======================== Fixtures ============================== */
+
+	static SlideList<String> list(String... items){
+		SlideList<String> list = new SlideList<String>();
+		for (String s : items)
+			list.add(s);
+		return list;
+	}
+
+
+
+	static String state(SlideList.Cursor<String> cursor){
+		return cursor.get() + " at " + cursor.position();
+	}
+
+
+
+	static String order(SlideList<String> list){
+		StringBuilder sb = new StringBuilder();
+		SlideList.Snapshot<String> s = list.snapshot();
+		for (int i = 0; i < s.size(); i++)
+			sb.append(i == 0 ? "" : " ").append(s.get(i));
+		return sb.toString();
+	}
+
+
+
+	/**
+	 * Checks that editor rejects further modifications
+	 */
+	static boolean committed(SlideList.Editor<String> e){
+		try {
+			e.add("w");
+			return false;
+		} catch (IllegalStateException ex){
+			return true;
+		}
+	}
+
+}
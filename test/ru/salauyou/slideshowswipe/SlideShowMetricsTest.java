@@ -0,0 +1,100 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import android.graphics.Canvas;
+import android.os.Looper;
+
+
+/**
+ * Frame metrics collected by {@code SlideShowSwipe} during slideshow transitions
+ */
+final class SlideShowMetricsTest {
+
+	static final int WIDTH = 1080, HEIGHT = 1920;
+	static final long FRAME = 16;
+	static final long PERIOD = 16000, TRANSITION = 8000;
+
+
+
+	/**
+	 * Slow transition skips drawing of frames which change nothing by an alpha step,
+	 * and such frames are not counted as jank
+	 */
+	static void testSkippedFramesAreNotJank(){
+		Slideshow s = new Slideshow();
+		s.run(PERIOD + TRANSITION + 500, -1);
+		SlideShowMetrics m = s.metrics;
+		long frames = (TRANSITION + FRAME - 1) / FRAME;
+		check(m.getFrameCount() < frames * 3 / 4, "frames are not skipped: " + m.getFrameCount() + " of " + frames);
+		check(m.getFrameInterval().count() >= frames - 1, "animation frames are not timed: " + m.getFrameInterval());
+		check(m.getFrameInterval().max() == FRAME * 1000000L, "gap between frames: " + m.getFrameInterval());
+		check(m.getJankCount() == 0, "janky frames: " + m.getJankCount());
+		check(m.getDroppedFrames() == 0, "dropped frames: " + m.getDroppedFrames());
+	}
+
+
+
+	/**
+	 * Frame which really came late during slow transition is counted as jank
+	 */
+	static void testLateFrameIsJank(){
+		Slideshow s = new Slideshow();
+		s.run(PERIOD + TRANSITION + 500, PERIOD + TRANSITION / 2);
+		SlideShowMetrics m = s.metrics;
+		check(m.getJankCount() == 1, "janky frames: " + m.getJankCount());
+		check(m.getDroppedFrames() == 3, "dropped frames: " + m.getDroppedFrames());
+	}
+
+
+
+	/**
+	 * Slideshow with slow crossfade transition, run by the test clock frame by frame
+	 */
+	static final class Slideshow {
+
+		final Tests.TestClock clock = new Tests.TestClock();
+		final SlideShowSwipe view = new SlideShowSwipe(null);
+		final SlideShowMetrics metrics = new SlideShowMetrics(FRAME * 1000000L);
+		final Canvas canvas = new Canvas();
+
+		Slideshow(){
+			Looper.clear();
+			view.setFrameClock(clock);
+			view.layout(WIDTH, HEIGHT);
+			view.setSlideShowPeriod(PERIOD);
+			view.setSlideShowTransition(TRANSITION);
+			view.setBitmapContainer(new Tests.ArrayContainer(Tests.bitmaps(3, WIDTH, HEIGHT)));
+			view.restoreCurrent(false);
+			draw();
+			view.setMetrics(metrics);
+		}
+
+		/**
+		 * Runs frames for the given time
+		 *
+		 * @param late	time since start at which a frame comes 4 frames late, or -1
+		 */
+		void run(long time, long late){
+			long start = clock.millis();
+			while (clock.millis() - start < time){
+				boolean l = late >= 0 && clock.millis() - start >= late;
+				clock.advance(l ? 4 * FRAME : FRAME);
+				if (l)
+					late = -1;
+				Looper.runDue();
+				draw();
+			}
+			view.onDetachedFromWindow();
+		}
+
+		void draw(){
+			if (view.invalidations == 0)
+				return;
+			view.resetInvalidations();
+			canvas.reset();
+			view.onDraw(canvas);
+		}
+	}
+
+}
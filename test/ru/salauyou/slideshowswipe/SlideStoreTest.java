@@ -0,0 +1,185 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+
+
+/**
+ * Persistence of decoded slides in {@code SlideStore} and keys they are stored by
+ */
+final class SlideStoreTest {
+
+	static final int WIDTH = 108, HEIGHT = 192, SLIDE = WIDTH * HEIGHT * 4;
+
+
+
+	/**
+	 * Slide of a file which was rewritten is not read from the store
+	 */
+	static void testChangedFileIsNotRead() throws IOException {
+		File dir = Tests.tempDir();
+		SlideStoreContainer c = new SlideStoreContainer(new File(dir, "store"));
+		try {
+			FileBitmapSource s = new FileBitmapSource(Tests.file(dir, "image.jpg", 100));
+			String id = c.storeId(s);
+			check(c.getStore().put(id, WIDTH, HEIGHT, Tests.bitmaps(1, WIDTH, HEIGHT)[0]), "slide is not stored");
+
+			Tests.file(dir, "image.jpg", 200);
+			check(!c.storeId(s).equals(id), "same key after file changed: " + id);
+			check(!c.getStore().contains(c.storeId(s), WIDTH, HEIGHT), "stale slide is found");
+		} finally {
+			c.shutdown();
+		}
+	}
+
+
+
+	/**
+	 * Store container of a group decodes by scheduler and into cache of the group, 
+	 * and its store is closed when the group is shut down
+	 */
+	static void testStoreContainerSharesGroup() throws IOException {
+		File dir = Tests.tempDir();
+		SlideShowGroup g = new SlideShowGroup();
+		SlideStoreContainer c = g.addContainer(
+				new SlideStoreContainer(new File(dir, "store"), 2, g.getScheduler(), g.getCache()));
+		check(c.getScheduler() == g.getScheduler() && c.getCache() == g.getCache(), "container does not share group");
+		Bitmap b = Tests.bitmaps(1, WIDTH, HEIGHT)[0];
+		check(c.getStore().put("slide", WIDTH, HEIGHT, b), "slide is not stored");
+
+		SlideStoreContainer other = new SlideStoreContainer(new File(dir, "other"));
+		try {
+			g.addContainer(other);
+			check(false, "container with own scheduler and cache is added");
+		} catch (IllegalArgumentException e) {
+		} finally {
+			other.shutdown();
+		}
+
+		g.shutdown();
+		check(!c.getStore().put("slide2", WIDTH, HEIGHT, b), "store is not closed with the group");
+	}
+
+
+
+	/**
+	 * Files of store do not grow beyond the size limit, least recently used slides 
+	 * are evicted, and slides left are read after the store is reopened
+	 */
+	static void testStoreStaysBounded() throws IOException {
+		File dir = Tests.tempDir();
+		SlideStore s = new SlideStore(dir, 10 * SLIDE);
+		Bitmap b = Tests.bitmaps(1, WIDTH, HEIGHT)[0];
+		long maxIndex = 0;
+		for (int i = 0; i < 100; i++){
+			check(s.put("slide" + i, WIDTH, HEIGHT, b), "slide " + i + " is not stored");
+			check(s.get("slide0", WIDTH, HEIGHT, null) != null, "recently used slide is evicted at " + i);
+			check(new File(dir, "slides.dat").length() <= s.getMaxSize(), "data file is not bounded at " + i);
+			maxIndex = Math.max(maxIndex, new File(dir, "slides.idx").length());
+		}
+		check(s.size() <= 10, "slides: " + s.size());
+		check(maxIndex < 1000, "index file is not bounded: " + maxIndex);
+		check(!s.contains("slide1", WIDTH, HEIGHT) && s.contains("slide99", WIDTH, HEIGHT), "not least recently used slide is evicted");
+		int size = s.size();
+		s.close();
+
+		s = new SlideStore(dir, 10 * SLIDE);
+		try {
+			check(s.size() == size, "slides after reopening: " + s.size() + " of " + size);
+			check(s.get("slide99", WIDTH, HEIGHT, null) != null, "slide is not read after reopening");
+			check(s.get("slide0", WIDTH, HEIGHT, null) != null, "slide is not read after reopening");
+		} finally {
+			s.close();
+		}
+	}
+
+
+
+	/**
+	 * Partially written index record, e. g. when process was killed while appending it,
+	 * and records of slides missing in data file are dropped on opening, and slides
+	 * appended afterwards are read after the next opening
+	 */
+	static void testStoreRecoversFromTruncatedIndex() throws IOException {
+		File dir = Tests.tempDir(), index = new File(dir, "slides.idx"), data = new File(dir, "slides.dat");
+		Bitmap b = Tests.bitmaps(1, WIDTH, HEIGHT)[0];
+		SlideStore s = new SlideStore(dir);
+		for (int i = 0; i < 4; i++)
+			s.put("slide" + i, WIDTH, HEIGHT, b);
+		s.close();
+		truncate(index, index.length() - 5);
+		truncate(data, data.length() - SLIDE - 1);
+
+		s = new SlideStore(dir);
+		check(s.size() == 2, "slides after truncation: " + s.size());
+		for (int i = 0; i < 2; i++)
+			check(s.get("slide" + i, WIDTH, HEIGHT, null) != null, "slide " + i + " is not read");
+		check(s.put("slide2", WIDTH, HEIGHT, b), "slide is not stored again");
+		s.close();
+
+		s = new SlideStore(dir);
+		try {
+			check(s.size() == 3, "slides after reopening: " + s.size());
+			for (int i = 0; i < 3; i++)
+				check(s.get("slide" + i, WIDTH, HEIGHT, null) != null, "slide " + i + " is not read after reopening");
+		} finally {
+			s.close();
+		}
+	}
+
+
+
+	/**
+	 * Slides written after the first read are read, as data file is remapped when it grows
+	 */
+	static void testSlidesWrittenAfterReadAreRead() throws IOException {
+		SlideStore s = new SlideStore(Tests.tempDir());
+		try {
+			Bitmap b = Tests.bitmaps(1, WIDTH, HEIGHT)[0];
+			for (int i = 0; i < 5; i++){
+				check(s.put("slide" + i, WIDTH, HEIGHT, b), "slide " + i + " is not stored");
+				for (int k = 0; k <= i; k++)
+					check(s.get("slide" + k, WIDTH, HEIGHT, null) != null, "slide " + k + " is not read after " + i);
+			}
+		} finally {
+			s.close();
+		}
+	}
+
+
+
+	/**
+	 * Slides of resources are keyed by version of the package, if it is known
+	 */
+	static void testResourceIsKeyedByPackageVersion() throws IOException {
+		SlideStoreContainer c = new SlideStoreContainer(new File(Tests.tempDir(), "store"));
+		try {
+			ResourceBitmapSource s = new ResourceBitmapSource(new Context(), 7);
+			check(s.getVersion() != null, "no version of package");
+			check(c.storeId(s).equals(s.getId() + '#' + s.getVersion()), "key: " + c.storeId(s));
+			check(c.storeId(new ResourceBitmapSource(new Resources(), 7)).equals(s.getId()), "key of unknown version");
+		} finally {
+			c.shutdown();
+		}
+	}
+
+
+
+
+	static void truncate(File f, long length) throws IOException {
+		RandomAccessFile r = new RandomAccessFile(f, "rw");
+		try {
+			r.setLength(length);
+		} finally {
+			r.close();
+		}
+	}
+
+}
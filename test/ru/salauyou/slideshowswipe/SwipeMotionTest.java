@@ -0,0 +1,283 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+
+/**
+ * Swipe and fling of {@code SlideShowSwipe} driven frame by frame by a test clock
+ */
+final class SwipeMotionTest {
+
+	static final int WIDTH = 1080, HEIGHT = 1920;
+	static final long FRAME = 16;
+
+
+
+	/**
+	 * Swipe to the left flings the next slide into the view
+	 */
+	static void testFlingShowsNextSlide(){
+		Gesture g = new Gesture();
+		g.swipe(900, 500, 10);
+		g.settle();
+		check(g.container.index == 1, "current slide " + g.container.index);
+		check(g.canvas.lastBitmap == g.container.bitmaps[1], "next slide is not drawn");
+		check(g.canvas.lastDst.left == 0, "slide is not aligned: " + g.canvas.lastDst);
+	}
+
+
+
+	/**
+	 * Slow short swipe returns the slide back
+	 */
+	static void testShortSwipeReturnsSlide(){
+		Gesture g = new Gesture();
+		g.swipe(600, 520, 10);
+		g.settle();
+		check(g.container.index == 0, "current slide " + g.container.index);
+		check(g.canvas.lastBitmap == g.container.bitmaps[0], "slide is not drawn");
+		check(g.canvas.lastDst.left == 0, "slide is not aligned: " + g.canvas.lastDst);
+	}
+
+
+
+	/**
+	 * The same gesture timed by the same clock produces the same frames
+	 */
+	static void testMotionIsDeterministic(){
+		List<Integer> a = new Gesture().swipe(900, 300, 4).settle();
+		List<Integer> b = new Gesture().swipe(900, 300, 4).settle();
+		check(a.size() > 10, "too few frames: " + a.size());
+		check(a.equals(b), "frames differ:\n" + a + "\n" + b);
+	}
+
+
+
+	/**
+	 * Touch up which comes after a frame was calculated, but before it was drawn, does not
+	 * make time of the drawn frame go backwards: slides keep moving in the direction of fling,
+	 * and intervals between frames are not negative
+	 */
+	static void testTouchBetweenCalculationAndDrawing(){
+		Gesture g = new Gesture();
+		SlideShowMetrics m = new SlideShowMetrics();
+		g.view.setMetrics(m);
+		g.down(900);
+		for (int i = 1; i <= 4; i++){
+			g.clock.advance(FRAME);
+			Looper.runDue();
+			g.move(900 - 40 * i);
+			g.draw();
+		}
+
+		// the frame is calculated, then touch ends before it is drawn
+		g.clock.advance(FRAME);
+		g.view.invalidate();
+		Looper.runDue();
+		g.clock.advance(FRAME / 2);
+		g.up(720);
+		List<Integer> frames = g.settle();
+
+		Bitmap b = g.container.bitmaps[0];
+		int left = Integer.MAX_VALUE;
+		for (int i = 0; i < frames.size(); i += 2){
+			if (g.drawn.get(i / 2) != b)
+				break;
+			check(frames.get(i) <= left, "slide moved back: " + frames);
+			left = frames.get(i);
+		}
+		check(g.container.index == 1, "current slide " + g.container.index);
+		check(m.getFrameInterval().min() >= 0, "negative frame interval " + m.getFrameInterval());
+	}
+
+
+
+	/**
+	 * On Jelly Bean and higher, frames are paced by vsync also when a clock is set, 
+	 * and the clock still times them
+	 */
+	static void testClockedFramesArePacedByVsync(){
+		List<Integer> a = new Gesture().swipe(900, 300, 4).settle();
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.JELLY_BEAN;
+		long vsyncs = Choreographer.getInstance().getFrameCount();
+		List<Integer> b = new Gesture().swipe(900, 300, 4).settle();
+		check(Choreographer.getInstance().getFrameCount() - vsyncs >= a.size() / 2 - 10, "frames are not paced by vsync: " + (Choreographer.getInstance().getFrameCount() - vsyncs) + " of " + a.size());
+		check(a.equals(b), "frames differ:\n" + a + "\n" + b);
+	}
+
+
+
+	/**
+	 * Without a clock, animation frames are timed by vsync time, not by the time 
+	 * vsync callback runs, so motion is the same as timed by a clock ticking with vsync
+	 */
+	static void testFramesAreTimedByVsync(){
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.JELLY_BEAN;
+		List<Integer> a = new Gesture().swipe(900, 500, 10).settle();
+		Gesture g = new Gesture(false);
+		SlideShowMetrics m = new SlideShowMetrics(FRAME * 1000000L);
+		g.view.setMetrics(m);
+		List<Integer> b = g.swipe(900, 500, 10).settle();
+		check(g.container.index == 1, "current slide " + g.container.index);
+		check(a.equals(b), "frames differ:\n" + a + "\n" + b);
+		check(m.getFrameInterval().count() > 5, "too few animation frames: " + m.getFrameInterval());
+		check(m.getFrameInterval().min() == FRAME * 1000000L && m.getFrameInterval().max() == FRAME * 1000000L, 
+				"frames are not timed by vsync: " + m.getFrameInterval());
+	}
+
+
+
+	/**
+	 * With layer rendering on Android 10 and higher, a slide is recorded into its layer once, 
+	 * and frames of swipe, fling and slideshow transition only draw layers
+	 */
+	static void testLayersAreNotRecordedEveryFrame(){
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.Q;
+		Gesture g = new Gesture();
+		g.canvas.hardwareAccelerated = true;
+		g.view.setLayerRendering(true);
+		g.view.setSlideShowPeriod(1000);
+		RenderNode.recordings = 0;
+		int frames = g.frames.size() / 2;
+		g.swipe(900, 500, 10).settle();
+		check(g.container.index == 1, "current slide " + g.container.index);
+		int changes = 1, layers = 0;
+		g.view.startSlideShow();
+		for (int i = 0; i < 2500 / FRAME; i++){
+			int index = g.container.index;
+			g.frame();
+			changes += g.container.index != index ? 1 : 0;
+			layers += g.canvas.nodeDraws;
+			check(g.canvas.bitmapDraws == 0, "bitmap drawn without layer");
+		}
+		frames = g.frames.size() / 2 - frames;
+		check(changes >= 3, "slideshow did not change slides: " + changes);
+		check(layers > 50 && frames > 50, "too few frames: " + frames + ", layers drawn: " + layers);
+		check(RenderNode.recordings <= 3 * changes && RenderNode.recordings * 5 < frames, 
+				"layers recorded " + RenderNode.recordings + " times in " + frames + " frames of " + changes + " slides");
+	}
+
+
+
+	/**
+	 * Layer rendering has no effect below Android 10: slides are drawn as bitmaps
+	 */
+	static void testLayersAreNotUsedBeforeQ(){
+		Build.VERSION.SDK_INT = Build.VERSION_CODES.Q - 1;
+		Gesture g = new Gesture();
+		g.canvas.hardwareAccelerated = true;
+		g.view.setLayerRendering(true);
+		RenderNode.recordings = 0;
+		g.draw();
+		check(g.canvas.bitmapDraws == 1 && g.canvas.nodeDraws == 0, "layer is used below Q");
+		check(RenderNode.recordings == 0, "layer is recorded below Q");
+	}
+
+
+
+	/**
+	 * View with a synchronous container, which is driven by touch events and frames
+	 * advanced by the test clock
+	 */
+	static final class Gesture {
+
+		final Tests.TestClock clock = new Tests.TestClock();
+		final Tests.ArrayContainer container = new Tests.ArrayContainer(Tests.bitmaps(5, WIDTH, HEIGHT));
+		final SlideShowSwipe view = new SlideShowSwipe(null);
+		final Canvas canvas = new Canvas();
+		final List<Bitmap> drawn = new ArrayList<Bitmap>(); // front slide of every drawn frame
+		final List<Integer> frames = new ArrayList<Integer>(); // left and top of the front slide of every drawn frame
+		final MotionEvent e = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+
+		Gesture(){
+			this(true);
+		}
+
+		/**
+		 * @param clocked	if the view is timed by the test clock, rather than by vsync
+		 */
+		Gesture(boolean clocked){
+			Looper.clear();
+			if (clocked)
+				view.setFrameClock(clock);
+			view.layout(WIDTH, HEIGHT);
+			view.setBitmapContainer(container);
+			view.restoreCurrent(true);
+			draw();
+			frames.clear();
+			drawn.clear();
+		}
+
+		/**
+		 * Swipes from one point to another by the given number of moves, one per frame
+		 */
+		Gesture swipe(float from, float to, int moves){
+			down(from);
+			for (int i = 1; i <= moves; i++){
+				frame();
+				move(from + (to - from) * i / moves);
+			}
+			frame();
+			up(to);
+			return this;
+		}
+
+		void down(float x){
+			view.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_DOWN, x, HEIGHT / 2));
+		}
+
+		void move(float x){
+			view.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_MOVE, x, HEIGHT / 2));
+		}
+
+		void up(float x){
+			view.onTouchEvent(e.set(clock.millis(), MotionEvent.ACTION_UP, x, HEIGHT / 2));
+		}
+
+		/**
+		 * Advances the clock by a frame, runs due callbacks and draws the view if it was invalidated
+		 */
+		void frame(){
+			clock.advance(FRAME);
+			Looper.runDue();
+			draw();
+		}
+
+		void draw(){
+			if (view.invalidations == 0)
+				return;
+			view.resetInvalidations();
+			canvas.reset();
+			view.onDraw(canvas);
+			drawn.add(canvas.lastBitmap);
+			frames.add(canvas.lastDst.left);
+			frames.add(canvas.lastDst.top);
+		}
+
+		/**
+		 * Runs frames until the view stops redrawing, and returns drawn frames
+		 */
+		List<Integer> settle(){
+			draw();
+			for (int idle = 0, n = 0; idle < 10; n++){
+				check(n < 1000, "motion does not stop");
+				int size = frames.size();
+				frame();
+				idle = frames.size() == size ? idle + 1 : 0;
+			}
+			return frames;
+		}
+	}
+
+}
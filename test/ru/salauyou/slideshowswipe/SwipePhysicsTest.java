@@ -0,0 +1,108 @@
+package ru.salauyou.slideshowswipe;
+
+import static ru.salauyou.slideshowswipe.Tests.check;
+import static ru.salauyou.slideshowswipe.Tests.near;
+
+
+/**
+ * Touch tracking and fling of {@code SwipePhysics}, independent of touch sample rate
+ */
+final class SwipePhysicsTest {
+
+	static final int WIDTH = 1080, HEIGHT = 1920;
+	static final float X0 = 900, Y = HEIGHT / 2;
+	static final long T0 = 1000, DURATION = 100, FRAME = 16;
+	static final int[] RATES = { 60, 90, 120, 180, 240 };
+
+
+
+	/**
+	 * The same gesture sampled at different rates, with samples batched into events
+	 * once per display frame, moves the slide by the same offset and launches the same motion
+	 */
+	static void testFlingDoesNotDependOnSampleRate(){
+		float[] velocities = { -800, -1800, -4000, 1800 };
+		int[] landings = { 0, -1, -2, +1 };
+		for (int i = 0; i < velocities.length; i++){
+			float v = velocities[i];
+			SwipePhysics first = null;
+			for (int rate : RATES){
+				SwipePhysics p = swipe(v, rate);
+				String name = v + " px/s at " + rate + " Hz";
+				near(v * DURATION / 1000f, p.getOffset(), 0.01, "offset of " + name);
+				check(p.getLandingShift() == landings[i], "landing of " + name + ": " + p.getLandingShift());
+				if (first == null)
+					first = p;
+				else
+					near(first.getVelocity(), p.getVelocity(), 0.01, "velocity of " + name);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Finger which stopped before touch up launches no fling at any sample rate
+	 */
+	static void testStoppedTouchDoesNotFling(){
+		for (int rate : RATES){
+			SwipePhysics p = new SwipePhysics();
+			p.setSize(WIDTH, HEIGHT);
+			p.touchDown(X0, Y, T0);
+			p.touchMove(X0 - 400, Y, T0 + DURATION);
+			long t = T0 + DURATION + 1000 / rate;
+			while (t < T0 + DURATION + 3 * SwipePhysics.VELOCITY_STOP){
+				p.touchSample(X0 - 400, t);
+				t += 1000 / rate;
+			}
+			p.touchUp(X0 - 400, t, t * 1000000L);
+			check(p.getLandingShift() == 0, "landing at " + rate + " Hz: " + p.getLandingShift());
+			check(p.getVelocity() > 0, "slide does not return at " + rate + " Hz: " + p.getVelocity());
+		}
+	}
+
+
+
+	/**
+	 * Runs a swipe with constant velocity for {@code DURATION}, sampled at the given rate.
+	 * Like {@code MotionEvent}s, samples are delivered once per display frame, the latest
+	 * one as the position of event and others as history, and the last ones with touch up
+	 *
+	 * @param v		velocity in px/s
+	 * @param rate	sample rate in Hz
+	 */
+	static SwipePhysics swipe(float v, int rate){
+		SwipePhysics p = new SwipePhysics();
+		p.setSize(WIDTH, HEIGHT);
+		p.touchDown(X0, Y, T0);
+		int n = (int) (DURATION * rate / 1000), k = 1;
+		for (long frame = T0 + FRAME; frame < T0 + DURATION; frame += FRAME){
+			int last = k;
+			while (last <= n && sampleTime(last, rate) <= frame)
+				last++;
+			if (last == k)
+				continue;
+			for (; k < last - 1; k++)
+				p.touchSample(sampleX(k, rate, v), sampleTime(k, rate));
+			p.touchMove(sampleX(k, rate, v), Y, sampleTime(k, rate));
+			k++;
+		}
+		for (; k < n; k++)
+			p.touchSample(sampleX(k, rate, v), sampleTime(k, rate));
+		p.touchUp(sampleX(n, rate, v), sampleTime(n, rate), sampleTime(n, rate) * 1000000L);
+		return p;
+	}
+
+
+
+	static long sampleTime(int k, int rate){
+		return T0 + Math.round(k * 1000.0 / rate);
+	}
+
+
+
+	static float sampleX(int k, int rate, float v){
+		return X0 + v * (sampleTime(k, rate) - T0) / 1000f;
+	}
+
+}
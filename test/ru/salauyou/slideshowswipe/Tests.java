@@ -0,0 +1,214 @@
+package ru.salauyou.slideshowswipe;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
+
+
+/**
+ * Minimal test runner. Every {@code static void test*()} method of the listed test classes
+ * is a test, which fails by throwing an exception, usually by {@code check()}.
+ *
+ * Usage: {@code Tests [class...]}. Exits with status 1 if any test failed
+ */
+public final class Tests {
+
+	static final Class<?>[] CLASSES = {
+		BitmapCacheTest.class,
+		BitmapReuseTest.class,
+		DecodeSchedulerTest.class,
+		EasingTest.class,
+		SavedStateTest.class,
+		SlideListTest.class,
+		SlideShowMetricsTest.class,
+		SlideStoreTest.class,
+		SwipePhysicsTest.class,
+		SwipeMotionTest.class,
+	};
+
+
+
+	public static void main(String[] args) throws Exception {
+		List<String> only = Arrays.asList(args);
+		int run = 0, failed = 0;
+		for (Class<?> c : CLASSES){
+			if (!only.isEmpty() && !only.contains(c.getSimpleName()))
+				continue;
+			Method[] methods = c.getDeclaredMethods();
+			Arrays.sort(methods, new Comparator<Method>(){
+				@Override
+				public int compare(Method a, Method b) {
+					return a.getName().compareTo(b.getName());
+				}
+			});
+			for (Method m : methods){
+				if (!m.getName().startsWith("test") || !Modifier.isStatic(m.getModifiers()))
+					continue;
+				run++;
+				String name = c.getSimpleName() + "." + m.getName();
+				try {
+					m.setAccessible(true);
+					m.invoke(null);
+					System.out.println("PASS " + name);
+				} catch (InvocationTargetException e) {
+					failed++;
+					System.out.println("FAIL " + name);
+					e.getCause().printStackTrace(System.out);
+				} finally {
+					Looper.clear();
+					Build.VERSION.SDK_INT = Build.VERSION.SDK_INT_DEFAULT;
+				}
+			}
+		}
+		System.out.println(run + " tests, " + failed + " failed");
+		System.exit(failed > 0 ? 1 : 0);
+	}
+
+
+
+	/**
+	 * Fails the test if condition is false
+	 */
+	static void check(boolean condition, String message){
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+
+
+	/**
+	 * Fails the test if value differs from expected one by more than the tolerance
+	 */
+	static void near(double expected, double value, double tolerance, String message){
+		if (!(Math.abs(value - expected) <= tolerance))
+			throw new AssertionError(message + ": expected " + expected + " +- " + tolerance + ", was " + value);
+	}
+
+
+
+	/**
+	 * Frame clock advanced by the test. Uptime of {@code SystemClock}, which timers and
+	 * touch events are timed by, is advanced with it
+	 */
+	static final class TestClock implements FrameClock {
+
+		private long millis = 1000;
+
+		TestClock(){
+			SystemClock.setUptimeMillis(millis);
+		}
+
+		void advance(long ms){
+			millis += ms;
+			SystemClock.setUptimeMillis(millis);
+		}
+
+		long millis(){
+			return millis;
+		}
+
+		@Override
+		public long frameTimeNanos() {
+			return millis * 1000000L;
+		}
+	}
+
+
+
+	/**
+	 * Synchronous container of bitmaps wrapping around the ends
+	 */
+	static final class ArrayContainer implements SlideShowSwipe.BitmapContainer {
+
+		final Bitmap[] bitmaps;
+		int index, indexPrec;
+
+		ArrayContainer(Bitmap... bitmaps){
+			this.bitmaps = bitmaps;
+		}
+
+		@Override
+		public Bitmap getBitmapNext() {
+			indexPrec = index;
+			index = (index + 1) % bitmaps.length;
+			return bitmaps[index];
+		}
+
+		@Override
+		public Bitmap getBitmapPrevious() {
+			indexPrec = index;
+			index = (index + bitmaps.length - 1) % bitmaps.length;
+			return bitmaps[index];
+		}
+
+		@Override
+		public Bitmap getBitmapCurrent() {
+			return bitmaps[index];
+		}
+
+		@Override
+		public void undoGetBitmap() {
+			index = indexPrec;
+		}
+	}
+
+
+
+	/**
+	 * Returns bitmaps of the given size
+	 */
+	static Bitmap[] bitmaps(int n, int width, int height){
+		Bitmap[] b = new Bitmap[n];
+		for (int i = 0; i < n; i++)
+			b[i] = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		return b;
+	}
+
+
+
+	/**
+	 * Creates an empty temporary directory, deleted with its files on exit
+	 */
+	static File tempDir() throws IOException {
+		final File dir = File.createTempFile("slideshowswipe", "");
+		if (!dir.delete() || !dir.mkdir())
+			throw new IOException("Cannot create " + dir);
+		Runtime.getRuntime().addShutdownHook(new Thread(){
+			@Override
+			public void run(){
+				for (File f : dir.listFiles())
+					f.delete();
+				dir.delete();
+			}
+		});
+		return dir;
+	}
+
+
+
+	/**
+	 * Creates file of the given length in the directory
+	 */
+	static File file(File dir, String name, int length) throws IOException {
+		File f = new File(dir, name);
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(new byte[length]);
+		} finally {
+			out.close();
+		}
+		return f;
+	}
+
+}
@@ -0,0 +1,14 @@
+#!/bin/sh
+# Compiles the library against shadow Android classes of benchmarks and runs unit tests
+# on desktop JVM. Exits with non-zero status if any test fails. Arguments are names
+# of test classes to run, all tests are run by default:
+#   test/run.sh
+#   test/run.sh SwipePhysicsTest
+set -e
+# warnings fail the build, as for benchmarks
+cd "$(dirname "$0")/.."
+rm -rf test/out
+mkdir -p test/out
+javac -Xlint:all -Werror -encoding UTF-8 -d test/out \
+	$(find bench/shadow src/ru/salauyou/slideshowswipe test/ru -name '*.java')
+exec java -cp test/out ru.salauyou.slideshowswipe.Tests "$@"